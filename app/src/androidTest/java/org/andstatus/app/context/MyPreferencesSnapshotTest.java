@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+@Travis
+public class MyPreferencesSnapshotTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testSnapshotIsReusedTillPreferencesChange() {
+        MyPreferencesSnapshot snapshot1 = MyPreferencesSnapshot.get();
+        assertFalse(snapshot1.toString(), snapshot1.isEmpty());
+        assertEquals(MyContextHolder.get().preferencesChangeTime(), snapshot1.version);
+        assertSame(snapshot1, MyPreferencesSnapshot.get());
+
+        boolean showOrigin = MyPreferences.getShowOrigin();
+        try {
+            SharedPreferencesUtil.putBoolean(MyPreferences.KEY_SHOW_ORIGIN, !showOrigin);
+            MyPreferences.onPreferencesChanged();
+            MyPreferencesSnapshot snapshot2 = MyPreferencesSnapshot.get();
+            assertNotSame(snapshot1, snapshot2);
+            assertEquals(!showOrigin, snapshot2.showOrigin);
+            assertSame(snapshot2, MyPreferencesSnapshot.get());
+        } finally {
+            SharedPreferencesUtil.putBoolean(MyPreferences.KEY_SHOW_ORIGIN, showOrigin);
+            MyPreferences.onPreferencesChanged();
+        }
+        assertEquals(showOrigin, MyPreferencesSnapshot.get().showOrigin);
+    }
+}
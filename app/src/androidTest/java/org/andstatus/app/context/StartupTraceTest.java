@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import android.test.InstrumentationTestCase;
+
+@Travis
+public class StartupTraceTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testPhasesTraced() {
+        MyContextHolder.get().setExpired();
+        MyContextHolder.initialize(getInstrumentation().getTargetContext(), this);
+        assertTrue(MyContextHolder.get().isReady());
+        String info = StartupTrace.getInfo();
+        for (String phase : new String[]{"database", "android accounts", "origins", "accounts", "timelines"}) {
+            assertTrue("No '" + phase + "' in " + info, info.contains(phase + ": +"));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.util.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+@Travis
+public class BlobStoreTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testSameContentStoredOnce() throws IOException {
+        DownloadFile blob1 = BlobStore.store(newTempFile("temp_blob1", "Same content"), "png");
+        DownloadFile downloaded2 = newTempFile("temp_blob2", "Same content");
+        DownloadFile blob2 = BlobStore.store(downloaded2, "png");
+        assertEquals(blob1.getFilename(), blob2.getFilename());
+        assertTrue(blob1.getFilename(), blob1.getFilename().endsWith(".png"));
+        assertFalse("Duplicate deleted", downloaded2.exists());
+        assertTrue(blob1.exists());
+
+        DownloadFile blob3 = BlobStore.store(newTempFile("temp_blob3", "Other content"), "png");
+        assertFalse(blob1.getFilename().equals(blob3.getFilename()));
+
+        BlobStore.release(blob1);
+        assertTrue("Not saved yet", blob1.exists());
+        BlobStore.onSaved(blob1);
+        BlobStore.release(blob1);
+        assertTrue("Referred by the second row", blob1.exists());
+        BlobStore.onSaved(blob2);
+        BlobStore.release(blob2);
+        assertFalse("No rows refer to the file", blob1.exists());
+        BlobStore.onSaved(blob3);
+        BlobStore.release(blob3);
+        assertFalse(blob3.exists());
+    }
+
+    public void testEvictionKeepsShownFiles() throws IOException {
+        DownloadFile shown = BlobStore.store(newTempFile("temp_shown", "Shown content"), "");
+        BlobStore.onSaved(shown);
+        DownloadFile notShown = BlobStore.store(newTempFile("temp_not_shown", "Not shown content"), "");
+        BlobStore.onSaved(notShown);
+        BlobStore.onShown(shown);
+        assertTrue(shown.getFile().setLastModified(1000));
+        assertTrue(notShown.getFile().setLastModified(2000));
+        // Only one file is over the quota, the least recently used one
+        assertEquals(1, BlobStore.evict(getStoreSize() - 1));
+        assertTrue("Visible file kept", shown.exists());
+        assertFalse("Least recently used file evicted", notShown.exists());
+        BlobStore.release(shown);
+        assertFalse(shown.exists());
+    }
+
+    public void testHex() {
+        assertEquals("00ff7f80", BlobStore.toHex(new byte[]{0, (byte) 0xFF, 0x7F, (byte) 0x80}));
+    }
+
+    private long getStoreSize() {
+        long size = 0;
+        for (File file : MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS).listFiles()) {
+            size += file.isFile() ? file.length() : 0;
+        }
+        return size;
+    }
+
+    private DownloadFile newTempFile(String filename, String content) throws IOException {
+        DownloadFile file = new DownloadFile(filename);
+        FileUtils.readStreamToFile(new ByteArrayInputStream(content.getBytes("UTF-8")), file.getFile());
+        assertTrue(file.exists());
+        return file;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.drawable.Drawable;
+import android.test.InstrumentationTestCase;
+import android.widget.ImageView;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Travis
+public class AttachedImageLoaderTest extends InstrumentationTestCase {
+    private static final String PATH1 = "/no/such/dir/image1.png";
+    private static final String PATH2 = "/no/such/dir/image2.png";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        MyImageCache.initialize(MyContextHolder.get().context());
+    }
+
+    public void testCoalescedAndCancelled() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final AtomicLong rebound = new AtomicLong();
+        final long coalescedBefore = AttachedImageLoader.coalesced.get();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ImageView view1 = new ImageView(getInstrumentation().getTargetContext());
+                ImageView view2 = new ImageView(getInstrumentation().getTargetContext());
+                AttachedImageLoader.load(view1, PATH1, new AttachedImageLoader.Listener() {
+                    @Override
+                    public void onLoaded(Drawable drawable) {
+                        rebound.incrementAndGet();
+                    }
+                });
+                AttachedImageLoader.load(view2, PATH1, newListener(latch));
+                AttachedImageLoader.prefetch(PATH1);
+                AttachedImageLoader.load(view1, PATH2, newListener(latch));
+            }
+        });
+        assertEquals("Requests for the same path", coalescedBefore + 2, AttachedImageLoader.coalesced.get());
+        assertTrue(AttachedImageLoader.getInfo(), latch.await(10, TimeUnit.SECONDS));
+        getInstrumentation().waitForIdleSync();
+        assertEquals("The view was bound to other image", 0, rebound.get());
+    }
+
+    private AttachedImageLoader.Listener newListener(final CountDownLatch latch) {
+        return new AttachedImageLoader.Listener() {
+            @Override
+            public void onLoaded(Drawable drawable) {
+                assertNull("No such file", drawable);
+                latch.countDown();
+            }
+        };
+    }
+}
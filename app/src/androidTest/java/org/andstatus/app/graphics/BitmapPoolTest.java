@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+@Travis
+public class BitmapPoolTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testSameSizeAndConfig() {
+        BitmapPool pool = new BitmapPool(3 * 100 * 100 * 4);
+        assertNull(pool.get(100, 100, Bitmap.Config.ARGB_8888));
+        assertEquals(1, pool.misses.get());
+
+        Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        pool.put(bitmap);
+        assertNull("Other config", pool.get(100, 100, Bitmap.Config.RGB_565));
+        assertSame(bitmap, pool.get(100, 100, Bitmap.Config.ARGB_8888));
+        assertEquals(1, pool.hits.get());
+        assertNull("Taken already", pool.get(100, 100, Bitmap.Config.ARGB_8888));
+
+        pool.put(bitmap);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            assertSame("Large enough", bitmap, pool.get(50, 60, Bitmap.Config.ARGB_8888));
+        } else {
+            assertNull("Exactly the same size only", pool.get(50, 60, Bitmap.Config.ARGB_8888));
+        }
+    }
+
+    public void testPoolIsLimited() {
+        BitmapPool pool = new BitmapPool(2 * 100 * 100 * 2);
+        Bitmap first = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+        pool.put(first);
+        Bitmap second = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565);
+        pool.put(second);
+        pool.put(Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565));
+        assertNotSame("The least recently pooled was dropped", first, pool.get(100, 100, Bitmap.Config.RGB_565));
+        assertNotSame(first, pool.get(100, 100, Bitmap.Config.RGB_565));
+        assertNull(pool.get(100, 100, Bitmap.Config.RGB_565));
+        assertFalse("Not recycled", first.isRecycled());
+
+        pool.put(second);
+        pool.clear();
+        assertNull(pool.get(100, 100, Bitmap.Config.RGB_565));
+    }
+}
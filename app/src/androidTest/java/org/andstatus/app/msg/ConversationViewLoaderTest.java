@@ -1,6 +1,7 @@
 package org.andstatus.app.msg;
 
 import android.content.Context;
+import android.os.Build;
 import android.test.InstrumentationTestCase;
 
 import org.andstatus.app.LoadableListActivity.ProgressPublisher;
@@ -11,8 +12,14 @@ import org.andstatus.app.context.Travis;
 import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.TriState;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Travis
 public class ConversationViewLoaderTest extends InstrumentationTestCase implements ProgressPublisher {
@@ -55,6 +62,90 @@ public class ConversationViewLoaderTest extends InstrumentationTestCase implemen
         assertTrue(progressCounter > 0);
     }
 
+    public void testRecursiveQueryAndFallbackLoadTheSame() {
+        ConversationLoader<ConversationViewItem> loader1 = new ConversationLoader<>(
+                ConversationViewItem.class,
+                MyContextHolder.get(), ma, selectedMessageId);
+        loader1.load(null);
+        TriState supported = ConversationLoader.recursiveQuerySupported;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            assertEquals("Recursive query is supported", TriState.TRUE, supported);
+        }
+        ConversationLoader<ConversationViewItem> loader2 = new ConversationLoader<>(
+                ConversationViewItem.class,
+                MyContextHolder.get(), ma, selectedMessageId);
+        try {
+            ConversationLoader.recursiveQuerySupported = TriState.FALSE;
+            loader2.load(null);
+        } finally {
+            ConversationLoader.recursiveQuerySupported = supported;
+        }
+        List<ConversationViewItem> list1 = loader1.getList();
+        List<ConversationViewItem> list2 = loader2.getList();
+        assertEquals(list2.size(), list1.size());
+        for (int ind = 0; ind < list1.size(); ind++) {
+            ConversationViewItem item1 = list1.get(ind);
+            ConversationViewItem item2 = list2.get(ind);
+            assertEquals("ind=" + ind, item2.getMsgId(), item1.getMsgId());
+            assertEquals("Reply level of " + item1, item2.mReplyLevel, item1.mReplyLevel);
+            assertEquals("Replies to " + item1, item2.mNReplies, item1.mNReplies);
+            assertEquals("Indent of " + item1, item2.mIndentLevel, item1.mIndentLevel);
+            assertEquals("Body of " + item1, item2.body, item1.body);
+            assertEquals("Rebloggers of " + item1, item2.rebloggers.size(), item1.rebloggers.size());
+        }
+    }
+
+    public void testVersionComparison() {
+        int[] minVersion = {3, 8, 3};
+        assertTrue(ConversationLoader.isVersionAtLeast("3.8.3", minVersion));
+        assertTrue(ConversationLoader.isVersionAtLeast("3.8.10.2", minVersion));
+        assertTrue(ConversationLoader.isVersionAtLeast("3.9", minVersion));
+        assertFalse(ConversationLoader.isVersionAtLeast("3.8.2", minVersion));
+        assertFalse(ConversationLoader.isVersionAtLeast("3.7.11", minVersion));
+        assertFalse(ConversationLoader.isVersionAtLeast("", minVersion));
+    }
+
+    public void testLayOutOfLongConversation() {
+        final int size = 5000;
+        ConversationLoader<ConversationViewItem> loader = new ConversationLoader<>(
+                ConversationViewItem.class,
+                MyContextHolder.get(), ma, selectedMessageId);
+        ConversationViewItem[] items = new ConversationViewItem[size + 1];
+        for (int msgId = 1; msgId <= size; msgId++) {
+            ConversationViewItem item = new ConversationViewItem();
+            item.setMsgId(msgId);
+            item.createdDate = 1000000L + msgId;
+            // A long chain of replies with a branch at every tenth message
+            item.mInReplyToMsgId = msgId == 1 ? 0 : (msgId % 10 == 0 ? msgId / 2 : msgId - 1);
+            item.mReplyLevel = msgId == 1 ? 0 : items[(int) item.mInReplyToMsgId].mReplyLevel + 1;
+            if (item.mInReplyToMsgId != 0) {
+                items[(int) item.mInReplyToMsgId].mNReplies++;
+            }
+            items[msgId] = item;
+            loader.mMsgs.add(item);
+        }
+        Collections.shuffle(loader.mMsgs, new Random(1));
+
+        long startedAt = System.nanoTime();
+        loader.layOut();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        MyLog.i(this, "Layout of " + size + " messages took " + elapsedMillis + " ms");
+
+        assertEquals(size, loader.getList().size());
+        Set<Integer> historyOrders = new HashSet<>();
+        for (int msgId = 1; msgId <= size; msgId++) {
+            ConversationViewItem item = items[msgId];
+            assertTrue("History order of " + msgId + " is not unique", historyOrders.add(item.mHistoryOrder));
+            if (item.mInReplyToMsgId != 0) {
+                assertTrue("Reply " + msgId + " is after the message, which it replies to",
+                        item.mHistoryOrder > items[(int) item.mInReplyToMsgId].mHistoryOrder);
+            }
+        }
+        assertEquals(1, items[1].mHistoryOrder);
+        assertTrue("Indented message found", items[size].mIndentLevel > 0);
+        assertTrue("Layout took " + elapsedMillis + " ms", elapsedMillis < 5000);
+    }
+
     @Override
     public void publish(String progress) {
         progressCounter++;
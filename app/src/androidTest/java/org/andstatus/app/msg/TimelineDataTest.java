@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+@Travis
+public class TimelineDataTest extends InstrumentationTestCase {
+    private static final String TEXT1 = "What is good about Android is that I can use Quitter.se via AndStatus "
+            + "and read the timelines of all my accounts in one place, even when I am offline";
+    /** Near duplicate of {@link #TEXT1}, which neither contains it, nor is contained in it */
+    private static final String TEXT1_EDITED = TEXT1.replace("all my", "all of my");
+    private static final String TEXT2 = "Some other text, which has nothing in common "
+            + "with the first one, except for a couple of words";
+    private static final long CREATED_DATE = 1400000000000L;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testCollapseNotAdjacentDuplicates() {
+        List<TimelineViewItem> items = new ArrayList<>();
+        items.add(newItem(1, TEXT1, 0));
+        items.add(newItem(2, TEXT2, 1));
+        items.add(newItem(3, TEXT1_EDITED, 2));
+        TimelineData data = new TimelineData(null, newPage(WhichPage.CURRENT, items));
+        data.collapseDuplicates(true, 0);
+
+        assertEquals(data.toString(), 2, data.size());
+        assertEquals(2, data.getItem(0).getMsgId());
+        TimelineViewItem item = data.getItem(1);
+        assertEquals("The older message is shown", 3, item.getMsgId());
+        assertEquals(1, item.getChildren().size());
+        assertEquals(1, item.getChildren().get(0).getMsgId());
+
+        data.collapseDuplicates(false, 0);
+        assertMsgIds(data.pages.get(0), 1, 2, 3);
+    }
+
+    public void testCollapseDuplicatesOnDifferentPages() {
+        List<TimelineViewItem> items1 = new ArrayList<>();
+        items1.add(newItem(1, TEXT1, 0));
+        items1.add(newItem(2, TEXT2, 1));
+        TimelinePage page1 = newPage(WhichPage.CURRENT, items1);
+        TimelineData data1 = new TimelineData(null, page1);
+
+        List<TimelineViewItem> items2 = new ArrayList<>();
+        items2.add(newItem(3, TEXT2 + " And more", 2));
+        items2.add(newItem(4, TEXT1_EDITED, 3));
+        TimelinePage page2 = newPage(WhichPage.OLDER, items2);
+        page2.params.timeline = page1.params.timeline;
+        TimelineData data = new TimelineData(data1, page2);
+        data.collapseDuplicates(true, 0);
+
+        assertEquals(data.toString(), 2, data.pages.size());
+        assertEquals(data.toString(), 2, data.size());
+        TimelineViewItem item = data.getItem(0);
+        assertEquals(2, item.getMsgId());
+        assertEquals("The message, which contains the body of other, is collapsed",
+                3, item.getChildren().get(0).getMsgId());
+        item = data.getItem(1);
+        assertEquals("The older message of the older page is shown", 4, item.getMsgId());
+        assertEquals(1, item.getChildren().get(0).getMsgId());
+        assertEquals(1, page1.items.size());
+        assertEquals(1, page2.items.size());
+
+        data.collapseDuplicates(false, 0);
+        assertEquals(data.toString(), 4, data.size());
+        assertMsgIds(page1, 1, 2);
+        assertMsgIds(page2, 3, 4);
+    }
+
+    private static void assertMsgIds(TimelinePage page, long... msgIds) {
+        assertEquals(page.items.toString(), msgIds.length, page.items.size());
+        for (int ind = 0; ind < msgIds.length; ind++) {
+            assertEquals("ind=" + ind + ", " + page.items, msgIds[ind], page.items.get(ind).getMsgId());
+        }
+    }
+
+    /** Items are ordered from the youngest to the oldest */
+    private static TimelineViewItem newItem(long msgId, String body, int indFromYoungest) {
+        TimelineViewItem item = new TimelineViewItem();
+        item.setMsgId(msgId);
+        item.body = body;
+        item.createdDate = CREATED_DATE - TimeUnit.MINUTES.toMillis(indFromYoungest);
+        item.sentDate = item.createdDate;
+        return item;
+    }
+
+    private static TimelinePage newPage(WhichPage whichPage, List<TimelineViewItem> items) {
+        TimelineListParameters params = new TimelineListParameters(MyContextHolder.get());
+        params.whichPage = whichPage;
+        params.rowsLoaded = items.size();
+        params.maxSentDateLoaded = items.get(0).sentDate;
+        params.minSentDateLoaded = items.get(items.size() - 1).sentDate;
+        return new TimelinePage(params, items);
+    }
+}
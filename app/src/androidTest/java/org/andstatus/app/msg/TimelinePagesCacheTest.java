@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.timeline.Timeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+@Travis
+public class TimelinePagesCacheTest extends InstrumentationTestCase {
+    private static final String TEXT1 = "What is good about Android is that I can use Quitter.se via AndStatus "
+            + "and read the timelines of all my accounts in one place, even when I am offline";
+    private static final long SENT_DATE = 1400000000000L;
+
+    private MyContext myContext;
+    private Timeline timeline;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+        myContext = MyContextHolder.get();
+        timeline = myContext.persistentTimelines().values().iterator().next();
+        assertFalse(timeline.isEmpty());
+        TimelinePagesCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TimelinePagesCache.clear();
+        super.tearDown();
+    }
+
+    public void testHit() {
+        assertNull(TimelinePagesCache.get(myContext, timeline));
+        TimelineData data = newData();
+        TimelinePagesCache.put(data);
+        TimelineData cached = TimelinePagesCache.get(myContext, timeline);
+        assertNotNull(TimelinePagesCache.getCacheInfo(), cached);
+        assertNotSame(data, cached);
+        assertEquals(data.size(), cached.size());
+        assertEquals(data.getItem(0).getMsgId(), cached.getItem(0).getMsgId());
+        assertNotSame(data.getItem(0), cached.getItem(0));
+    }
+
+    public void testInvalidatedBySync() {
+        TimelinePagesCache.put(newData());
+        long syncSucceededDate = timeline.getSyncSucceededDate();
+        try {
+            timeline.setSyncSucceededDate(syncSucceededDate + 1);
+            assertNull(TimelinePagesCache.get(myContext, timeline));
+        } finally {
+            timeline.setSyncSucceededDate(syncSucceededDate);
+        }
+        assertNull("Outdated data is removed", TimelinePagesCache.get(myContext, timeline));
+    }
+
+    public void testInvalidatedByNewContext() {
+        TimelinePagesCache.put(newData());
+        MyContext newContext = myContext.newCreator(myContext.context(), "testInvalidatedByNewContext");
+        assertNull(TimelinePagesCache.get(newContext, timeline));
+    }
+
+    public void testCachedDataIsNotChangedByCollapsing() {
+        TimelineData data = newData();
+        TimelinePagesCache.put(data);
+        data.collapseDuplicates(true, 0);
+        assertEquals(2, data.size());
+
+        TimelineData cached = TimelinePagesCache.get(myContext, timeline);
+        assertNotNull(cached);
+        cached.collapseDuplicates(false, 0);
+        assertEquals(3, cached.size());
+        cached.collapseDuplicates(true, 0);
+        assertEquals(2, cached.size());
+        assertTrue(cached.getItem(1).isCollapsed());
+
+        TimelineData cached2 = TimelinePagesCache.get(myContext, timeline);
+        assertNotNull(cached2);
+        cached2.collapseDuplicates(false, 0);
+        assertEquals(3, cached2.size());
+        assertFalse(cached2.getItem(1).isCollapsed());
+        assertTrue("Collapsed items are not shared", cached.getItem(1).isCollapsed());
+    }
+
+    private TimelineData newData() {
+        TimelineListParameters params = new TimelineListParameters(myContext);
+        params.timeline = timeline;
+        params.whichPage = WhichPage.CURRENT;
+        params.endTime = System.nanoTime();
+        List<TimelineViewItem> items = new ArrayList<>();
+        items.add(newItem(1, TEXT1, 0));
+        items.add(newItem(2, "Some other text, which has nothing in common with the first one", 1));
+        items.add(newItem(3, TEXT1.replace("all my", "all of my"), 2));
+        for (TimelineViewItem item : items) {
+            params.rememberSentDateLoaded(item.sentDate);
+        }
+        params.rowsLoaded = items.size();
+        return new TimelineData(null, new TimelinePage(params, items));
+    }
+
+    private static TimelineViewItem newItem(long msgId, String body, int indFromYoungest) {
+        TimelineViewItem item = new TimelineViewItem();
+        item.setMsgId(msgId);
+        item.body = body;
+        item.sentDate = SENT_DATE - indFromYoungest * 60000L;
+        item.createdDate = item.sentDate;
+        return item;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+import cz.msebera.android.httpclient.HttpHost;
+import cz.msebera.android.httpclient.client.methods.HttpGet;
+import cz.msebera.android.httpclient.client.protocol.HttpClientContext;
+
+import java.net.Socket;
+import java.net.URL;
+
+@Travis
+public class HttpConnectionPoolsTest extends InstrumentationTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        HttpConnectionPools.forget();
+    }
+
+    public void testPoolPerOrigin() throws Exception {
+        HttpConnectionPools.Pool pool1 = HttpConnectionPools.getPool(
+                new URL("https://example.com/api/"), SslModeEnum.SECURE);
+        assertSame("Shared by all accounts of the host", pool1, HttpConnectionPools.getPool(
+                new URL("https://example.com/"), SslModeEnum.SECURE));
+        assertNotSame(pool1, HttpConnectionPools.getPool(
+                new URL("https://example.org/api/"), SslModeEnum.SECURE));
+        assertNotSame(pool1, HttpConnectionPools.getPool(
+                new URL("https://example.com/api/"), SslModeEnum.INSECURE));
+        assertSame(pool1.client, pool1.getHttpClient());
+        assertTrue(HttpConnectionPools.getStats(), HttpConnectionPools.getStats().contains("example.org"));
+
+        HttpConnectionPools.forget();
+        assertNotSame("New pool after settings change", pool1, HttpConnectionPools.getPool(
+                new URL("https://example.com/api/"), SslModeEnum.SECURE));
+    }
+
+    public void testStats() throws Exception {
+        HttpConnectionStats stats = new HttpConnectionStats();
+        assertEquals(0f, stats.getReuseRate());
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(HttpClientContext.HTTP_TARGET_HOST, new HttpHost("example.com", 80, "http"));
+        for (int ind = 0; ind < 4; ind++) {
+            stats.requestCounter.process(new HttpGet("http://example.com/" + ind), context);
+        }
+        stats.onConnected(new Socket(), System.currentTimeMillis());
+        assertEquals(4, stats.getRequests());
+        assertEquals(1, stats.getConnectionsOpened());
+        assertEquals(3, stats.getConnectionsReused());
+        assertEquals(0.75f, stats.getReuseRate());
+        assertEquals("No TLS", 0, stats.getHandshakesAvoided());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.Travis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Travis
+public class HttpConnectionUtilsTest extends InstrumentationTestCase {
+    private static final String TEXT;
+    static {
+        StringBuilder builder = new StringBuilder("[");
+        for (int ind = 0; ind < 200; ind++) {
+            builder.append("{\"id\":" + ind + ",\"text\":\"Message number " + ind + "\"},");
+        }
+        TEXT = builder.append("{}]").toString();
+    }
+
+    public void testIdentity() throws IOException {
+        HttpReadResult result = newResult();
+        byte[] bytes = TEXT.getBytes(HttpConnectionUtils.UTF_8);
+        assertEquals(TEXT, HttpConnectionUtils.readStreamToString(result, new ByteArrayInputStream(bytes), null));
+        assertEquals(bytes.length, result.getReceivedBytes());
+        assertEquals(bytes.length, result.getDecodedBytes());
+    }
+
+    public void testGzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(new GZIPOutputStream(out));
+        assertDecoded(out.toByteArray(), "gzip");
+    }
+
+    public void testDeflate() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(new DeflaterOutputStream(out));
+        assertDecoded(out.toByteArray(), "deflate");
+    }
+
+    public void testRawDeflate() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true)));
+        assertDecoded(out.toByteArray(), "Deflate");
+    }
+
+    private void write(OutputStream out) throws IOException {
+        out.write(TEXT.getBytes(HttpConnectionUtils.UTF_8));
+        out.close();
+    }
+
+    private void assertDecoded(byte[] encoded, String contentEncoding) throws IOException {
+        HttpReadResult result = newResult();
+        assertEquals(TEXT, HttpConnectionUtils.readStreamToString(result,
+                new ByteArrayInputStream(encoded), contentEncoding));
+        assertEquals(encoded.length, result.getReceivedBytes());
+        assertEquals(TEXT.getBytes(HttpConnectionUtils.UTF_8).length, result.getDecodedBytes());
+        assertTrue(result.toString(), result.getReceivedBytes() < result.getDecodedBytes());
+    }
+
+    private HttpReadResult newResult() throws ConnectionException {
+        return new HttpReadResult("https://example.com/api/statuses/home_timeline.json");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.content.SharedPreferences;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+import java.util.Map;
+
+@Travis
+public class HttpValidatorsTest extends InstrumentationTestCase {
+    private static final String URL = "https://example.com/api/users/show.json?user_id=1";
+    private static final String ETAG = "\"737060cd8c284d8af7ad3082f209582d\"";
+    private static final String LAST_MODIFIED = "Wed, 27 Jul 2016 10:17:35 GMT";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        HttpValidators.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        HttpValidators.clear();
+        super.tearDown();
+    }
+
+    public void testConditionalRequest() throws ConnectionException {
+        HttpReadResult result = new HttpReadResult(URL).setConditional(URL);
+        assertTrue(result.getConditionalHeaders().isEmpty());
+        result.setStatusCode(200);
+        result.setValidatorsReceived(ETAG, LAST_MODIFIED);
+        result.parseAndThrow();
+        result.saveValidators();
+
+        result = new HttpReadResult(URL).setConditional(URL);
+        Map<String, String> headers = result.getConditionalHeaders();
+        assertEquals(ETAG, headers.get("If-None-Match"));
+        assertEquals(LAST_MODIFIED, headers.get("If-Modified-Since"));
+        result.setStatusCode(304);
+        try {
+            result.parseAndThrow();
+            fail("Not modified should be thrown: " + result);
+        } catch (ConnectionException e) {
+            assertEquals(StatusCode.NOT_MODIFIED, e.getStatusCode());
+            assertFalse(e.isHardError());
+        }
+
+        result = new HttpReadResult(URL);
+        assertTrue("Not a conditional request", result.getConditionalHeaders().isEmpty());
+
+        result = new HttpReadResult(URL).setConditional(URL);
+        result.setStatusCode(200);
+        result.setValidatorsReceived("", "");
+        result.saveValidators();
+        assertNull("Response without validators", HttpValidators.get(URL));
+    }
+
+    public void testLeastRecentlyUsedEvicted() {
+        for (int ind = 0; ind < HttpValidators.MAX_SIZE; ind++) {
+            HttpValidators.put(URL + ind, ETAG + ind, "");
+        }
+        HttpValidators.onNotModified(URL + 0);
+        HttpValidators.put(URL + "new", ETAG, LAST_MODIFIED);
+        assertEquals(HttpValidators.MAX_SIZE, HttpValidators.size());
+        assertNotNull("Recently used", HttpValidators.get(URL + 0));
+        assertNull("Least recently used", HttpValidators.get(URL + 1));
+        assertEquals(ETAG + 2, HttpValidators.get(URL + 2).eTag);
+        assertEquals(LAST_MODIFIED, HttpValidators.get(URL + "new").lastModified);
+    }
+
+    public void testPersistedInBatches() {
+        SharedPreferences sp = SharedPreferencesUtil.getSharedPreferences(HttpValidators.PREFS_FILE_NAME);
+        HttpValidators.put(URL, ETAG, LAST_MODIFIED);
+        HttpValidators.put(URL + 1, ETAG, "");
+        assertFalse("Not persisted yet", sp.contains(URL));
+        HttpValidators.persist();
+        assertTrue(sp.contains(URL));
+        assertTrue(sp.contains(URL + 1));
+
+        HttpValidators.put(URL + 1, "", "");
+        HttpValidators.onNotModified(URL);
+        HttpValidators.persist();
+        assertFalse("Removed", sp.contains(URL + 1));
+
+        HttpValidators.forget();
+        assertEquals(ETAG, HttpValidators.get(URL).eTag);
+        assertNull(HttpValidators.get(URL + 1));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.Travis;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+@Travis
+public class JsonArrayReaderTest extends InstrumentationTestCase {
+    private static final String ITEM1 = "{\"id\":12345678901234,\"text\":\"Text1\",\"truncated\":false,"
+            + "\"geo\":null,\"ratio\":0.5,\"user\":{\"id\":1,\"screen_name\":\"author1\"},\"tags\":[\"a\",\"b\"]}";
+    private static final String ITEM2 = "{\"id\":2,\"text\":\"Text2 \\\"quoted\\\" \\u00e9\"}";
+
+    public void testArrayAtRoot() throws IOException, JSONException {
+        assertSameAsTree("[" + ITEM1 + "," + ITEM2 + "]", 2);
+    }
+
+    public void testItemsInObject() throws IOException, JSONException {
+        assertSameAsTree("{\"displayName\":\"Inbox\",\"objectTypes\":[\"activity\"],"
+                + "\"items\":[" + ITEM1 + "," + ITEM2 + "],\"links\":{\"next\":\"https://example.com\"}}", 2);
+    }
+
+    public void testFirstArrayInObject() throws IOException, JSONException {
+        assertSameAsTree("{\"count\":1,\"statuses\":[" + ITEM2 + "],\"other\":[" + ITEM1 + "]}", 1);
+    }
+
+    public void testEmpty() throws IOException, JSONException {
+        assertSameAsTree("", 0);
+        assertSameAsTree("[]", 0);
+    }
+
+    private void assertSameAsTree(String response, int size) throws IOException, JSONException {
+        final List<JSONObject> streamed = new ArrayList<>();
+        int count = new JsonArrayReader(new JsonObjectConsumer() {
+            @Override
+            public void accept(JSONObject jso) {
+                streamed.add(jso);
+            }
+        }).read(new StringReader(response));
+        assertEquals(size, count);
+        assertEquals(size, streamed.size());
+
+        HttpReadResult result = new HttpReadResult("https://example.com/timeline.json");
+        result.strResponse = response;
+        JSONArray jsa = result.getJsonArray();
+        assertEquals(size, jsa.length());
+        for (int index = 0; index < size; index++) {
+            assertEquals("Object " + index, jsa.getJSONObject(index).toString(), streamed.get(index).toString());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.util.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+@Travis
+public class PartialDownloadTest extends InstrumentationTestCase {
+    private static final String URL = "https://example.com/media/video.mp4";
+    private static final String LAST_MODIFIED = "Tue, 10 Jun 2003 04:00:00 GMT";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testRangeHeaders() throws ConnectionException {
+        HttpReadResult result = new HttpReadResult(URL, null)
+                .setPartialDownload(new PartialDownload(0, "\"abc\""));
+        assertTrue("Nothing to resume", result.getConditionalHeaders().isEmpty());
+
+        result = new HttpReadResult(URL, null).setPartialDownload(new PartialDownload(1000, ""));
+        assertTrue("No validator", result.getConditionalHeaders().isEmpty());
+
+        result = new HttpReadResult(URL, null).setPartialDownload(new PartialDownload(1000, "\"abc\""));
+        Map<String, String> headers = result.getConditionalHeaders();
+        assertEquals("bytes=1000-", headers.get("Range"));
+        assertEquals("\"abc\"", headers.get("If-Range"));
+        assertEquals("identity", headers.get("Accept-Encoding"));
+    }
+
+    public void testValidatorsReceived() throws ConnectionException {
+        PartialDownload partialDownload = new PartialDownload(0, "");
+        HttpReadResult result = new HttpReadResult(URL, null).setPartialDownload(partialDownload);
+        result.setStatusCode(200);
+        result.setValidatorsReceived("\"abc\"", LAST_MODIFIED);
+        assertEquals("Strong ETag", "\"abc\"", partialDownload.getValidator());
+
+        result.setValidatorsReceived("W/\"abc\"", LAST_MODIFIED);
+        assertEquals("Weak ETag cannot be used", LAST_MODIFIED, partialDownload.getValidator());
+
+        result.setStatusCode(500);
+        result.setValidatorsReceived("", "");
+        assertEquals("Validators of errors are ignored", LAST_MODIFIED, partialDownload.getValidator());
+    }
+
+    public void testPartialContent() throws ConnectionException {
+        PartialDownload partialDownload = new PartialDownload(1000, "\"abc\"");
+        HttpReadResult result = new HttpReadResult(URL, null).setPartialDownload(partialDownload);
+        result.setStatusCode(206);
+        assertEquals(ConnectionException.StatusCode.PARTIAL_CONTENT, result.getStatusCode());
+        assertFalse("Range was not sent", result.isPartialContent());
+        result.getConditionalHeaders();
+        assertTrue(result.isPartialContent());
+        result.parseAndThrow();
+
+        result.setStatusCode(200);
+        assertFalse("The file was changed, it is sent from the beginning", result.isPartialContent());
+
+        result = new HttpReadResult(URL, null).setPartialDownload(partialDownload);
+        result.setStatusCode(416);
+        try {
+            result.parseAndThrow();
+            fail("Exception expected");
+        } catch (ConnectionException e) {
+            assertEquals(ConnectionException.StatusCode.RANGE_NOT_SATISFIABLE, e.getStatusCode());
+            assertFalse("We can retry from the beginning", e.isHardError());
+        }
+    }
+
+    public void testPartialContentWithoutValidators() throws ConnectionException {
+        PartialDownload partialDownload = new PartialDownload(1000, "\"abc\"");
+        HttpReadResult result = new HttpReadResult(URL, null).setPartialDownload(partialDownload);
+        assertEquals("bytes=1000-", result.getConditionalHeaders().get("Range"));
+        result.setStatusCode(206);
+        result.setValidatorsReceived(null, null);
+        assertEquals("Validator of the request is kept", "\"abc\"", partialDownload.getValidator());
+        assertTrue("The rest of the file is appended", result.isPartialContent());
+
+        result = new HttpReadResult(URL, null).setPartialDownload(partialDownload);
+        result.getConditionalHeaders();
+        result.setStatusCode(200);
+        result.setValidatorsReceived(null, null);
+        assertEquals("The whole file without validators", "", partialDownload.getValidator());
+        assertFalse(result.isPartialContent());
+    }
+
+    public void testAppendToFile() throws IOException {
+        File file = File.createTempFile("partial", ".tmp",
+                getInstrumentation().getTargetContext().getCacheDir());
+        try {
+            FileUtils.readStreamToFile(new ByteArrayInputStream(new byte[] {1, 2, 3}), file);
+            FileUtils.readStreamToFile(new ByteArrayInputStream(new byte[] {4, 5}), file, true);
+            assertEquals(5, file.length());
+            FileUtils.readStreamToFile(new ByteArrayInputStream(new byte[] {6}), file, false);
+            assertEquals(1, file.length());
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+}
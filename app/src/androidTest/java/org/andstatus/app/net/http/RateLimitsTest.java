@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.social.MbRateLimitStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Travis
+public class RateLimitsTest extends InstrumentationTestCase {
+    private static final String ACCOUNT = "user1/twitter";
+    private static final String URL = "https://api.twitter.com/1.1/statuses/home_timeline.json?count=200";
+    private static final String ENDPOINT = "/1.1/statuses/home_timeline.json";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+        RateLimits.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        RateLimits.clear();
+        super.tearDown();
+    }
+
+    public void testUnknownEndpoint() {
+        assertEquals(ENDPOINT, RateLimits.toEndpoint(URL));
+        RateLimits.onResponse(ACCOUNT, URL, StatusCode.OK, new HashMap<String, String>());
+        assertEquals(0, RateLimits.getDelayMillis(ACCOUNT, ENDPOINT, false));
+        assertEquals(0, RateLimits.getDelayMillis(ACCOUNT, "", false));
+    }
+
+    public void testReservedForUser() {
+        long resetAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10);
+        Map<String, String> headers = new HashMap<>();
+        headers.put(RateLimits.normalizeHeaderName("X-Rate-Limit-Limit"), "15");
+        headers.put(RateLimits.normalizeHeaderName("X-RateLimit-Remaining"), "4");
+        headers.put(RateLimits.HEADER_RESET, Long.toString(TimeUnit.MILLISECONDS.toSeconds(resetAt)));
+        RateLimits.onResponse(ACCOUNT, URL, StatusCode.OK, headers);
+        assertEquals(0, RateLimits.getDelayMillis(ACCOUNT, ENDPOINT, false));
+        assertEquals(0, RateLimits.getDelayMillis("user2/twitter", ENDPOINT, false));
+
+        RateLimits.onResponse(ACCOUNT, URL, StatusCode.OK, new HashMap<String, String>());
+        RateLimits.onResponse(ACCOUNT, URL, StatusCode.OK, new HashMap<String, String>());
+        long delay = RateLimits.getDelayMillis(ACCOUNT, ENDPOINT, false);
+        assertTrue("Background deferred till reset: " + delay, delay > TimeUnit.MINUTES.toMillis(9));
+        assertEquals("Reserved for the User", 0, RateLimits.getDelayMillis(ACCOUNT, ENDPOINT, true));
+    }
+
+    public void testTooManyRequests() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(RateLimits.HEADER_RETRY_AFTER, "60");
+        RateLimits.onResponse(ACCOUNT, URL, StatusCode.TOO_MANY_REQUESTS, headers);
+        long delay = RateLimits.getDelayMillis(ACCOUNT, ENDPOINT, true);
+        assertTrue("Deferred: " + delay, delay > TimeUnit.SECONDS.toMillis(50)
+                && delay <= TimeUnit.SECONDS.toMillis(60));
+    }
+
+    public void testRateLimitStatus() {
+        MbRateLimitStatus status = new MbRateLimitStatus();
+        status.limit = 15;
+        status.remaining = 0;
+        status.resetTime = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5);
+        RateLimits.onRateLimitStatus(ACCOUNT, ENDPOINT, status);
+        assertTrue(RateLimits.getDelayMillis(ACCOUNT, ENDPOINT, true) > TimeUnit.MINUTES.toMillis(4));
+
+        status.resetTime = System.currentTimeMillis() - 1000;
+        RateLimits.onRateLimitStatus(ACCOUNT, ENDPOINT, status);
+        assertTrue("Refilled gradually", RateLimits.getDelayMillis(ACCOUNT, ENDPOINT, true) > 0);
+    }
+}
@@ -128,6 +128,21 @@ public class ConnectionGnuSocialTest extends InstrumentationTestCase {
         assertEquals("Number of items in the Timeline", size, timeline.size());
     }
 
+    public void testGetConversation() throws IOException {
+        String jso = RawResourceUtils.getString(this.getInstrumentation().getContext(),
+                org.andstatus.app.tests.R.raw.quitter_home);
+        connection.getHttpMock().setResponse(jso);
+
+        assertTrue(connection.isApiSupported(ApiRoutineEnum.GET_CONVERSATION));
+        List<MbTimelineItem> timeline = connection.getConversation("2218650");
+        assertTrue("Requested '" + connection.getHttpMock().getResults().get(0).getUrl() + "'",
+                connection.getHttpMock().getResults().get(0).getUrl().contains("statusnet/conversation/2218650"));
+        assertEquals("Number of items in the conversation", 3, timeline.size());
+        for (MbTimelineItem item : timeline) {
+            assertEquals("Conversation of " + item.mbMessage, "2218650", item.mbMessage.conversationOid);
+        }
+    }
+
     public void testPostWithMedia() throws IOException {
         String jso = RawResourceUtils.getString(this.getInstrumentation().getContext(), 
                 org.andstatus.app.tests.R.raw.quitter_message_with_attachment);
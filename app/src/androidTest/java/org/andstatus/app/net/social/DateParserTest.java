@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.social;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.RawResourceUtils;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Travis
+public class DateParserTest extends InstrumentationTestCase {
+    private static final Pattern DATE_FIELD = Pattern.compile(
+            "\"(created_at|published|updated)\"\\s*:\\s*\"([^\"]+)\"");
+    private static final int[] RFC822_FIXTURES = {
+            org.andstatus.app.tests.R.raw.quitter_home,
+            org.andstatus.app.tests.R.raw.quitter_message_with_attachment,
+            org.andstatus.app.tests.R.raw.quitter_update_status_response,
+            org.andstatus.app.tests.R.raw.twitter_home_timeline,
+            org.andstatus.app.tests.R.raw.twitter_message_with_media,
+            org.andstatus.app.tests.R.raw.verify_credentials_twitter};
+    private static final int[] ISO8601_FIXTURES = {
+            org.andstatus.app.tests.R.raw.destroy_status_response_pumpio,
+            org.andstatus.app.tests.R.raw.pumpio_activity_with_image,
+            org.andstatus.app.tests.R.raw.pumpio_note_self,
+            org.andstatus.app.tests.R.raw.pumpio_replies,
+            org.andstatus.app.tests.R.raw.pumpio_user_timeline,
+            org.andstatus.app.tests.R.raw.unfollow_pumpio,
+            org.andstatus.app.tests.R.raw.user_t131t_following,
+            org.andstatus.app.tests.R.raw.user_t131t_inbox};
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testRfc822() {
+        assertEquals(TestSuite.utcTime(2014, Calendar.OCTOBER, 24, 20, 34, 38).getTime(),
+                DateParser.parseRfc822("Fri Oct 24 13:34:38 -0700 2014"));
+        assertEquals(TestSuite.utcTime(2013, Calendar.SEPTEMBER, 26, 18, 23, 5).getTime(),
+                DateParser.parseRfc822("Thu Sep 26 22:23:05 GMT+04:00 2013"));
+        assertEquals(TestSuite.utcTime(2003, Calendar.JUNE, 10, 4, 0, 0).getTime(),
+                DateParser.parseRfc822("Tue, 10 Jun 2003 04:00:00 GMT"));
+        assertEquals(TestSuite.utcTime(2016, Calendar.FEBRUARY, 29, 0, 30, 0).getTime(),
+                DateParser.parseRfc822("Mon Feb 29 01:30:00 +0100 2016"));
+        assertEquals(0, DateParser.parseRfc822("Wrong Date Format"));
+        assertEquals(0, DateParser.parseRfc822("Fri Oct 24 13:34:38 PDT 2014"));
+        assertEquals(0, DateParser.parseRfc822("2013-09-12T17:10:44Z"));
+        assertEquals(0, DateParser.parseRfc822(""));
+        assertEquals(0, DateParser.parseRfc822(null));
+    }
+
+    public void testIso8601() {
+        long expected = TestSuite.utcTime(2013, Calendar.SEPTEMBER, 12, 17, 10, 44).getTime();
+        assertEquals(expected, DateParser.parseIso8601("2013-09-12T17:10:44Z"));
+        assertEquals(expected, DateParser.parseIso8601("2013-09-12T20:10:44+03:00"));
+        assertEquals(expected, DateParser.parseIso8601("2013-09-12T14:10:44-0300"));
+        assertEquals(expected + 123, DateParser.parseIso8601("2013-09-12T17:10:44.123456Z"));
+        assertEquals(0, DateParser.parseIso8601("2013-09-12T17:10:44"));
+        assertEquals(0, DateParser.parseIso8601("Wed Nov 27 09:27:01 -0300 2013"));
+        assertEquals(0, DateParser.parseIso8601(null));
+    }
+
+    /** Dates of the raw JSON fixtures are parsed the same way, as by the {@link SimpleDateFormat} */
+    public void testCorpus() throws IOException, ParseException {
+        SimpleDateFormat rfc822 = new SimpleDateFormat("E MMM d HH:mm:ss Z yyyy", Locale.ENGLISH);
+        for (String date : readDates(RFC822_FIXTURES)) {
+            assertEquals(date, rfc822.parse(date).getTime(), DateParser.parseRfc822(date));
+        }
+        SimpleDateFormat iso8601 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.GERMANY);
+        for (String date : readDates(ISO8601_FIXTURES)) {
+            assertEquals(date, iso8601.parse(date.replace("Z", "+0000")).getTime(), DateParser.parseIso8601(date));
+        }
+    }
+
+    /** Replaces a JMH benchmark, which cannot run on a device: logs nanoseconds per parsed date */
+    public void testSpeed() throws IOException, ParseException {
+        List<String> dates = readDates(RFC822_FIXTURES);
+        final int iterations = 200;
+        long startedAt = System.nanoTime();
+        long sum = 0;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (String date : dates) {
+                sum += new SimpleDateFormat("E MMM d HH:mm:ss Z yyyy", Locale.ENGLISH).parse(date).getTime();
+            }
+        }
+        long oldNanos = (System.nanoTime() - startedAt) / (iterations * dates.size());
+        startedAt = System.nanoTime();
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (String date : dates) {
+                sum -= DateParser.parseRfc822(date);
+            }
+        }
+        long newNanos = (System.nanoTime() - startedAt) / (iterations * dates.size());
+        assertEquals(0, sum);
+        String message = "SimpleDateFormat: " + oldNanos + " ns/date, DateParser: " + newNanos + " ns/date";
+        MyLog.i(this, message);
+        assertTrue(message, newNanos < oldNanos);
+    }
+
+    private List<String> readDates(int[] fixtures) throws IOException {
+        List<String> dates = new ArrayList<>();
+        for (int fixture : fixtures) {
+            Matcher matcher = DATE_FIELD.matcher(RawResourceUtils.getString(
+                    getInstrumentation().getContext(), fixture));
+            while (matcher.find()) {
+                dates.add(matcher.group(2));
+            }
+        }
+        assertTrue("Dates found", dates.size() > 10);
+        return dates;
+    }
+}
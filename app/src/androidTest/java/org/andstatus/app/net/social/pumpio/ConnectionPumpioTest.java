@@ -34,6 +34,7 @@ import org.andstatus.app.net.social.MbAttachment;
 import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.MbTimelineItem;
 import org.andstatus.app.net.social.MbUser;
+import org.andstatus.app.net.social.TimelineItemConsumer;
 import org.andstatus.app.net.social.TimelinePosition;
 import org.andstatus.app.net.social.pumpio.ConnectionPumpio.ConnectionAndUrl;
 import org.andstatus.app.origin.OriginConnectionData;
@@ -47,7 +48,9 @@ import org.json.JSONObject;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 
 @Travis
@@ -218,6 +221,42 @@ public class ConnectionPumpioTest extends InstrumentationTestCase {
         assertEquals(mbMessage.inReplyToMessage.isSubscribed(), TriState.FALSE);
     }
 
+    public void testGetTimelineStreamed() throws IOException {
+        String jso = RawResourceUtils.getString(this.getInstrumentation().getContext(),
+                org.andstatus.app.tests.R.raw.user_t131t_inbox);
+        httpConnectionMock.setResponse(jso);
+        String userOid = "acct:t131t@" + originUrl.getHost();
+        List<MbTimelineItem> timeline = connection.getTimeline(ApiRoutineEnum.STATUSES_HOME_TIMELINE,
+                TimelinePosition.getEmpty(), 20, userOid);
+
+        final List<MbTimelineItem> streamed = new ArrayList<>();
+        connection.getTimeline(ApiRoutineEnum.STATUSES_HOME_TIMELINE, TimelinePosition.getEmpty(), 20, userOid,
+                new TimelineItemConsumer() {
+                    @Override
+                    public void accept(MbTimelineItem item) {
+                        streamed.add(item);
+                    }
+                });
+        assertEquals("Number of items streamed", timeline.size(), streamed.size());
+        // Items are streamed in the order of the response, i.e. newest first
+        Collections.reverse(streamed);
+        for (int ind = 0; ind < timeline.size(); ind++) {
+            MbTimelineItem item = timeline.get(ind);
+            MbTimelineItem itemStreamed = streamed.get(ind);
+            assertEquals("Item " + ind, item.getType(), itemStreamed.getType());
+            assertEquals("Item " + ind, item.timelineItemPosition.getPosition(),
+                    itemStreamed.timelineItemPosition.getPosition());
+            assertEquals("Item " + ind, item.timelineItemDate, itemStreamed.timelineItemDate);
+            if (item.getType() == MbTimelineItem.ItemType.MESSAGE) {
+                assertEquals("Item " + ind, item.mbMessage.oid, itemStreamed.mbMessage.oid);
+                assertEquals("Item " + ind, item.mbMessage.getBody(), itemStreamed.mbMessage.getBody());
+                assertEquals("Item " + ind, item.mbMessage.sentDate, itemStreamed.mbMessage.sentDate);
+            } else {
+                assertEquals("Item " + ind, item.mbUser.oid, itemStreamed.mbUser.oid);
+            }
+        }
+    }
+
     public void testGetUsersFollowedBy() throws IOException {
         String jso = RawResourceUtils.getString(this.getInstrumentation().getContext(), 
                 org.andstatus.app.tests.R.raw.user_t131t_following);
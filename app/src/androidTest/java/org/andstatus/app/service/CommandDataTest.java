@@ -25,6 +25,7 @@ import org.andstatus.app.context.Travis;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.MyLog;
 
 import java.util.Queue;
@@ -124,6 +125,20 @@ public class CommandDataTest extends InstrumentationTestCase {
         assertEquals(CommandEnum.FETCH_TIMELINE, queue.poll().getCommand());
     }
     
+    public void testExecutionKey() {
+        MyAccount ma = TestSuite.getConversationMyAccount();
+        MyAccount ma2 = TestSuite.getMyAccount(TestSuite.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        String key = CommandData.newUpdateStatus(ma, 1).getExecutionKey();
+        assertEquals("Same account", key, CommandData.newTimelineCommand(CommandEnum.FETCH_TIMELINE, ma,
+                TimelineType.MENTIONS).getExecutionKey());
+        assertFalse("Other account", key.equals(CommandData.newTimelineCommand(CommandEnum.FETCH_TIMELINE, ma2,
+                TimelineType.MENTIONS).getExecutionKey()));
+        String attachmentKey = CommandData.newFetchAttachment(1, 2).getExecutionKey();
+        assertEquals("Same download type", attachmentKey, CommandData.newFetchAttachment(3, 4).getExecutionKey());
+        assertFalse("Other download type", attachmentKey.equals(CommandData.newUserCommand(CommandEnum.FETCH_AVATAR,
+                ma.getOrigin(), ma.getUserId(), ma.getUsername()).getExecutionKey()));
+    }
+
     public void testSummary() {
         followUnfollowSummary(CommandEnum.FOLLOW_USER);
         followUnfollowSummary(CommandEnum.STOP_FOLLOWING_USER);
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DownloadData;
+import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.data.MessageInserter;
+import org.andstatus.app.data.MyContentType;
+import org.andstatus.app.net.social.MbAttachment;
+import org.andstatus.app.net.social.MbMessage;
+import org.andstatus.app.util.MyLog;
+
+import java.net.URL;
+
+@Travis
+public class DownloadEngineTest extends InstrumentationTestCase {
+    private static final String IMAGE_URL =
+            "http://www.publicdomainpictures.net/pictures/60000/nahled/landscape-1376582205Yno.jpg";
+    private MyAccount ma;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+        ma = MyContextHolder.get().persistentAccounts().fromAccountName(TestSuite.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        assertTrue(TestSuite.GNUSOCIAL_TEST_ACCOUNT_NAME + " exists", ma.isValid());
+    }
+
+    public void testPriority() {
+        DownloadEngine.Request background = new DownloadEngine.Request("http://example.com/1.png", "example.com");
+        background.priority = DownloadEngine.Priority.BACKGROUND;
+        background.sequence = 1;
+        DownloadEngine.Request onScreen = new DownloadEngine.Request("http://example.com/2.png", "example.com");
+        onScreen.priority = DownloadEngine.Priority.ON_SCREEN;
+        onScreen.sequence = 2;
+        assertTrue("Rows on screen first", onScreen.compareTo(background) < 0);
+        onScreen.priority = DownloadEngine.Priority.BACKGROUND;
+        assertTrue("Then in the order of requests", onScreen.compareTo(background) > 0);
+    }
+
+    public void testSharedBlobOfTheSameUrl() throws Exception {
+        DownloadData data1 = addMessageWithImage("First message with the image");
+        DownloadData data2 = addMessageWithImage("Second message with the same image");
+        AttachmentDownloaderTest.loadAndAssertStatusForRow(data1.getDownloadId(), DownloadStatus.LOADED, false);
+        data1 = DownloadData.fromId(data1.getDownloadId());
+
+        FileDownloader downloader = FileDownloader.newForDownloadRow(data2.getDownloadId())
+                .setSharedBlob(data1.getFile());
+        CommandData commandData = CommandData.newCommand(CommandEnum.FETCH_ATTACHMENT);
+        downloader.load(commandData);
+        assertFalse(commandData.toString(), commandData.getResult().hasError());
+        data2 = DownloadData.fromId(data2.getDownloadId());
+        assertEquals(DownloadStatus.LOADED, data2.getStatus());
+        assertEquals("The same content is stored once", data1.getFilename(), data2.getFilename());
+        assertEquals("Size of the shared file", data1.getFile().getSize(), data2.getFile().getSize());
+    }
+
+    public void testCoalesced() throws Exception {
+        DownloadData data1 = addMessageWithImage("Third message with the image");
+        DownloadData data2 = addMessageWithImage("Fourth message with the same image");
+        assertTrue(DownloadEngine.enqueue(data1, DownloadEngine.Priority.BACKGROUND));
+        assertTrue(DownloadEngine.enqueue(data2, DownloadEngine.Priority.ON_SCREEN));
+        for (int attempt = 0; attempt < 60; attempt++) {
+            if (DownloadData.fromId(data1.getDownloadId()).getStatus() == DownloadStatus.LOADED
+                    && DownloadData.fromId(data2.getDownloadId()).getStatus() == DownloadStatus.LOADED) {
+                break;
+            }
+            DbUtils.waitMs("testCoalesced", 500);
+        }
+        String stats = DownloadEngine.getStats();
+        MyLog.i(this, stats);
+        assertEquals(stats, DownloadStatus.LOADED, DownloadData.fromId(data1.getDownloadId()).getStatus());
+        assertEquals(stats, DownloadStatus.LOADED, DownloadData.fromId(data2.getDownloadId()).getStatus());
+        assertEquals(stats, 0, DownloadEngine.getQueueSize());
+    }
+
+    private DownloadData addMessageWithImage(String body) throws Exception {
+        MessageInserter mi = new MessageInserter(ma);
+        MbMessage message = mi.buildMessage(mi.buildUser(), body, null, null, DownloadStatus.LOADED);
+        message.attachments.add(MbAttachment.fromUrlAndContentType(new URL(IMAGE_URL), MyContentType.IMAGE));
+        long msgId = mi.addMessage(message);
+        DownloadData data = DownloadData.getSingleForMessage(msgId, MyContentType.IMAGE, null);
+        assertTrue(data.getDownloadId() != 0);
+        return data;
+    }
+}
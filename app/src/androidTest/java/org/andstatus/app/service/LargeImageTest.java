@@ -15,6 +15,7 @@ package org.andstatus.app.service;
  * limitations under the License.
  */
 
+import android.graphics.Point;
 import android.graphics.drawable.Drawable;
 import android.test.InstrumentationTestCase;
 
@@ -26,10 +27,12 @@ import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.data.MessageInserter;
 import org.andstatus.app.data.MyContentType;
+import org.andstatus.app.graphics.ImageThumbnails;
 import org.andstatus.app.net.social.ConnectionTwitterGnuSocialMock;
 import org.andstatus.app.net.social.MbAttachment;
 import org.andstatus.app.net.social.MbMessage;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -48,6 +51,21 @@ public class LargeImageTest extends InstrumentationTestCase {
         loadingTest(dd);
     }
 
+    public void testThumbnailMadeAtDownload() throws IOException {
+        DownloadData dd = insertMessage();
+        assertTrue("Image size stored " + dd, dd.getWidth() > 0 && dd.getHeight() > 0);
+        File thumbnail = ImageThumbnails.getThumbnail(dd.getFile().getFile(), false);
+        assertTrue("Thumbnail exists " + thumbnail, thumbnail.exists());
+        Point thumbnailSize = ImageThumbnails.getImageSize(thumbnail);
+        assertTrue("Thumbnail " + thumbnailSize + " is smaller than the image",
+                thumbnailSize.x < dd.getWidth() && thumbnailSize.y < dd.getHeight());
+
+        AttachedImageFile imageFile = new AttachedImageFile(dd.getDownloadId(), dd.getFilename());
+        imageFile.setSize(dd.getWidth(), dd.getHeight());
+        assertEquals(new Point(dd.getWidth(), dd.getHeight()), imageFile.getSize());
+    }
+
+    /** Each time the URL is new, so the image is downloaded, not found among loaded already */
     private DownloadData insertMessage() throws IOException {
         String body = "Large image attachment";
         MessageInserter mi = new MessageInserter(MyContextHolder.get().persistentAccounts()
@@ -57,7 +75,8 @@ public class LargeImageTest extends InstrumentationTestCase {
                 .add(MbAttachment
                         .fromUrlAndContentType(
                                 new URL(
-                                        "http://www.example.com/pictures/large_image.png"),
+                                        "http://www.example.com/pictures/" + System.nanoTime()
+                                                + "/large_image.png"),
                                 MyContentType.IMAGE));
         long msgId = mi.addMessage(message);
         
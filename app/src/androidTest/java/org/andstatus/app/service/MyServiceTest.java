@@ -175,6 +175,27 @@ public class MyServiceTest extends InstrumentationTestCase {
         MyLog.v(this, "testRateLimitStatus ended");
     }
     
+    public void testCommandsOfDifferentAccountsInParallel() {
+        final String method = "testCommandsOfDifferentAccountsInParallel";
+        MyLog.v(this, method + " started");
+        CommandData cd1 = CommandData.newAccountCommand(CommandEnum.RATE_LIMIT_STATUS,
+                TestSuite.getMyAccount(TestSuite.GNUSOCIAL_TEST_ACCOUNT_NAME));
+        CommandData cd2 = CommandData.newAccountCommand(CommandEnum.RATE_LIMIT_STATUS,
+                TestSuite.getMyAccount(TestSuite.TWITTER_TEST_ACCOUNT_NAME));
+        assertFalse("Execution keys should differ", cd1.getExecutionKey().equals(cd2.getExecutionKey()));
+        mService.maxExecutingAtOnce.set(0);
+        mService.setListenedCommand(cd2);
+        long endCount = mService.executionEndCount;
+
+        MyServiceManager.sendCommandEvenForUnavailable(cd1);
+        mService.sendListenedToCommand();
+        assertTrue("Second command ended executing", mService.waitForCommandExecutionEnded(endCount));
+        assertTrue("Service stopped", mService.waitForServiceStopped(true));
+        assertEquals("Commands executed at the same time; " + mService.httpConnectionMock.toString(),
+                2, mService.maxExecutingAtOnce.get());
+        MyLog.v(this, method + " ended");
+    }
+
     public void testSyncInForeground() throws InterruptedException {
         final String method = "testSyncInForeground";
         MyLog.v(this, method + " started");
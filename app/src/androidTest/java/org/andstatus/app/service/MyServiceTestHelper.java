@@ -15,6 +15,8 @@ import org.andstatus.app.net.http.HttpConnectionMock;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class MyServiceTestHelper implements MyServiceEventsListener {
     private volatile MyServiceEventsReceiver serviceConnector;
     public volatile HttpConnectionMock httpConnectionMock;
@@ -24,6 +26,9 @@ public class MyServiceTestHelper implements MyServiceEventsListener {
     public volatile long executionStartCount = 0;
     public volatile long executionEndCount = 0;
     public volatile boolean serviceStopped = false;
+    /** Commands of any kind, which are being executed now */
+    private final AtomicInteger executingNow = new AtomicInteger();
+    public final AtomicInteger maxExecutingAtOnce = new AtomicInteger();
     private MyContext myContext = MyContextHolder.get();
     
     public void setUp(String accountName) {
@@ -135,8 +140,13 @@ public class MyServiceTestHelper implements MyServiceEventsListener {
                     locEvent = "execution started";
                 }
                 serviceStopped = false;
+                int executing = executingNow.incrementAndGet();
+                if (executing > maxExecutingAtOnce.get()) {
+                    maxExecutingAtOnce.set(executing);
+                }
                 break;
             case AFTER_EXECUTING_COMMAND:
+                executingNow.decrementAndGet();
                 if (commandData.equals(getListenedCommand())) {
                     executionEndCount++;
                     locEvent = "execution ended";
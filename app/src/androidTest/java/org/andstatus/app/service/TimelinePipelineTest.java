@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.social.MbTimelineItem;
+import org.andstatus.app.net.social.TimelineItemConsumer;
+import org.andstatus.app.net.social.TimelinePosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Replays latencies of page requests to the pipelined download */
+@Travis
+public class TimelinePipelineTest extends InstrumentationTestCase {
+    private static final long[] PAGE_LATENCIES_MS = {420, 380, 510, 450, 390};
+    private static final int ITEMS_PER_PAGE = 20;
+    private static final long INSERT_MS = 20;
+    private static final long OVERLAP_TIMEOUT_MS = 10000;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testStagesOverlap() throws ConnectionException {
+        final CountDownLatch firstInserted = new CountDownLatch(1);
+        final AtomicBoolean insertedWhileFetching = new AtomicBoolean();
+        final TimelinePipeline.Fetcher pages = newFetcher(1);
+        final List<MbTimelineItem> inserted = new ArrayList<>();
+        new TimelinePipeline(TimelinePipeline.QUEUE_CAPACITY).run(new TimelinePipeline.Fetcher() {
+            @Override
+            public void fetch(TimelineItemConsumer consumer) throws ConnectionException {
+                pages.fetch(consumer);
+                try {
+                    // The next page is requested, while the first one is being inserted
+                    insertedWhileFetching.set(firstInserted.await(OVERLAP_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, new TimelineItemConsumer() {
+            @Override
+            public void accept(MbTimelineItem item) {
+                inserted.add(item);
+                firstInserted.countDown();
+            }
+        });
+        assertTrue("The first item should be inserted while fetching", insertedWhileFetching.get());
+        assertEquals(ITEMS_PER_PAGE, inserted.size());
+        assertOrdered(inserted);
+    }
+
+    public void testSmallQueue() throws ConnectionException {
+        List<MbTimelineItem> inserted = new ArrayList<>();
+        new TimelinePipeline(3).run(newFetcher(2), newInserter(inserted));
+        assertOrdered(inserted);
+    }
+
+    public void testFetchError() {
+        final TimelinePipeline.Fetcher pages = newFetcher(1);
+        List<MbTimelineItem> inserted = new ArrayList<>();
+        try {
+            new TimelinePipeline(TimelinePipeline.QUEUE_CAPACITY).run(new TimelinePipeline.Fetcher() {
+                @Override
+                public void fetch(TimelineItemConsumer consumer) throws ConnectionException {
+                    pages.fetch(consumer);
+                    throw new ConnectionException("Second page failed");
+                }
+            }, newInserter(inserted));
+            fail("Exception expected");
+        } catch (ConnectionException e) {
+            assertEquals("Second page failed", e.getMessage());
+        }
+        assertEquals("Items of the first page", ITEMS_PER_PAGE, inserted.size());
+    }
+
+    public void testInsertError() throws ConnectionException {
+        try {
+            new TimelinePipeline(2).run(newFetcher(PAGE_LATENCIES_MS.length), new TimelineItemConsumer() {
+                @Override
+                public void accept(MbTimelineItem item) {
+                    throw new IllegalStateException("Insert failed");
+                }
+            });
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Insert failed", e.getMessage());
+        }
+    }
+
+    private TimelinePipeline.Fetcher newFetcher(final int pages) {
+        return new TimelinePipeline.Fetcher() {
+            @Override
+            public void fetch(TimelineItemConsumer consumer) throws ConnectionException {
+                for (int page = 0; page < pages; page++) {
+                    sleep(PAGE_LATENCIES_MS[page]);
+                    for (int ind = 0; ind < ITEMS_PER_PAGE; ind++) {
+                        MbTimelineItem item = new MbTimelineItem();
+                        item.timelineItemPosition = new TimelinePosition(
+                                Integer.toString(page * ITEMS_PER_PAGE + ind));
+                        consumer.accept(item);
+                    }
+                }
+            }
+        };
+    }
+
+    private TimelineItemConsumer newInserter(final List<MbTimelineItem> inserted) {
+        return new TimelineItemConsumer() {
+            @Override
+            public void accept(MbTimelineItem item) {
+                sleep(INSERT_MS);
+                inserted.add(item);
+            }
+        };
+    }
+
+    private static void assertOrdered(List<MbTimelineItem> inserted) {
+        for (int ind = 0; ind < inserted.size(); ind++) {
+            assertEquals(Integer.toString(ind), inserted.get(ind).timelineItemPosition.getPosition());
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.user;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.net.social.MbUser;
+import org.andstatus.app.util.MyLog;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+@Travis
+public class UserListLoaderTest extends InstrumentationTestCase {
+    private MyAccount ma;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initializeWithData(this);
+        ma = MyContextHolder.get().persistentAccounts().fromAccountName(TestSuite.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+    }
+
+    public void testFollowersListLoader() {
+        long userId = MyQuery.oidToId(OidEnum.USER_OID, ma.getOriginId(), TestSuite.CONVERSATION_MEMBER_USER_OID);
+        assertTrue(userId != 0);
+        UserListLoader loader = new FollowersListLoader(UserListType.FOLLOWERS, ma, userId, false);
+        loadAndAssertMyFollowers(loader);
+    }
+
+    public void testUsersOfMessageListLoader() {
+        long msgId = MyQuery.oidToId(OidEnum.MSG_OID, ma.getOriginId(), TestSuite.CONVERSATION_MENTIONS_MESSAGE_OID);
+        assertTrue(msgId != 0);
+        UserListLoader loader = new UsersOfMessageListLoader(UserListType.USERS_OF_MESSAGE, ma, msgId, false);
+        loadAndAssertMyFollowers(loader);
+        assertEquals(loader.getList().toString(), 5, loader.size());
+    }
+
+    private void loadAndAssertMyFollowers(UserListLoader loader) {
+        long startedAt = System.nanoTime();
+        loader.load(null);
+        MyLog.i(this, loader + " loaded " + loader.size() + " items in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + " ms");
+        for (UserListViewItem item : loader.getList()) {
+            if (item.populated) {
+                assertEquals("My followers of " + item, MyQuery.getMyFollowersOf(item.getUserId()),
+                        item.myFollowers);
+            }
+        }
+    }
+
+    public void testManyUsers() {
+        final int size = 5000;
+        UserListLoader loader = new UserListLoader(UserListType.UNKNOWN, ma, 0, false) {
+            @Override
+            protected void loadInternal() {
+                for (long userId = 1; userId <= size; userId++) {
+                    MbUser mbUser = MbUser.fromOriginAndUserOid(ma.getOriginId(), "oid" + userId);
+                    mbUser.userId = userId;
+                    addUserToList(UserListViewItem.fromMbUser(mbUser));
+                }
+                for (long userId = 1; userId <= size; userId += 10) {
+                    MbUser mbUser = MbUser.fromOriginAndUserOid(ma.getOriginId(), "oid" + userId);
+                    mbUser.userId = userId;
+                    addUserToList(UserListViewItem.fromMbUser(mbUser));
+                }
+                MbUser userWithoutId = MbUser.fromOriginAndUserOid(ma.getOriginId(), "");
+                userWithoutId.setUserName("userWithoutId");
+                addUserToList(UserListViewItem.fromMbUser(userWithoutId));
+                addUserToList(UserListViewItem.fromMbUser(userWithoutId));
+            }
+        };
+        long startedAt = System.nanoTime();
+        loader.load(null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        MyLog.i(this, "Added " + loader.size() + " users in " + elapsedMillis + " ms");
+        assertEquals("Duplicates should be skipped", size + 1, loader.size());
+        assertTrue("Adding took " + elapsedMillis + " ms", elapsedMillis < 5000);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.content.ComponentCallbacks2;
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.context.Travis;
+
+@Travis
+public class MemoryGovernorTest extends InstrumentationTestCase {
+    private static final String NAME = "Test cache";
+
+    private static class TestConsumer implements MemoryGovernor.Consumer {
+        volatile float fraction = 1;
+        volatile long bytes = 1000;
+
+        @Override
+        public void trimMemory(float fraction) {
+            this.fraction = fraction;
+            bytes = (long) (bytes * fraction);
+        }
+
+        @Override
+        public long getBytesHeld() {
+            return bytes;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestSuite.initialize(this);
+    }
+
+    public void testTrimMemory() {
+        TestConsumer consumer = new TestConsumer();
+        MemoryGovernor.register(NAME, consumer);
+        try {
+            assertTrue(MemoryGovernor.getInfo(), MemoryGovernor.getInfo().contains(NAME));
+            MemoryGovernor.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+            assertEquals(0.5f, consumer.fraction);
+            assertEquals(500, consumer.getBytesHeld());
+            MemoryGovernor.onLowMemory();
+            assertEquals(0f, consumer.fraction);
+            assertEquals(0, consumer.getBytesHeld());
+        } finally {
+            MemoryGovernor.unregister(NAME);
+        }
+        assertFalse(MemoryGovernor.getInfo().contains(NAME));
+    }
+
+    public void testFractionToKeep() {
+        assertEquals(0.75f, MemoryGovernor.getFractionToKeep(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(0.5f, MemoryGovernor.getFractionToKeep(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(0f, MemoryGovernor.getFractionToKeep(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals(0.5f, MemoryGovernor.getFractionToKeep(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(0.25f, MemoryGovernor.getFractionToKeep(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND));
+        assertEquals(0f, MemoryGovernor.getFractionToKeep(ComponentCallbacks2.TRIM_MEMORY_MODERATE));
+        assertEquals(0f, MemoryGovernor.getFractionToKeep(ComponentCallbacks2.TRIM_MEMORY_COMPLETE));
+    }
+}
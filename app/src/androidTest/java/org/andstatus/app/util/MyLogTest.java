@@ -18,11 +18,14 @@ package org.andstatus.app.util;
 
 import android.test.InstrumentationTestCase;
 import android.text.TextUtils;
+import android.util.Log;
 
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.context.Travis;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Travis
 public class MyLogTest extends InstrumentationTestCase {
@@ -49,6 +52,7 @@ public class MyLogTest extends InstrumentationTestCase {
         MyLog.setLogToFile(true);
         assertFalse(TextUtils.isEmpty(MyLog.getLogFilename()));
         MyLog.v(this, method);
+        MyLog.flush();
         File file = MyLog.getFileInLogDir(MyLog.getLogFilename(), true);
         assertTrue(file.exists());
         
@@ -60,6 +64,22 @@ public class MyLogTest extends InstrumentationTestCase {
         assertFalse(file.exists());
     }
 
+    public void testLinesOrderAfterFlush() throws IOException {
+        final String method = "testLinesOrderAfterFlush";
+        MyLog.setLogToFile(true);
+        for (int ind = 0; ind < 1000; ind++) {
+            MyLog.v(this, method + " line " + ind);
+        }
+        MyLog.flush();
+        String content = new String(FileUtils.getBytes(
+                MyLog.getFileInLogDir(MyLog.getLogFilename(), true)), "UTF-8");
+        MyLog.setLogToFile(false);
+        int indFirst = content.indexOf(method + " line 0\n");
+        int indLast = content.indexOf(method + " line 999\n");
+        assertTrue(MyLog.getLogFileInfo(), indFirst >= 0);
+        assertTrue(MyLog.getLogFileInfo(), indLast > indFirst);
+    }
+
     public void testUniqueDateTimeFormatted() {
         String string1 = "";
         String string2 = "";
@@ -76,4 +96,42 @@ public class MyLogTest extends InstrumentationTestCase {
         }
         MyLog.v("testUniqueDateTimeFormatted", string1 + " " + string2);
     }
+
+    public void testMessageSupplier() {
+        final AtomicInteger calls = new AtomicInteger();
+        MyLog.MessageSupplier supplier = new MyLog.MessageSupplier() {
+            @Override
+            public String get() {
+                calls.incrementAndGet();
+                return "testMessageSupplier";
+            }
+        };
+        boolean loggable = MyLog.isLoggable(this, MyLog.VERBOSE);
+        MyLog.v(this, supplier);
+        assertEquals("Verbose is loggable: " + loggable, loggable ? 1 : 0, calls.get());
+
+        MyLog.forget();
+        assertEquals(loggable, MyLog.isLoggable(this, MyLog.VERBOSE));
+        calls.set(0);
+        boolean debugLoggable = MyLog.isLoggable(MyLogTest.class, MyLog.DEBUG);
+        MyLog.d(this, supplier);
+        assertEquals("Debug is loggable: " + debugLoggable, debugLoggable ? 1 : 0, calls.get());
+    }
+
+    public void testTagLevelsOfDynamicTags() {
+        MyLog.forget();
+        MyLog.isTagLoggable(MyLogTest.class, MyLog.VERBOSE);
+        assertTrue(MyLog.isTagLevelCached(MyLogTest.class));
+
+        String lastTag = "";
+        for (int ind = 0; ind <= MyLog.TAG_LEVELS_MAX_SIZE; ind++) {
+            lastTag = "Interrupted " + ind + "ms";
+            MyLog.isTagLoggable(lastTag, MyLog.VERBOSE);
+        }
+        assertFalse("Cache is limited", MyLog.isTagLevelCached(lastTag));
+        for (int level = MyLog.VERBOSE; level <= MyLog.ERROR; level++) {
+            assertEquals("Level " + level, Log.isLoggable(lastTag, level), MyLog.isTagLoggable(lastTag, level));
+        }
+        MyLog.forget();
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.test.InstrumentationTestCase;
+
+import org.andstatus.app.context.Travis;
+
+@Travis
+public class TextFingerprintTest extends InstrumentationTestCase {
+    private static final String TEXT1 = "What is good about Android is that I can use Quitter.se via AndStatus "
+            + "and read the timelines of all my accounts in one place, even when I am offline";
+
+    public void testShortTexts() {
+        assertEquals(TextFingerprint.NONE, TextFingerprint.fromBody(""));
+        assertEquals(TextFingerprint.NONE, TextFingerprint.fromBody(null));
+        assertEquals(TextFingerprint.NONE, TextFingerprint.fromBody("Good morning!"));
+        assertFalse(TextFingerprint.areNear(TextFingerprint.fromBody("Good morning!"),
+                TextFingerprint.fromBody("Good morning!")));
+    }
+
+    public void testNearDuplicates() {
+        long fingerprint1 = TextFingerprint.fromBody(TEXT1);
+        assertTrue(TextFingerprint.isMeaningful(fingerprint1));
+        assertEquals(fingerprint1, TextFingerprint.fromBody(TEXT1.toUpperCase()));
+        assertEquals(fingerprint1, TextFingerprint.fromBody("<p>" + TEXT1 + "</p>"));
+
+        long fingerprint2 = TextFingerprint.fromBody(TEXT1 + " https://t.co/abcdef");
+        assertEquals(fingerprint1, fingerprint2);
+
+        long fingerprint3 = TextFingerprint.fromBody(TEXT1.replace("all my", "all of my"));
+        assertTrue("Distance " + TextFingerprint.distance(fingerprint1, fingerprint3),
+                TextFingerprint.areNear(fingerprint1, fingerprint3));
+        assertTrue(hasEqualBandKey(fingerprint1, fingerprint3));
+
+        long fingerprint4 = TextFingerprint.fromBody("Some other text, which has nothing in common "
+                + "with the first one, except for a couple of words");
+        assertFalse("Distance " + TextFingerprint.distance(fingerprint1, fingerprint4),
+                TextFingerprint.areNear(fingerprint1, fingerprint4));
+    }
+
+    private boolean hasEqualBandKey(long fingerprint1, long fingerprint2) {
+        for (int band = 0; band < TextFingerprint.BANDS_COUNT; band++) {
+            if (TextFingerprint.bandKey(fingerprint1, band) == TextFingerprint.bandKey(fingerprint2, band)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
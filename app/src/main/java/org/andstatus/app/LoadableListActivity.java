@@ -529,6 +529,7 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
         boolean needed = false;
         switch(commandData.getCommand()) {
             case GET_STATUS:
+            case GET_CONVERSATION:
 			case GET_FOLLOWERS:
             case GET_FRIENDS:
                 if (commandData.getResult().getDownloadedCount() > 0) {
@@ -366,6 +366,11 @@ public final class MyAccount implements Comparable<MyAccount> {
                             myContext.persistentOrigins().fromId(myAccount.getOriginId()));
                     originBuilder.save(config);
                 }
+            } catch (ConnectionException e) {
+                if (e.getStatusCode() != StatusCode.NOT_MODIFIED) {
+                    throw e;
+                }
+                ok = true;
             } finally {
                 MyLog.v(this, "Get Origin config " + (ok ? "succeeded" : "failed"));
             }
@@ -2,6 +2,7 @@ package org.andstatus.app.account;
 
 import android.accounts.Account;
 import android.accounts.AccountManager;
+import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.support.annotation.NonNull;
@@ -66,9 +67,17 @@ public class PersistentAccounts {
     }
     
     public PersistentAccounts initialize() {
+        return initialize(getAndroidAccounts(myContext.context()));
+    }
+
+    /** This doesn't need the database, so it may be done in parallel with loading of origins */
+    public static android.accounts.Account[] getAndroidAccounts(Context context) {
+        android.accounts.AccountManager am = AccountManager.get(context);
+        return am.getAccountsByType( AuthenticatorService.ANDROID_ACCOUNT_TYPE );
+    }
+
+    public PersistentAccounts initialize(android.accounts.Account[] aa) {
         myFriends = null;
-        android.accounts.AccountManager am = AccountManager.get(myContext.context());
-        android.accounts.Account[] aa = am.getAccountsByType( AuthenticatorService.ANDROID_ACCOUNT_TYPE );
         List<MyAccount> myAccounts = new ArrayList<>();
         for (android.accounts.Account account : aa) {
             MyAccount ma = Builder.fromAndroidAccount(myContext, account).getAccount();
@@ -459,6 +468,13 @@ public class PersistentAccounts {
         return isMyFriend(inReplyToUserId);
     }
 
+    /** Loads the set in advance, so that the first timeline rows don't wait for it */
+    public void preloadMyFriends() {
+        if (myFriends == null) {
+            initializeMyFriends();
+        }
+    }
+
     private boolean isMyFriend(long userId) {
         if (myFriends == null) {
             initializeMyFriends();
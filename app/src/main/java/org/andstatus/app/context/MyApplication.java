@@ -30,6 +30,7 @@ import org.acra.ACRA;
 import org.acra.ReportingInteractionMode;
 import org.acra.annotation.ReportsCrashes;
 import org.andstatus.app.R;
+import org.andstatus.app.util.MemoryGovernor;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TamperingDetector;
 
@@ -66,6 +67,22 @@ public class MyApplication extends Application {
                 MyLocale.onConfigurationChanged(this, newConfig));
     }
     
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (!isAcraProcess) {
+            MemoryGovernor.onTrimMemory(level);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        if (!isAcraProcess) {
+            MemoryGovernor.onLowMemory();
+        }
+    }
+
     @Override
     public File getDatabasePath(String name) {
         return isAcraProcess ? super.getDatabasePath(name) : MyStorage.getDatabasePath(name);
@@ -76,6 +93,7 @@ public class MyApplication extends Application {
         MyLog.v(this, "attachBaseContext started" + (isAcraProcess ? ". ACRA process" : ""));
         super.attachBaseContext(base);
         ACRA.init(this);
+        MyLog.flushOnUncaughtException();
         TamperingDetector.initialize(this);
     }
 
@@ -28,7 +28,9 @@ import net.jcip.annotations.ThreadSafe;
 
 import org.andstatus.app.database.DatabaseConverterController;
 import org.andstatus.app.graphics.MyImageCache;
+import org.andstatus.app.msg.TimelinePagesCache;
 import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.util.MemoryGovernor;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.TamperingDetector;
@@ -263,6 +265,12 @@ public final class MyContextHolder {
         builder.append("\n");
         builder.append(MyImageCache.getCacheInfo());
         builder.append("\n");
+        builder.append(TimelinePagesCache.getCacheInfo());
+        builder.append("\n");
+        builder.append(MemoryGovernor.getInfo());
+        builder.append("\n");
+        builder.append(MyLog.getLogFileInfo());
+        builder.append("\n");
         builder.append(AsyncTaskLauncher.threadPoolInfo());
         return builder.toString();
     }
@@ -37,6 +37,7 @@ import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.timeline.PersistentTimelines;
 import org.andstatus.app.net.http.HttpConnection;
+import org.andstatus.app.net.http.HttpConnectionPools;
 import org.andstatus.app.net.http.TlsSniSocketFactory;
 import org.andstatus.app.origin.PersistentOrigins;
 import org.andstatus.app.os.AsyncTaskLauncher;
@@ -47,6 +48,14 @@ import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
 
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Contains global state of the application
@@ -82,6 +91,13 @@ public final class MyContextImpl implements MyContext {
     private static volatile boolean mInForeground = false;
     private static volatile long mInForegroundChangedAt = 0;
     private static final long CONSIDER_IN_BACKGROUND_AFTER_SECONDS = 20;
+    /**
+     * Threads, shared by initializations, for their parts, which may run in parallel.
+     * Tasks aren't queued, so a waiting initialization doesn't wait for other tasks.
+     * The threads end, when idle
+     */
+    private static final ThreadPoolExecutor INITIALIZATION_EXECUTOR = new ThreadPoolExecutor(0, 2,
+            10, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
 
     private MyContextImpl() {
     }
@@ -91,6 +107,8 @@ public final class MyContextImpl implements MyContext {
         final String method = "newInitialized";
         MyContextImpl myContext = newNotInitialized(context, initializerName);
         if ( myContext.mContext != null) {
+            StartupTrace trace = StartupTrace.newTrace(initializerName);
+            Future<android.accounts.Account[]> androidAccounts = loadAndroidAccountsAsync(myContext.mContext, trace);
             boolean createApplicationData = MyStorage.isApplicationDataCreated().not().toBoolean(false);
             MyLog.v(TAG, method + " Starting initialization by " + initializerName);
             if (createApplicationData) {
@@ -99,6 +117,7 @@ public final class MyContextImpl implements MyContext {
                 tryToSetExternalStorageOnDataCreation();
             }
             myContext.mPreferencesChangeTime = MyPreferences.getPreferencesChangeTime();
+            StartupTrace.Phase phase = trace.begin("database");
             DatabaseHolder newDb = new DatabaseHolder(myContext.mContext, createApplicationData);
             try {
                 myContext.mState = newDb.checkState();
@@ -106,13 +125,20 @@ public final class MyContextImpl implements MyContext {
                         && MyStorage.isApplicationDataCreated() != TriState.TRUE) {
                     myContext.mState = MyContextState.ERROR;
                 }
+                phase.end();
                 switch (myContext.mState) {
                     case READY:
                         myContext.mDb = newDb;
+                        phase = trace.begin("origins");
                         myContext.mPersistentOrigins.initialize();
-                        myContext.mPersistentAccounts.initialize();
+                        phase.end();
+                        phase = trace.begin("accounts");
+                        myContext.mPersistentAccounts.initialize(getAndroidAccounts(myContext.mContext, androidAccounts));
+                        phase.end();
+                        phase = trace.begin("timelines");
                         myContext.persistentTimelines.initialize();
-                        MyImageCache.initialize(myContext.context());
+                        phase.end();
+                        myContext.initializeDeferred(trace);
                         break;
                     default:
                         break;
@@ -129,6 +155,68 @@ public final class MyContextImpl implements MyContext {
         return myContext;
     }
     
+    /** Accounts of the AccountManager don't depend on the database, so they are loaded in parallel with it */
+    private static Future<android.accounts.Account[]> loadAndroidAccountsAsync(final Context context,
+                                                                              final StartupTrace trace) {
+        Callable<android.accounts.Account[]> callable = new Callable<android.accounts.Account[]>() {
+            @Override
+            public android.accounts.Account[] call() {
+                StartupTrace.Phase phase = trace.begin("android accounts");
+                try {
+                    return PersistentAccounts.getAndroidAccounts(context);
+                } finally {
+                    phase.end();
+                }
+            }
+        };
+        try {
+            return INITIALIZATION_EXECUTOR.submit(callable);
+        } catch (RejectedExecutionException e) {
+            MyLog.v(TAG, "Loading android accounts in the calling thread");
+            FutureTask<android.accounts.Account[]> task = new FutureTask<>(callable);
+            task.run();
+            return task;
+        }
+    }
+
+    private static android.accounts.Account[] getAndroidAccounts(Context context,
+                                                                 Future<android.accounts.Account[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            MyLog.d(TAG, "Loading of android accounts was interrupted", e);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            MyLog.w(TAG, "Loading of android accounts", e);
+        }
+        return PersistentAccounts.getAndroidAccounts(context);
+    }
+
+    /** Image caches and the set of friends are not needed to show the first timeline */
+    private void initializeDeferred(final StartupTrace trace) {
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                StartupTrace.Phase phase = trace.begin("deferred: image caches");
+                MyImageCache.initialize(mContext);
+                phase.end();
+                phase = trace.begin("deferred: friends");
+                try {
+                    mPersistentAccounts.preloadMyFriends();
+                } catch (Exception e) {
+                    MyLog.d(TAG, "Preloading friends", e);
+                }
+                phase.end();
+            }
+        };
+        try {
+            INITIALIZATION_EXECUTOR.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            MyLog.v(TAG, "Deferred initialization in the calling thread");
+            runnable.run();
+        }
+    }
+
     private void tryToSetExternalStorageOnDataCreation() {
         boolean useExternalStorage = !Environment.isExternalStorageEmulated()
                 && MyStorage.isWritableExternalStorageAvailable(null);
@@ -230,6 +318,7 @@ public final class MyContextImpl implements MyContext {
      */
     public void release() {
         TlsSniSocketFactory.forget();
+        HttpConnectionPools.forget();
         AsyncTaskLauncher.forget();
         MyLog.forget();
     }
@@ -112,6 +112,7 @@ public class MyPreferences {
     // ----------------------------------------------------------
     // Logging and debugging
     public static final String KEY_COMMANDS_QUEUE = "commands_queue";
+    public static final String KEY_STARTUP_TRACE = "startup_trace";
     /** Minimum logging level for the whole application (i.e. for any tag) */
     public static final String KEY_MIN_LOG_LEVEL = "min_log_level";
     public static final String KEY_DEBUGGING_INFO_IN_UI = "debugging_info_in_ui";
@@ -228,6 +229,7 @@ public class MyPreferences {
      */
     public static void onPreferencesChanged() {
         SharedPreferencesUtil.putLong(KEY_PREFERENCES_CHANGE_TIME, System.currentTimeMillis());
+        MyPreferencesSnapshot.forget();
         Context context = MyContextHolder.get().context();
         if (context != null && SharedPreferencesUtil.getBoolean(KEY_ENABLE_ANDROID_BACKUP, false)) {
             new BackupManager(context).dataChanged();
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import android.support.annotation.NonNull;
+
+import net.jcip.annotations.Immutable;
+
+import org.andstatus.app.msg.KeywordsFilter;
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+/**
+ * Immutable copy of the preferences, which are read on "hot" paths:
+ * per row of a list, per downloaded message, per polled command...
+ * Read it once per operation and use its fields instead of calling {@link MyPreferences}
+ * (each call of which is a SharedPreferences lookup).
+ * The snapshot is rebuilt lazily, when {@link MyContext#preferencesChangeTime()} changes
+ * @author yvolk@yurivolkov.com
+ */
+@Immutable
+public final class MyPreferencesSnapshot {
+    public static final MyPreferencesSnapshot EMPTY = new MyPreferencesSnapshot();
+    private static volatile MyPreferencesSnapshot current = EMPTY;
+
+    /** {@link MyContext#preferencesChangeTime()} for which this snapshot was built */
+    public final long version;
+    private final boolean isEmpty;
+
+    public final boolean showAvatars;
+    public final boolean showOrigin;
+    public final boolean downloadAndDisplayAttachedImages;
+    public final boolean showButtonsBelowMessage;
+    public final boolean markRepliesInTimeline;
+    public final boolean longPressToOpenContextMenu;
+
+    @NonNull
+    public final KeywordsFilter keywordsFilter;
+    public final boolean hideRepliesNotToMeOrFriends;
+
+    public final boolean syncWhileUsingApplication;
+    public final boolean syncAfterMessageWasSent;
+
+    private MyPreferencesSnapshot() {
+        version = 0;
+        isEmpty = true;
+        showAvatars = true;
+        showOrigin = false;
+        downloadAndDisplayAttachedImages = true;
+        showButtonsBelowMessage = true;
+        markRepliesInTimeline = false;
+        longPressToOpenContextMenu = false;
+        keywordsFilter = new KeywordsFilter("");
+        hideRepliesNotToMeOrFriends = false;
+        syncWhileUsingApplication = true;
+        syncAfterMessageWasSent = false;
+    }
+
+    private MyPreferencesSnapshot(long version) {
+        this.version = version;
+        isEmpty = false;
+        showAvatars = MyPreferences.getShowAvatars();
+        showOrigin = MyPreferences.getShowOrigin();
+        downloadAndDisplayAttachedImages = MyPreferences.getDownloadAndDisplayAttachedImages();
+        showButtonsBelowMessage = SharedPreferencesUtil.getBoolean(
+                MyPreferences.KEY_SHOW_BUTTONS_BELOW_MESSAGE, true);
+        markRepliesInTimeline = SharedPreferencesUtil.getBoolean(
+                MyPreferences.KEY_MARK_REPLIES_IN_TIMELINE, false);
+        longPressToOpenContextMenu = MyPreferences.isLongPressToOpenContextMenu();
+        keywordsFilter = new KeywordsFilter(SharedPreferencesUtil.getString(
+                MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS, ""));
+        hideRepliesNotToMeOrFriends = SharedPreferencesUtil.getBoolean(
+                MyPreferences.KEY_FILTER_HIDE_REPLIES_NOT_TO_ME_OR_FRIENDS, false);
+        syncWhileUsingApplication = MyPreferences.isSyncWhileUsingApplicationEnabled();
+        syncAfterMessageWasSent = SharedPreferencesUtil.getBoolean(
+                MyPreferences.KEY_SYNC_AFTER_MESSAGE_WAS_SENT, false);
+    }
+
+    /**
+     * @return snapshot for the current preferences, rebuilt if they have changed
+     */
+    @NonNull
+    public static MyPreferencesSnapshot get() {
+        MyPreferencesSnapshot snapshot = current;
+        MyContext myContext = MyContextHolder.get();
+        if (snapshot.isEmpty || snapshot.version != myContext.preferencesChangeTime()) {
+            if (myContext.context() == null) {
+                return EMPTY;
+            }
+            snapshot = new MyPreferencesSnapshot(myContext.preferencesChangeTime());
+            current = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Next call to {@link #get()} will reread the preferences
+     */
+    public static void forget() {
+        current = EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return isEmpty;
+    }
+
+    @Override
+    public String toString() {
+        return "MyPreferencesSnapshot{version=" + version
+                + (isEmpty ? ", empty" : "")
+                + ", showOrigin=" + showOrigin
+                + ", attachedImages=" + downloadAndDisplayAttachedImages
+                + ", keywords=" + keywordsFilter
+                + ", syncWhileUsingApp=" + syncWhileUsingApplication
+                + "}";
+    }
+}
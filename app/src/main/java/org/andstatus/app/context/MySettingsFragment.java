@@ -17,6 +17,7 @@
 package org.andstatus.app.context;
 
 import android.app.Activity;
+import android.app.AlertDialog;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
@@ -335,6 +336,15 @@ public class MySettingsFragment extends PreferenceFragment implements
             case MyPreferences.KEY_COMMANDS_QUEUE:
                 startActivity(new Intent(getActivity(), QueueViewer.class));
                 break;
+            case MyPreferences.KEY_STARTUP_TRACE:
+                String trace = StartupTrace.getInfo();
+                MyLog.i(this, trace);
+                new AlertDialog.Builder(getActivity())
+                        .setTitle(R.string.title_preference_startup_trace)
+                        .setMessage(trace)
+                        .setPositiveButton(android.R.string.ok, null)
+                        .show();
+                break;
             default:
                 break;
         }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.context;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Durations of the phases of the latest {@link MyContext} initialization,
+ * relative to the start of the application process
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class StartupTrace {
+    private static volatile StartupTrace latest = new StartupTrace("");
+    private static volatile long firstTimelineRowShownAt = 0;
+
+    private final String initializedBy;
+    private final Queue<Phase> phases = new ConcurrentLinkedQueue<>();
+
+    public class Phase {
+        final String name;
+        final String threadName = Thread.currentThread().getName();
+        final long startedAt = SystemClock.elapsedRealtime();
+        volatile long endedAt = 0;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        public void end() {
+            endedAt = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public String toString() {
+            return name + ": +" + (startedAt - MyContextHolder.appStartedAt) + "ms, "
+                    + (endedAt == 0 ? "not ended" : (endedAt - startedAt) + "ms") + ", " + threadName;
+        }
+    }
+
+    private StartupTrace(String initializedBy) {
+        this.initializedBy = initializedBy;
+    }
+
+    @NonNull
+    static StartupTrace newTrace(String initializedBy) {
+        latest = new StartupTrace(initializedBy);
+        return latest;
+    }
+
+    @NonNull
+    public Phase begin(String name) {
+        Phase phase = new Phase(name);
+        phases.add(phase);
+        return phase;
+    }
+
+    /** The first row of a timeline is shown, since the process was started */
+    public static void onTimelineRowShown() {
+        if (firstTimelineRowShownAt == 0) {
+            firstTimelineRowShownAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    public static String getInfo() {
+        StartupTrace trace = latest;
+        StringBuilder builder = new StringBuilder("Initialized by " + trace.initializedBy + "\n");
+        for (Phase phase : trace.phases) {
+            builder.append(phase.toString() + "\n");
+        }
+        if (firstTimelineRowShownAt > 0) {
+            builder.append("First timeline row shown: +"
+                    + (firstTimelineRowShownAt - MyContextHolder.appStartedAt) + "ms\n");
+        }
+        return builder.toString();
+    }
+}
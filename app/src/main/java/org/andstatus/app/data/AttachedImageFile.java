@@ -21,19 +21,17 @@ import android.database.Cursor;
 import android.graphics.Point;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
 import android.view.View;
 import android.widget.ImageView;
 
 import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.graphics.AttachedImageLoader;
 import org.andstatus.app.graphics.AttachedImageView;
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.graphics.MyDrawableCache;
 import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.msg.ActionableMessageList;
-import org.andstatus.app.os.AsyncTaskLauncher;
-import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.util.MyLog;
 
 public class AttachedImageFile {
@@ -56,9 +54,12 @@ public class AttachedImageFile {
     }
 
     public static AttachedImageFile fromCursor(Cursor cursor) {
-        return new AttachedImageFile(
+        AttachedImageFile imageFile = new AttachedImageFile(
                 DbUtils.getLong(cursor, DownloadTable.IMAGE_ID),
                 DbUtils.getString(cursor, DownloadTable.IMAGE_FILE_NAME));
+        imageFile.setSize((int) DbUtils.getLong(cursor, DownloadTable.IMAGE_WIDTH),
+                (int) DbUtils.getLong(cursor, DownloadTable.IMAGE_HEIGHT));
+        return imageFile;
     }
 
     public AttachedImageFile(long downloadRowIdIn, String filename) {
@@ -66,6 +67,13 @@ public class AttachedImageFile {
         downloadFile = new DownloadFile(filename);
     }
 
+    /** The size, stored at download time, so we don't need to read the file */
+    public void setSize(int width, int height) {
+        if (width > 0 && height > 0) {
+            size = new Point(width, height);
+        }
+    }
+
     public Point getSize() {
         if (size == null && downloadFile.exists()) {
             size = MyImageCache.getAttachedImageSize(downloadFile.getFilePath());
@@ -74,10 +82,12 @@ public class AttachedImageFile {
     }
 
     public Drawable getDrawableFromCache() {
+        BlobStore.onShown(downloadFile);
         return MyImageCache.getCachedAttachedImageDrawable(this, downloadFile.getFilePath());
     }
 
     public Drawable getDrawableSync() {
+        BlobStore.onShown(downloadFile);
         if (downloadFile.exists()) {
             return MyImageCache.getAttachedImageDrawable(this, downloadFile.getFilePath());
         }
@@ -95,13 +105,10 @@ public class AttachedImageFile {
         return MyLog.objTagToString(this) + " [rowId=" + downloadRowId + ", " + downloadFile + "]";
     }
 
-    public void preloadAttachedImage(@NonNull ActionableMessageList messageList) {
-        Drawable drawable = getDrawableFromCache();
-        if (drawable != null) {
-            return;
-        }
-        if (downloadFile.exists()) {
-            setImageDrawableAsync(messageList, null, downloadFile.getFilePath(), "-preload");
+    /** The image is loaded into the cache in background, if there is time for that */
+    public void preloadAttachedImage() {
+        if (downloadFile.exists() && getDrawableFromCache() == null) {
+            AttachedImageLoader.prefetch(downloadFile.getFilePath());
         }
     }
 
@@ -109,6 +116,7 @@ public class AttachedImageFile {
         if (imageView == null || messageList.isPaused()) {
             return;
         }
+        AttachedImageLoader.cancel(imageView);
         if (isEmpty()) {
             imageView.setVisibility(View.GONE);
             return;
@@ -128,7 +136,7 @@ public class AttachedImageFile {
         if (downloadFile.exists()) {
             imageView.setImageDrawable(BLANK_DRAWABLE);
             imageView.setVisibility(View.VISIBLE);
-            setImageDrawableAsync(messageList, imageView, downloadFile.getFilePath(), "-load");
+            setImageDrawableAsync(messageList, imageView, downloadFile.getFilePath());
         } else {
             imageView.setVisibility(View.GONE);
             if (downloadRowId == 0) {
@@ -141,48 +149,34 @@ public class AttachedImageFile {
     }
 
     private void setImageDrawableAsync(final ActionableMessageList messageList,
-                                       @Nullable final ImageView imageView, final String path,
-                                       final String taskSuffix) {
-        AsyncTaskLauncher.execute(this, false,
-                new MyAsyncTask<Void, Void, Drawable>(TAG + downloadRowId + taskSuffix,
-                        MyAsyncTask.PoolEnum.QUICK_UI) {
-                    @Override
-                    protected Drawable doInBackground2(Void... params) {
-                        return MyImageCache.getAttachedImageDrawable(this, path);
-                    }
-
-                    @Override
-                    protected void onCancelled(Drawable drawable) {
-                        onEnded(drawable);
-                    }
-
-                    @Override
-                    protected void onPostExecute(Drawable drawable) {
-                        onEnded(drawable);
-                        super.onPostExecute(drawable);
-                    }
-
-                    private void onEnded(Drawable drawable) {
-                        if (imageView == null || messageList.getActivity().isPaused()) {
-                            return;
+                                       @NonNull final ImageView imageView, final String path) {
+        AttachedImageLoader.load(imageView, path, new AttachedImageLoader.Listener() {
+            @Override
+            public void onLoaded(Drawable drawable) {
+                if (messageList.getActivity().isPaused()) {
+                    return;
+                }
+                if (drawable == null) {
+                    MyLog.v(TAG, new MyLog.MessageSupplier() {
+                        @Override
+                        public String get() {
+                            return "Failed to load attached image: " + path;
                         }
-                        if (drawable == null) {
-                            MyLog.v(this, "Failed to load attached image: " + path);
-                        } else {
-                            try {
-                                if (AttachedImageView.class.isAssignableFrom(imageView.getClass())) {
-                                    ((AttachedImageView) imageView).setMeasuresLocked(true);
-                                }
-                                imageView.setImageDrawable(drawable);
-                                MyLog.v(this, "Attached image loaded: " + path);
-                            } catch (Exception e) {
-                                MyLog.d(this, "Error on setting image: " + path, e);
-                            }
-
-                        }
-                        super.onPostExecute(drawable);
+                    });
+                } else {
+                    if (AttachedImageView.class.isAssignableFrom(imageView.getClass())) {
+                        ((AttachedImageView) imageView).setMeasuresLocked(true);
                     }
-                });
+                    imageView.setImageDrawable(drawable);
+                    MyLog.v(TAG, new MyLog.MessageSupplier() {
+                        @Override
+                        public String get() {
+                            return "Attached image loaded: " + path;
+                        }
+                    });
+                }
+            }
+        });
     }
 
     public boolean isEmpty() {
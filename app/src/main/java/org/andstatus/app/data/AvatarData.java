@@ -21,6 +21,7 @@ import android.net.Uri;
 import org.andstatus.app.database.UserTable;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.service.DownloadEngine;
 import org.andstatus.app.util.UriUtils;
 
 public class AvatarData extends DownloadData {
@@ -31,7 +32,7 @@ public class AvatarData extends DownloadData {
                 new MyAsyncTask<Void, Void, Void>(TAG + userIdIn, MyAsyncTask.PoolEnum.FILE_DOWNLOAD) {
                     @Override
                     protected Void doInBackground2(Void... params) {
-                        getForUser(userIdIn).requestDownload();
+                        getForUser(userIdIn).requestDownload(DownloadEngine.Priority.ON_SCREEN);
                         return null;
                     }
                 }
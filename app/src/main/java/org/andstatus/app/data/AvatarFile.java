@@ -56,6 +56,7 @@ public class AvatarFile {
 
     @NonNull
     public Drawable getDrawable() {
+        BlobStore.onShown(downloadFile);
         Drawable drawable = MyImageCache.getAvatarDrawable(this, downloadFile.getFilePath());
         if (drawable == MyDrawableCache.BROKEN) {
             return getDefaultDrawable();
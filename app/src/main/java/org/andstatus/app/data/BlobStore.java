@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.text.TextUtils;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.database.MsgOfUserTable;
+import org.andstatus.app.graphics.ImageThumbnails;
+import org.andstatus.app.util.MyLog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloaded files, named by a hash of their content, so rows of {@link DownloadTable}
+ * with the same content (e.g. the same avatar in different accounts and origins) share one file.
+ * A file is deleted, when no rows refer to it.
+ * Thumbnails of a file are deleted together with it.
+ * Least recently used files are evicted, when the store exceeds its quota,
+ * except files of favorited messages and files, shown recently
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class BlobStore {
+    private static final String TAG = BlobStore.class.getSimpleName();
+    public static final long QUOTA_BYTES = 200L * 1024 * 1024;
+    /** Files, shown during this period, are treated as visible */
+    static final long SHOWN_RECENTLY_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int BUFFER_LENGTH = 8 * 1024;
+    private static final String[] IN_PROGRESS_PREFIXES = {"temp_", "partial_"};
+
+    private static final Object lock = new Object();
+    /** Files, which were stored or referred to, but the rows were not saved yet */
+    @GuardedBy("lock")
+    private static final Map<String, Integer> pending = new HashMap<>();
+    /** Time, when a file was shown, is written to the file system during eviction only */
+    private static final Map<String, Long> shownAt = new ConcurrentHashMap<>();
+
+    private BlobStore() {
+        // Non instantiable
+    }
+
+    /**
+     * Moves the downloaded file into the store. If the store has a file with the same content already,
+     * the downloaded file is deleted.
+     * Call {@link #onSaved(DownloadFile)}, after the row, referring to the file, is saved
+     */
+    public static DownloadFile store(DownloadFile downloaded, String extension) throws IOException {
+        DownloadFile blob = new DownloadFile(toHex(hashOf(downloaded.getFile()))
+                + (TextUtils.isEmpty(extension) ? "" : "." + extension));
+        synchronized (lock) {
+            if (blob.exists()) {
+                downloaded.delete();
+                touch(blob);
+                MyLog.v(TAG, "Already stored " + blob.getFilename());
+            } else if (!downloaded.getFile().renameTo(blob.getFile())) {
+                throw new IOException("Couldn't rename " + downloaded + " to " + blob);
+            }
+            addPending(blob);
+        }
+        return blob;
+    }
+
+    /**
+     * The file of the row, which was downloaded from the same Uri, may be used by another row
+     * @return {@link DownloadFile#EMPTY} if not found
+     */
+    public static DownloadFile findLoaded(Uri uri, long exceptDownloadId) {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null || uri == null || Uri.EMPTY.equals(uri)) {
+            return DownloadFile.EMPTY;
+        }
+        String sql = "SELECT " + DownloadTable.FILE_NAME + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.URI + "=?"
+                + " AND " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save()
+                + " AND " + DownloadTable._ID + "<>" + exceptDownloadId
+                + " AND " + DownloadTable.FILE_NAME + " NOT NULL";
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, new String[]{uri.toString()});
+            while (cursor.moveToNext()) {
+                DownloadFile file = new DownloadFile(cursor.getString(0));
+                if (file.exists()) {
+                    return file;
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return DownloadFile.EMPTY;
+    }
+
+    /**
+     * A row is going to refer to the file, which is in the store already.
+     * Call {@link #onSaved(DownloadFile)}, after the row is saved
+     * @return false if the file doesn't exist
+     */
+    public static boolean refer(DownloadFile blob) {
+        synchronized (lock) {
+            if (!blob.exists()) {
+                return false;
+            }
+            touch(blob);
+            addPending(blob);
+        }
+        return true;
+    }
+
+    /** The row, referring to the file, is saved, so the file will not be deleted as unused */
+    static void onSaved(DownloadFile blob) {
+        if (blob.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            Integer count = pending.get(blob.getFilename());
+            if (count != null) {
+                if (count <= 1) {
+                    pending.remove(blob.getFilename());
+                } else {
+                    pending.put(blob.getFilename(), count - 1);
+                }
+            }
+        }
+    }
+
+    /** Deletes the file, if no rows refer to it */
+    static void release(DownloadFile blob) {
+        if (blob.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            if (!pending.containsKey(blob.getFilename()) && countReferences(blob.getFilename()) == 0) {
+                ImageThumbnails.delete(blob.getFile());
+                blob.delete();
+                shownAt.remove(blob.getFilename());
+            }
+        }
+    }
+
+    /** Visible files are not evicted */
+    public static void onShown(DownloadFile blob) {
+        if (!blob.isEmpty()) {
+            shownAt.put(blob.getFilename(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Deletes least recently used files until their total size is within the quota.
+     * Rows, which referred to a deleted file, will be downloaded again, when needed
+     * @return number of evicted files
+     */
+    public static long evict(long quotaBytes) {
+        final String method = "evict";
+        File dir = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS);
+        File[] files = dir == null ? null : dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long totalBytes = 0;
+        List<File> candidates = new ArrayList<>();
+        Set<String> favorited = null;
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+            totalBytes += file.length();
+            Long shown = shownAt.get(file.getName());
+            if (shown != null && shown > file.lastModified()) {
+                // Remember the time of the latest use
+                file.setLastModified(shown);
+            }
+            if (isInProgress(file.getName()) || ImageThumbnails.isThumbnail(file.getName()) || (shown != null && now - shown < SHOWN_RECENTLY_MILLIS)) {
+                continue;
+            }
+            candidates.add(file);
+        }
+        long evicted = 0;
+        if (totalBytes > quotaBytes) {
+            Collections.sort(candidates, new Comparator<File>() {
+                @Override
+                public int compare(File lhs, File rhs) {
+                    return lhs.lastModified() < rhs.lastModified() ? -1
+                            : (lhs.lastModified() == rhs.lastModified() ? 0 : 1);
+                }
+            });
+            favorited = getFilesOfFavoritedMessages();
+            for (File file : candidates) {
+                if (totalBytes <= quotaBytes) {
+                    break;
+                }
+                if (favorited.contains(file.getName())) {
+                    continue;
+                }
+                long length = file.length();
+                if (evictFile(file.getName())) {
+                    totalBytes -= length;
+                    evicted++;
+                }
+            }
+        }
+        MyLog.v(TAG, method + "; evicted " + evicted + " files"
+                + (favorited == null ? "" : ", " + favorited.size() + " files of favorited messages kept")
+                + ", " + totalBytes / 1024 + "KB in the store");
+        return evicted;
+    }
+
+    @GuardedBy("lock")
+    private static void addPending(DownloadFile blob) {
+        Integer count = pending.get(blob.getFilename());
+        pending.put(blob.getFilename(), count == null ? 1 : count + 1);
+    }
+
+    private static boolean evictFile(String filename) {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            return false;
+        }
+        synchronized (lock) {
+            if (pending.containsKey(filename)) {
+                return false;
+            }
+            DbUtils.execSQL(db, "UPDATE " + DownloadTable.TABLE_NAME + " SET "
+                    + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.ABSENT.save() + ", "
+                    + DownloadTable.FILE_NAME + "=NULL"
+                    + " WHERE " + DownloadTable.FILE_NAME + "=" + MyQuery.quoteIfNotQuoted(filename));
+            shownAt.remove(filename);
+            DownloadFile blob = new DownloadFile(filename);
+            ImageThumbnails.delete(blob.getFile());
+            return blob.delete();
+        }
+    }
+
+    private static long countReferences(String filename) {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            // We cannot be sure, so we keep the file
+            return 1;
+        }
+        return MyQuery.sqlToLong(db, TAG, "SELECT COUNT(*) FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.FILE_NAME + "=" + MyQuery.quoteIfNotQuoted(filename));
+    }
+
+    private static Set<String> getFilesOfFavoritedMessages() {
+        Set<String> filenames = new HashSet<>();
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            return filenames;
+        }
+        String sql = "SELECT DISTINCT " + DownloadTable.FILE_NAME + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.FILE_NAME + " NOT NULL"
+                + " AND " + DownloadTable.MSG_ID + " IN ("
+                + "SELECT " + MsgOfUserTable.MSG_ID + " FROM " + MsgOfUserTable.TABLE_NAME
+                + " WHERE " + MsgOfUserTable.FAVORITED + "=1)";
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                filenames.add(cursor.getString(0));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return filenames;
+    }
+
+    private static boolean isInProgress(String filename) {
+        for (String prefix : IN_PROGRESS_PREFIXES) {
+            if (filename.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The time of the latest use of the file is its last modified time */
+    private static void touch(DownloadFile blob) {
+        if (!blob.getFile().setLastModified(System.currentTimeMillis())) {
+            MyLog.v(TAG, "Couldn't touch " + blob.getFilename());
+        }
+    }
+
+    static byte[] hashOf(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_LENGTH];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        } finally {
+            DbUtils.closeSilently(in);
+        }
+        return digest.digest();
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -22,7 +22,7 @@ import android.text.TextUtils;
 
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
-import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyPreferencesSnapshot;
 import org.andstatus.app.database.FriendshipTable;
 import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
@@ -41,6 +41,7 @@ import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.TextFingerprint;
 import org.andstatus.app.util.TriState;
 import org.andstatus.app.util.UriUtils;
 
@@ -58,8 +59,8 @@ public class DataInserter {
     private static final String TAG = DataInserter.class.getSimpleName();
     static final String MSG_ASSERTION_KEY = "insertOrUpdateMsg";
     private final CommandExecutionContext execContext;
-    private KeywordsFilter keywordsFilter = new KeywordsFilter(
-            SharedPreferencesUtil.getString(MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS, ""));
+    private final MyPreferencesSnapshot preferences = MyPreferencesSnapshot.get();
+    private final KeywordsFilter keywordsFilter = preferences.keywordsFilter;
 
     public DataInserter(MyAccount ma) {
         this(new CommandExecutionContext(CommandData.newAccountCommand(CommandEnum.EMPTY, ma)));
@@ -197,6 +198,7 @@ public class DataInserter {
                 }
                 values.put(MsgTable.ORIGIN_ID, message.originId);
                 values.put(MsgTable.BODY, message.getBody());
+                values.put(MsgTable.BODY_FINGERPRINT, TextFingerprint.fromBody(message.getBody()));
             }
             
             /**
@@ -288,7 +290,7 @@ public class DataInserter {
                             break;
                         default:
                             if (UriUtils.isDownloadable(dd.getUri())) {
-                                if (attachment.contentType == MyContentType.IMAGE && MyPreferences.getDownloadAndDisplayAttachedImages()) {
+                                if (attachment.contentType == MyContentType.IMAGE && preferences.downloadAndDisplayAttachedImages) {
                                     dd.requestDownload();
                                 }
                             } else {
@@ -146,6 +146,7 @@ public class DataPruner {
         if (mDeleted > 0) {
             pruneAttachments();
         }
+        BlobStore.evict(BlobStore.QUOTA_BYTES);
         pruneLogs(MAX_DAYS_LOGS_TO_KEEP);
         setDataPrunedNow();
         if (MyLog.isVerboseEnabled()) {
@@ -9,11 +9,10 @@ import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.database.DownloadTable;
+import org.andstatus.app.net.http.PartialDownload;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
-import org.andstatus.app.service.CommandData;
-import org.andstatus.app.service.CommandEnum;
-import org.andstatus.app.service.MyServiceManager;
+import org.andstatus.app.service.DownloadEngine;
 import org.andstatus.app.util.InstanceId;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.UriUtils;
@@ -39,6 +38,16 @@ public class DownloadData {
 
     private long loadTimeNew = 0;
     private DownloadFile fileNew = DownloadFile.EMPTY;
+    /** {@link #fileNew} is in the {@link BlobStore}, but the row doesn't refer to it yet */
+    private boolean blobPending = false;
+
+    /** The download may be resumed, see {@link PartialDownload} */
+    private long partialSize = 0;
+    private String partialValidator = "";
+
+    /** Size of the image in pixels, 0 if unknown */
+    private int width = 0;
+    private int height = 0;
 
     public static DownloadData fromId(long downloadId) {
         DownloadData dd = new DownloadData();
@@ -92,7 +101,11 @@ public class DownloadData {
     private void loadOtherFields() {
         if (checkHardErrorBeforeLoad()) return;
         String sql = "SELECT " + DownloadTable.DOWNLOAD_STATUS + ", "
-                + DownloadTable.FILE_NAME
+                + DownloadTable.FILE_NAME + ", "
+                + DownloadTable.PARTIAL_SIZE + ", "
+                + DownloadTable.PARTIAL_VALIDATOR + ", "
+                + DownloadTable.WIDTH + ", "
+                + DownloadTable.HEIGHT
                 + (downloadType == DownloadType.UNKNOWN ? ", " + DownloadTable.DOWNLOAD_TYPE : "")
                 + (userId == 0 ? ", " + DownloadTable.USER_ID : "")
                 + (msgId == 0 ? ", " + DownloadTable.MSG_ID : "")
@@ -115,6 +128,10 @@ public class DownloadData {
             if (cursor.moveToNext()) {
                 status = DownloadStatus.load(DbUtils.getLong(cursor, DownloadTable.DOWNLOAD_STATUS));
                 fileStored = new DownloadFile(DbUtils.getString(cursor, DownloadTable.FILE_NAME));
+                partialSize = DbUtils.getLong(cursor, DownloadTable.PARTIAL_SIZE);
+                partialValidator = DbUtils.getString(cursor, DownloadTable.PARTIAL_VALIDATOR);
+                width = (int) DbUtils.getLong(cursor, DownloadTable.WIDTH);
+                height = (int) DbUtils.getLong(cursor, DownloadTable.HEIGHT);
                 if (downloadType == DownloadType.UNKNOWN) {
                     downloadType = DownloadType.load(DbUtils.getLong(cursor, DownloadTable.DOWNLOAD_TYPE));
                 }
@@ -194,6 +211,57 @@ public class DownloadData {
                 + getOptionalExtension());
     }
 
+    /** Stays the same between attempts, so the download may be resumed even after a restart */
+    public DownloadFile getPartialFile() {
+        return downloadId == 0 ? DownloadFile.EMPTY : new DownloadFile(partialFilename(downloadId));
+    }
+
+    private static String partialFilename(long downloadId) {
+        return "partial_" + downloadId;
+    }
+
+    /** @return the part of the file, which we have downloaded already */
+    public PartialDownload getPartialDownload() {
+        long size = getPartialFile().getSize();
+        // The file could be written after the size was saved
+        return new PartialDownload(size > 0 && size >= partialSize ? size : 0, partialValidator);
+    }
+
+    /** Remembers the part of the file, which we have, it is saved with {@link #saveToDatabase()} */
+    public void onPartialDownload(PartialDownload partialDownload) {
+        partialSize = partialDownload.getOffset();
+        partialValidator = partialDownload.getValidator();
+    }
+
+    /** The downloaded file is in the {@link BlobStore} now, maybe shared with other rows */
+    public void onBlobStored(DownloadFile blob) {
+        fileNew = blob;
+        blobPending = true;
+    }
+
+    /** Size of the downloaded image, it is saved with {@link #saveToDatabase()} */
+    public void setImageSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public MyContentType getContentType() {
+        return contentType;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** The file, which we have already, is up to date */
+    public void onNotModified() {
+        fileNew = fileStored;
+    }
+
     private String getOptionalExtension() {
         return TextUtils.isEmpty(MyContentType.getExtension(uri.toString())) ? "" : "."
                 + (MyContentType.getExtension(uri.toString()));
@@ -220,6 +288,14 @@ public class DownloadData {
             }
         } catch (Exception e) {
             softErrorLogged("Couldn't save to database", e);
+        } finally {
+            if (blobPending) {
+                blobPending = false;
+                BlobStore.onSaved(fileNew);
+                if (isError()) {
+                    BlobStore.release(fileNew);
+                }
+            }
         }
     }
 
@@ -237,6 +313,8 @@ public class DownloadData {
        values.put(DownloadTable.URI, uri.toString());
        values.put(DownloadTable.DOWNLOAD_STATUS, status.save());
        values.put(DownloadTable.FILE_NAME, fileNew.getFilename());
+       values.put(DownloadTable.WIDTH, width);
+       values.put(DownloadTable.HEIGHT, height);
 
        downloadId = DbUtils.addRowWithRetry(DownloadTable.TABLE_NAME, values, 3);
        if (downloadId == -1) {
@@ -261,11 +339,18 @@ public class DownloadData {
     private void update() {
         ContentValues values = new ContentValues();
         values.put(DownloadTable.DOWNLOAD_STATUS, status.save());
-        boolean changeFile = !isError() && fileNew.exists() && fileStored != fileNew;
+        values.put(DownloadTable.PARTIAL_SIZE, partialSize);
+        values.put(DownloadTable.PARTIAL_VALIDATOR, partialValidator);
+        boolean changeFile = !isError() && fileNew.exists()
+                && !TextUtils.equals(fileStored.getFilename(), fileNew.getFilename());
         if (changeFile) {
             values.put(DownloadTable.FILE_NAME, fileNew.getFilename());
             values.put(DownloadTable.VALID_FROM, loadTimeNew);
         }
+        if (!isError() && fileNew.exists()) {
+            values.put(DownloadTable.WIDTH, width);
+            values.put(DownloadTable.HEIGHT, height);
+        }
 
         if (DbUtils.updateRowWithRetry(DownloadTable.TABLE_NAME, downloadId, values, 3) != 1) {
             softError = true;
@@ -273,7 +358,7 @@ public class DownloadData {
             MyLog.v(this, "Updated " + userMsgUriToString());
         }
         if (!isError() && changeFile) {
-            fileStored.delete();
+            BlobStore.release(fileStored);
         }
     }
 
@@ -337,8 +422,9 @@ public class DownloadData {
                 cursor = db.rawQuery(sql, null);
                 while (cursor.moveToNext()) {
                     long rowIdOld = cursor.getLong(0);
-                    new DownloadFile(cursor.getString(1)).delete();
                     rowsDeleted += db.delete(DownloadTable.TABLE_NAME, DownloadTable._ID + "=" + Long.toString(rowIdOld), null);
+                    BlobStore.release(new DownloadFile(cursor.getString(1)));
+                    new DownloadFile(partialFilename(rowIdOld)).delete();
                 }
                 done = true;
             } catch (SQLiteException e) {
@@ -409,14 +495,15 @@ public class DownloadData {
     }
 
     public void requestDownload() {
+        requestDownload(DownloadEngine.Priority.BACKGROUND);
+    }
+
+    public void requestDownload(DownloadEngine.Priority priority) {
         if (!hardError && downloadId == 0) {
             saveToDatabase();
         }
         if (!DownloadStatus.LOADED.equals(status) && !hardError) {
-            MyServiceManager.sendCommand(
-                    userId != 0 ?
-                            CommandData.newUserCommand(CommandEnum.FETCH_AVATAR, null, userId, "")
-                            : CommandData.newFetchAttachment(msgId, downloadId));
+            DownloadEngine.request(this, priority);
         }
     }
 
@@ -449,7 +536,7 @@ public class DownloadData {
                 new MyAsyncTask<Void, Void, Void>(TAG + downloadId, MyAsyncTask.PoolEnum.FILE_DOWNLOAD) {
                     @Override
                     protected Void doInBackground2(Void... params) {
-                        DownloadData.fromId(downloadId).requestDownload();
+                        DownloadData.fromId(downloadId).requestDownload(DownloadEngine.Priority.ON_SCREEN);
                         return null;
                     }
                 }
@@ -34,8 +34,10 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class MyQuery {
@@ -521,6 +523,51 @@ public class MyQuery {
         return getLongs(sql);
     }
 
+    /**
+     * Batch version of {@link #getMyFollowersOf(long)}
+     * @param userIdsCondition SQL condition for the user ids, e.g. " IN (1, 2)" or "=3"
+     * @return Map of the user id to the set of ids of my accounts, which follow the user.
+     *  The users, who are not followed by my accounts, are absent
+     */
+    @NonNull
+    public static Map<Long, Set<Long>> getMyFollowersOfUsers(String userIdsCondition) {
+        Map<Long, Set<Long>> followers = new HashMap<>();
+        if (TextUtils.isEmpty(userIdsCondition)) {
+            return followers;
+        }
+        SelectedUserIds selectedAccounts = new SelectedUserIds(
+                MyContextHolder.get().persistentAccounts().getCurrentAccountUserId());
+
+        String where = FriendshipTable.USER_ID + selectedAccounts.getSql()
+                + " AND " + FriendshipTable.FRIEND_ID + userIdsCondition
+                + " AND " + FriendshipTable.FOLLOWED + "=1";
+        String sql = "SELECT " + FriendshipTable.FRIEND_ID + ", " + FriendshipTable.USER_ID
+                + " FROM " + FriendshipTable.TABLE_NAME
+                + " WHERE " + where;
+
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.v(TAG, "getMyFollowersOfUsers; Database is null");
+            return followers;
+        }
+        Cursor c = null;
+        try {
+            c = db.rawQuery(sql, null);
+            while (c.moveToNext()) {
+                long userId = c.getLong(0);
+                Set<Long> myFollowers = followers.get(userId);
+                if (myFollowers == null) {
+                    myFollowers = new HashSet<>();
+                    followers.put(userId, myFollowers);
+                }
+                myFollowers.add(c.getLong(1));
+            }
+        } finally {
+            DbUtils.closeSilently(c);
+        }
+        return followers;
+    }
+
     /**
      * Newest replies are the first
      */
@@ -51,9 +51,12 @@ public class ProjectionMap {
         MSG.put(DownloadTable.IMAGE_FILE_NAME, ATTACHMENT_IMAGE_TABLE_ALIAS + "." + DownloadTable.FILE_NAME + " AS " + DownloadTable.IMAGE_FILE_NAME);
         MSG.put(DownloadTable.IMAGE_ID, ATTACHMENT_IMAGE_TABLE_ALIAS + "." + DownloadTable._ID + " AS " + DownloadTable.IMAGE_ID);
         MSG.put(DownloadTable.IMAGE_URL, ATTACHMENT_IMAGE_TABLE_ALIAS + "." + DownloadTable.URI + " AS " + DownloadTable.IMAGE_URL);
+        MSG.put(DownloadTable.IMAGE_WIDTH, ATTACHMENT_IMAGE_TABLE_ALIAS + "." + DownloadTable.WIDTH + " AS " + DownloadTable.IMAGE_WIDTH);
+        MSG.put(DownloadTable.IMAGE_HEIGHT, ATTACHMENT_IMAGE_TABLE_ALIAS + "." + DownloadTable.HEIGHT + " AS " + DownloadTable.IMAGE_HEIGHT);
         MSG.put(MsgTable.SENDER_ID, MsgTable.SENDER_ID);
         MSG.put(UserTable.SENDER_NAME, UserTable.SENDER_NAME);
         MSG.put(MsgTable.BODY, MsgTable.BODY);
+        MSG.put(MsgTable.BODY_FINGERPRINT, MsgTable.BODY_FINGERPRINT);
         MSG.put(MsgTable.VIA, MsgTable.VIA);
         MSG.put(MsgTable.URL, MsgTable.URL);
         MSG.put(MsgTable.IN_REPLY_TO_MSG_ID, MsgTable.IN_REPLY_TO_MSG_ID);
@@ -200,6 +200,8 @@ public class TimelineSql {
                     + DownloadTable.MSG_ID + ", "
                     + DownloadTable.CONTENT_TYPE + ", "
                     + (columns.contains(DownloadTable.IMAGE_URL) ? DownloadTable.URI + ", " : "")
+                    + (columns.contains(DownloadTable.IMAGE_WIDTH) ? DownloadTable.WIDTH + ", "
+                        + DownloadTable.HEIGHT + ", " : "")
                     + DownloadTable.FILE_NAME
                     + " FROM " + DownloadTable.TABLE_NAME + ") AS " + ProjectionMap.ATTACHMENT_IMAGE_TABLE_ALIAS
                     +  " ON "
@@ -270,6 +272,7 @@ public class TimelineSql {
         columnNames.add(UserTable.SENDER_NAME);
         columnNames.add(MsgTable.VIA);
         columnNames.add(MsgOfUserTable.REBLOGGED);
+        columnNames.add(MsgTable.BODY_FINGERPRINT);
         return columnNames.toArray(new String[]{});
     }
 
@@ -294,6 +297,8 @@ public class TimelineSql {
         if (MyPreferences.getDownloadAndDisplayAttachedImages()) {
             columnNames.add(DownloadTable.IMAGE_ID);
             columnNames.add(DownloadTable.IMAGE_FILE_NAME);
+            columnNames.add(DownloadTable.IMAGE_WIDTH);
+            columnNames.add(DownloadTable.IMAGE_HEIGHT);
         }
         if (SharedPreferencesUtil.getBoolean(MyPreferences.KEY_MARK_REPLIES_IN_TIMELINE, false)
                 || SharedPreferencesUtil.getBoolean(
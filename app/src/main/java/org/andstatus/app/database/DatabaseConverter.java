@@ -414,4 +414,38 @@ class DatabaseConverter {
             DbUtils.execSQL(db, sql);
         }
     }
+
+    static class Convert25 extends OneStep {
+        @Override
+        protected void execute2() {
+            versionTo = 26;
+
+            sql = "ALTER TABLE msg ADD COLUMN body_fingerprint INTEGER DEFAULT 0 NOT NULL";
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
+    static class Convert26 extends OneStep {
+        @Override
+        protected void execute2() {
+            versionTo = 27;
+
+            sql = "ALTER TABLE download ADD COLUMN partial_size INTEGER DEFAULT 0 NOT NULL";
+            DbUtils.execSQL(db, sql);
+            sql = "ALTER TABLE download ADD COLUMN partial_validator TEXT";
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
+    static class Convert27 extends OneStep {
+        @Override
+        protected void execute2() {
+            versionTo = 28;
+
+            sql = "ALTER TABLE download ADD COLUMN width INTEGER DEFAULT 0 NOT NULL";
+            DbUtils.execSQL(db, sql);
+            sql = "ALTER TABLE download ADD COLUMN height INTEGER DEFAULT 0 NOT NULL";
+            DbUtils.execSQL(db, sql);
+        }
+    }
 }
@@ -33,6 +33,7 @@ public class DatabaseCreator {
      * This is used to check (and upgrade if necessary)
      * existing database after application update.
      *
+     * v.26 2016-10-19 app.v.29 body_fingerprint added to Msg to collapse near duplicates
      * v.25 2016-06-07 app.v.27 TimelineTable and CommandTable added
      * v.24 2016-02-27 app.v.23 several attributes added to User, https://github.com/andstatus/andstatus/issues/320
      * v.23 2015-09-02 app.v.19 msg_status added for Unsent messages
@@ -55,7 +56,7 @@ public class DatabaseCreator {
      *      All messages are in the same table.
      *      Allows to have multiple User Accounts in different Originating systems (twitter.com etc. )
      */
-    public static final int DATABASE_VERSION = 25;
+    public static final int DATABASE_VERSION = 28;
     public static final long ORIGIN_ID_TWITTER =  1L;
 
     private final SQLiteDatabase db;
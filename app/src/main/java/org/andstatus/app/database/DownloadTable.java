@@ -55,6 +55,13 @@ public final class DownloadTable implements BaseColumns {
      */
     public static final String DOWNLOAD_STATUS = "download_status";
     public static final String FILE_NAME = "file_name";
+    /** Size of the partially downloaded file, from which the download may be resumed */
+    public static final String PARTIAL_SIZE = "partial_size";
+    /** ETag or Last-Modified of the file on the server, see {@link org.andstatus.app.net.http.PartialDownload} */
+    public static final String PARTIAL_VALIDATOR = "partial_validator";
+    /** Size of the image in pixels, 0 if unknown */
+    public static final String WIDTH = "width";
+    public static final String HEIGHT = "height";
 
     /*
      * Derived columns (they are not stored in this table but are result of joins)
@@ -66,6 +73,8 @@ public final class DownloadTable implements BaseColumns {
     /** Alias helping to show first attached image */
     public static final String IMAGE_FILE_NAME = "image_file_name";
     public static final String IMAGE_URL = "image_url";
+    public static final String IMAGE_WIDTH = "image_width";
+    public static final String IMAGE_HEIGHT = "image_height";
 
     public static void create(SQLiteDatabase db) {
         DbUtils.execSQL(db, "CREATE TABLE " + DownloadTable.TABLE_NAME + " ("
@@ -78,7 +87,11 @@ public final class DownloadTable implements BaseColumns {
                 + DownloadTable.URI + " TEXT NOT NULL,"
                 + DownloadTable.LOADED_DATE + " INTEGER,"
                 + DownloadTable.DOWNLOAD_STATUS + " INTEGER NOT NULL DEFAULT 0,"
-                + DownloadTable.FILE_NAME + " TEXT"
+                + DownloadTable.FILE_NAME + " TEXT,"
+                + DownloadTable.PARTIAL_SIZE + " INTEGER NOT NULL DEFAULT 0,"
+                + DownloadTable.PARTIAL_VALIDATOR + " TEXT,"
+                + DownloadTable.WIDTH + " INTEGER NOT NULL DEFAULT 0,"
+                + DownloadTable.HEIGHT + " INTEGER NOT NULL DEFAULT 0"
                 + ")");
 
         DbUtils.execSQL(db, "CREATE INDEX idx_download_user ON " + DownloadTable.TABLE_NAME + " ("
@@ -78,6 +78,11 @@ public final class MsgTable implements BaseColumns {
      * Text of the message ("TEXT" may be reserved word so it was renamed here)
      */
     public static final String BODY = "body";
+    /**
+     * {@link org.andstatus.app.util.TextFingerprint} of the {@link #BODY}
+     * to find near duplicates of the message
+     */
+    public static final String BODY_FINGERPRINT = "body_fingerprint";
     /**
      * String generally describing Client's software used to post this message
      * It's like "User Agent" string in the browsers?!: "via ..."
@@ -137,6 +142,7 @@ public final class MsgTable implements BaseColumns {
                 + MsgTable.SENDER_ID + " INTEGER,"
                 + MsgTable.RECIPIENT_ID + " INTEGER,"
                 + MsgTable.BODY + " TEXT,"
+                + MsgTable.BODY_FINGERPRINT + " INTEGER DEFAULT 0 NOT NULL,"
                 + MsgTable.VIA + " TEXT,"
                 + MsgTable.URL + " TEXT,"
                 + MsgTable.IN_REPLY_TO_MSG_ID + " INTEGER,"
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.widget.ImageView;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads attached images into the cache in background, one image at a time.
+ * Images for visible views go first, prefetched images - after them.
+ * A request is cancelled, when its view is bound to other data, so images, which scrolled by,
+ * are not decoded. Requests for the same file are served by one decoding.
+ * All public methods are called in the UI thread
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class AttachedImageLoader {
+    private static final String TAG = AttachedImageLoader.class.getSimpleName();
+    /** Images, which were prefetched long ago, are far from the visible rows already */
+    static final int PREFETCH_QUEUE_SIZE_MAX = 10;
+
+    private static final Object lock = new Object();
+    @GuardedBy("lock")
+    private static final Map<String, Job> jobs = new HashMap<>();
+    @GuardedBy("lock")
+    private static final Map<ImageView, Request> requests = new HashMap<>();
+    /** The most recently bound views are the most likely to be on the screen, so they are the first */
+    @GuardedBy("lock")
+    private static final Deque<Job> visibleQueue = new ArrayDeque<>();
+    @GuardedBy("lock")
+    private static final Deque<Job> prefetchQueue = new ArrayDeque<>();
+    @GuardedBy("lock")
+    private static boolean workerLaunched = false;
+
+    static final AtomicLong loaded = new AtomicLong();
+    static final AtomicLong coalesced = new AtomicLong();
+    static final AtomicLong cancelled = new AtomicLong();
+
+    public interface Listener {
+        void onLoaded(@Nullable Drawable drawable);
+    }
+
+    private static class Request {
+        final ImageView imageView;
+        final Listener listener;
+        final Job job;
+
+        Request(ImageView imageView, Listener listener, Job job) {
+            this.imageView = imageView;
+            this.listener = listener;
+            this.job = job;
+        }
+    }
+
+    private static class Job {
+        final String path;
+        @GuardedBy("lock")
+        final List<Request> requests = new ArrayList<>();
+        @GuardedBy("lock")
+        boolean prefetch;
+        @GuardedBy("lock")
+        boolean started = false;
+        volatile Drawable drawable = null;
+
+        Job(String path, boolean prefetch) {
+            this.path = path;
+            this.prefetch = prefetch;
+        }
+    }
+
+    private AttachedImageLoader() {
+        // Non instantiable
+    }
+
+    /** The listener is called, unless the view is bound to other image before that */
+    public static void load(@NonNull ImageView imageView, String path, @NonNull Listener listener) {
+        if (TextUtils.isEmpty(path)) {
+            return;
+        }
+        synchronized (lock) {
+            cancelLocked(imageView);
+            Job job = jobs.get(path);
+            if (job == null) {
+                job = new Job(path, false);
+                jobs.put(path, job);
+                visibleQueue.addFirst(job);
+            } else {
+                coalesced.incrementAndGet();
+                if (job.prefetch && !job.started) {
+                    prefetchQueue.remove(job);
+                    job.prefetch = false;
+                    visibleQueue.addFirst(job);
+                }
+            }
+            Request request = new Request(imageView, listener, job);
+            job.requests.add(request);
+            requests.put(imageView, request);
+        }
+        launchWorker();
+    }
+
+    /** Loads the image into the cache, if there is time for that */
+    public static void prefetch(String path) {
+        if (TextUtils.isEmpty(path)) {
+            return;
+        }
+        synchronized (lock) {
+            if (jobs.containsKey(path)) {
+                coalesced.incrementAndGet();
+                return;
+            }
+            Job job = new Job(path, true);
+            jobs.put(path, job);
+            prefetchQueue.addFirst(job);
+            while (prefetchQueue.size() > PREFETCH_QUEUE_SIZE_MAX) {
+                jobs.remove(prefetchQueue.removeLast().path);
+                cancelled.incrementAndGet();
+            }
+        }
+        launchWorker();
+    }
+
+    /** The view is bound to other data */
+    public static void cancel(@NonNull ImageView imageView) {
+        synchronized (lock) {
+            cancelLocked(imageView);
+        }
+    }
+
+    @GuardedBy("lock")
+    private static void cancelLocked(ImageView imageView) {
+        Request request = requests.remove(imageView);
+        if (request == null) {
+            return;
+        }
+        Job job = request.job;
+        job.requests.remove(request);
+        if (job.requests.isEmpty() && !job.started && !job.prefetch) {
+            visibleQueue.remove(job);
+            jobs.remove(job.path);
+            cancelled.incrementAndGet();
+        }
+    }
+
+    private static void launchWorker() {
+        synchronized (lock) {
+            if (workerLaunched || (visibleQueue.isEmpty() && prefetchQueue.isEmpty())) {
+                return;
+            }
+            workerLaunched = true;
+        }
+        Worker worker = new Worker();
+        worker.setSingleInstance(false);
+        if (!AsyncTaskLauncher.execute(TAG, false, worker)) {
+            synchronized (lock) {
+                workerLaunched = false;
+            }
+        }
+    }
+
+    /** The job is taken, when a thread is available, so the latest priorities are taken into account */
+    @Nullable
+    private static Job takeNextJob() {
+        synchronized (lock) {
+            Job job = visibleQueue.pollFirst();
+            if (job == null) {
+                job = prefetchQueue.pollFirst();
+            }
+            if (job != null) {
+                job.started = true;
+            }
+            return job;
+        }
+    }
+
+    private static void onJobEnded(@Nullable Job job) {
+        List<Request> toNotify = new ArrayList<>();
+        synchronized (lock) {
+            workerLaunched = false;
+            if (job != null) {
+                jobs.remove(job.path);
+                for (Request request : job.requests) {
+                    requests.remove(request.imageView);
+                    toNotify.add(request);
+                }
+            }
+        }
+        for (Request request : toNotify) {
+            try {
+                request.listener.onLoaded(job.drawable);
+            } catch (Exception e) {
+                MyLog.d(TAG, "Error on setting image: " + job.path, e);
+            }
+        }
+        launchWorker();
+    }
+
+    private static class Worker extends MyAsyncTask<Void, Void, Job> {
+
+        Worker() {
+            super(TAG, PoolEnum.QUICK_UI);
+        }
+
+        @Override
+        protected Job doInBackground2(Void... params) {
+            Job job = takeNextJob();
+            if (job != null) {
+                job.drawable = MyImageCache.getAttachedImageDrawable(this, job.path);
+                loaded.incrementAndGet();
+            }
+            return job;
+        }
+
+        @Override
+        protected void onCancelled(Job job) {
+            onJobEnded(job);
+        }
+
+        @Override
+        protected void onPostExecute(Job job) {
+            onJobEnded(job);
+        }
+    }
+
+    public static String getInfo() {
+        synchronized (lock) {
+            return "Attached images loader: visible:" + visibleQueue.size() + ", prefetch:" + prefetchQueue.size()
+                    + ", loaded:" + loaded.get() + ", coalesced:" + coalesced.get()
+                    + ", cancelled:" + cancelled.get();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.Nullable;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.util.I18n;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mutable bitmaps, which were removed from a cache, grouped by their size and config.
+ * Images are decoded into them via {@link android.graphics.BitmapFactory.Options#inBitmap}
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+class BitmapPool {
+    private final long maxBytes;
+    @GuardedBy("this")
+    private final Map<String, Deque<Bitmap>> buckets = new HashMap<>();
+    /** The least recently pooled bitmaps are the first */
+    @GuardedBy("this")
+    private final Deque<Bitmap> pooled = new ArrayDeque<>();
+    @GuardedBy("this")
+    private long bytes = 0;
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Before KitKat a bitmap may be reused for an image of exactly the same size only,
+     * since KitKat any large enough bitmap of the same config may be reused
+     * @return null if there is no suitable bitmap
+     */
+    @Nullable
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = null;
+        Deque<Bitmap> bucket = buckets.get(getKey(width, height, config));
+        if (bucket != null && !bucket.isEmpty()) {
+            bitmap = bucket.peekLast();
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            bitmap = findLarger((long) width * height * getBytesPerPixel(config), config);
+        }
+        if (bitmap == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+            remove(bitmap);
+        }
+        return bitmap;
+    }
+
+    /** The smallest of bitmaps, which are large enough */
+    @Nullable
+    private Bitmap findLarger(long bytesNeeded, Bitmap.Config config) {
+        Bitmap found = null;
+        for (Bitmap bitmap : pooled) {
+            if (bitmap.getConfig() == config && getByteCount(bitmap) >= bytesNeeded
+                    && (found == null || getByteCount(bitmap) < getByteCount(found))) {
+                found = bitmap;
+            }
+        }
+        return found;
+    }
+
+    private void remove(Bitmap bitmap) {
+        buckets.get(getKey(bitmap)).remove(bitmap);
+        pooled.remove(bitmap);
+        bytes -= getByteCount(bitmap);
+    }
+
+    /**
+     * The least recently pooled bitmaps are dropped, if the pool is full.
+     * They are not recycled, because a view may still draw an evicted drawable
+     */
+    void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || getByteCount(bitmap) > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            if (pooled.contains(bitmap)) {
+                return;
+            }
+            String key = getKey(bitmap);
+            Deque<Bitmap> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                buckets.put(key, bucket);
+            }
+            bucket.add(bitmap);
+            pooled.add(bitmap);
+            bytes += getByteCount(bitmap);
+            trimToSize(maxBytes);
+        }
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized void clear() {
+        trimToSize(0);
+    }
+
+    @GuardedBy("this")
+    private void trimToSize(long size) {
+        Iterator<Bitmap> iterator = pooled.iterator();
+        while (bytes > size && iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            iterator.remove();
+            buckets.get(getKey(bitmap)).remove(bitmap);
+            bytes -= getByteCount(bitmap);
+        }
+    }
+
+    synchronized String getInfo() {
+        long accesses = hits.get() + misses.get();
+        return "pool: " + pooled.size() + " bitmaps, " + I18n.formatBytes(bytes)
+                + ", hits:" + hits.get() + ", misses:" + misses.get()
+                + (accesses == 0 ? "" : ", hitRate:" + hits.get() * 100 / accesses + "%");
+    }
+
+    private static String getKey(Bitmap bitmap) {
+        return getKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+    }
+
+    private static String getKey(int width, int height, Bitmap.Config config) {
+        return width + "x" + height + " " + config;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    static long getByteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        } else if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        return 4;
+    }
+}
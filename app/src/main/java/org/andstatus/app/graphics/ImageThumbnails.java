@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.MyLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Small copies of downloaded images, made once at download time, so that the image caches
+ * decode small files instead of full size camera photos
+ * @author yvolk@yurivolkov.com
+ */
+public final class ImageThumbnails {
+    private static final String TAG = ImageThumbnails.class.getSimpleName();
+    static final String PREFIX = "thumb_";
+    static final String PREFIX_ROUNDED = "thumb_round_";
+    private static final int JPEG_QUALITY = 90;
+
+    private ImageThumbnails() {
+        // Non instantiable
+    }
+
+    /** @return the file of the thumbnail, which may not exist */
+    public static File getThumbnail(File image, boolean rounded) {
+        return new File(image.getParentFile(), (rounded ? PREFIX_ROUNDED : PREFIX) + image.getName());
+    }
+
+    public static boolean isThumbnail(String filename) {
+        return filename.startsWith(PREFIX);
+    }
+
+    public static void delete(File image) {
+        for (boolean rounded : new boolean[]{false, true}) {
+            File thumbnail = getThumbnail(image, rounded);
+            if (thumbnail.exists() && !thumbnail.delete()) {
+                MyLog.v(TAG, "Couldn't delete " + thumbnail);
+            }
+        }
+    }
+
+    /** @return size of the image in pixels, (0, 0) if it is not an image */
+    public static Point getImageSize(File image) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(image.getAbsolutePath(), options);
+        return new Point(Math.max(options.outWidth, 0), Math.max(options.outHeight, 0));
+    }
+
+    /**
+     * Makes the thumbnail, which fits into maxWidth x maxHeight, unless it exists already.
+     * Images, which fit already, don't need thumbnails
+     * @param rounded the thumbnail is an oval, as avatars are drawn, when {@code KEY_ROUNDED_AVATARS} is set
+     * @return size of the image, (0, 0) if it is not an image
+     */
+    public static Point make(File image, int maxWidth, int maxHeight, boolean rounded) {
+        Point size = getImageSize(image);
+        File thumbnail = getThumbnail(image, rounded);
+        if (size.x == 0 || size.y == 0 || maxWidth < 1 || maxHeight < 1 || thumbnail.exists()
+                || (!rounded && size.x <= maxWidth && size.y <= maxHeight)) {
+            return size;
+        }
+        // Decode not less than we need, the rest is done by scaling
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (size.x / (options.inSampleSize * 2) >= maxWidth && size.y / (options.inSampleSize * 2) >= maxHeight) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap bitmap = null;
+        Bitmap scaled = null;
+        try {
+            bitmap = BitmapFactory.decodeFile(image.getAbsolutePath(), options);
+            if (bitmap == null) {
+                return size;
+            }
+            float scale = Math.min(1f, Math.min((float) maxWidth / bitmap.getWidth(),
+                    (float) maxHeight / bitmap.getHeight()));
+            scaled = Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                    Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+            if (rounded) {
+                scaled = toRounded(scaled);
+            }
+            save(scaled, thumbnail, rounded);
+            MyLog.v(TAG, "Thumbnail " + scaled.getWidth() + "x" + scaled.getHeight()
+                    + " of " + size.x + "x" + size.y + " '" + image.getName() + "'");
+        } catch (OutOfMemoryError e) {
+            MyLog.w(TAG, "Thumbnail of " + size.x + "x" + size.y + " '" + image.getName() + "'", e);
+        } finally {
+            if (scaled != null) {
+                scaled.recycle();
+            }
+            if (bitmap != null && bitmap != scaled) {
+                bitmap.recycle();
+            }
+        }
+        return size;
+    }
+
+    /** The solution is the same as in {@link MyDrawableCache} */
+    private static Bitmap toRounded(Bitmap bitmap) {
+        Bitmap rounded = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(rounded);
+        Paint paint = new Paint();
+        paint.setAntiAlias(true);
+        paint.setDither(true);
+        paint.setShader(new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        canvas.drawOval(new RectF(0, 0, bitmap.getWidth(), bitmap.getHeight()), paint);
+        bitmap.recycle();
+        return rounded;
+    }
+
+    /** Rounded thumbnails need transparency */
+    private static void save(Bitmap bitmap, File thumbnail, boolean rounded) {
+        File temp = new File(thumbnail.getParentFile(), "temp_" + thumbnail.getName());
+        FileOutputStream out = null;
+        boolean saved = false;
+        try {
+            out = new FileOutputStream(temp);
+            saved = bitmap.compress(rounded || bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG
+                    : Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            MyLog.d(TAG, "Couldn't save " + thumbnail, e);
+        } finally {
+            DbUtils.closeSilently(out);
+        }
+        if (!saved || !temp.renameTo(thumbnail)) {
+            if (temp.exists() && !temp.delete()) {
+                MyLog.v(TAG, "Couldn't delete " + temp);
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.andstatus.app.graphics;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
@@ -24,7 +25,6 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Point;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Shader;
@@ -37,12 +37,11 @@ import android.util.DisplayMetrics;
 import android.util.LruCache;
 
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.util.MemoryGovernor;
 import org.andstatus.app.util.MyLog;
 
 import java.io.File;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -50,21 +49,24 @@ import java.util.concurrent.atomic.AtomicLong;
  * @author yvolk@yurivolkov.com
  * On LruCache usage read http://developer.android.com/reference/android/util/LruCache.html
  */
-public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
+public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> implements MemoryGovernor.Consumer {
     public final static Drawable BROKEN = new BitmapDrawable();
     public final static Bitmap.Config BITMAP_CONFIG = Bitmap.Config.ARGB_8888;
     public final static int BYTES_PER_PIXEL = 4;
+    /** Bitmaps, removed from the cache, wait in the pool for the next images to be decoded into them */
+    private final static int POOL_SIZE_IN_LARGEST_BITMAPS = 4;
     final String name;
     private volatile int requestedCacheSize;
-    private volatile int currentCacheSize;
     private volatile int maxBitmapHeight;
     private volatile int maxBitmapWidth;
     final AtomicLong hits = new AtomicLong();
     final AtomicLong misses = new AtomicLong();
     final Set<String> brokenBitmaps = new ConcurrentSkipListSet<>();
-    final Queue<Bitmap> recycledBitmaps;
+    final BitmapPool pool;
     final DisplayMetrics displayMetrics;
     volatile boolean rounded = false;
+    /** Config of images without transparency, e.g. of JPEGs */
+    volatile Bitmap.Config opaqueBitmapConfig = BITMAP_CONFIG;
 
     @Override
     public void resize(int maxSize) {
@@ -86,32 +88,23 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         }
         this.setMaxBounds(maxBitmapHeightWidth, maxBitmapHeightWidth);
         this.requestedCacheSize = requestedCacheSizeIn;
-        this.currentCacheSize = this.requestedCacheSize;
-        recycledBitmaps = new ConcurrentLinkedQueue<>();
-        try {
-            for (int i = 0; i < currentCacheSize + 2; i++) {
-                recycledBitmaps.add(newBlankBitmap());
-            }
-        } catch (OutOfMemoryError e) {
-            MyLog.w(this, getInfo(), e);
-            currentCacheSize = recycledBitmaps.size() - 2;
-            if (currentCacheSize < 0) {
-                currentCacheSize = 0;
-            }
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                super.resize(currentCacheSize);
-            }
-        }
+        pool = new BitmapPool((long) POOL_SIZE_IN_LARGEST_BITMAPS * maxBitmapWidth * maxBitmapHeight
+                * BYTES_PER_PIXEL);
     }
 
-    private Bitmap newBlankBitmap() {
-        Bitmap bitmap;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-            bitmap = Bitmap.createBitmap(displayMetrics, maxBitmapWidth,
-                    maxBitmapHeight, BITMAP_CONFIG);
+    /** Takes a pooled bitmap, if there is a suitable one */
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private Bitmap newBlankBitmap(int width, int height) {
+        Bitmap bitmap = pool.get(width, height, BITMAP_CONFIG);
+        if (bitmap != null) {
+            if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+                bitmap.reconfigure(width, height, BITMAP_CONFIG);
+            }
+            bitmap.eraseColor(Color.TRANSPARENT);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            bitmap = Bitmap.createBitmap(displayMetrics, width, height, BITMAP_CONFIG);
         } else {
-            bitmap = Bitmap.createBitmap(maxBitmapWidth,
-                    maxBitmapHeight, BITMAP_CONFIG);
+            bitmap = Bitmap.createBitmap(width, height, BITMAP_CONFIG);
             bitmap.setDensity(displayMetrics.densityDpi);
         }
         return bitmap;
@@ -130,7 +123,7 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
     @Override
     protected void entryRemoved(boolean evicted, String key, BitmapSubsetDrawable oldValue,
                                 BitmapSubsetDrawable newValue) {
-        recycledBitmaps.add(oldValue.getBitmap());
+        pool.put(oldValue.getBitmap());
     }
 
     @Nullable
@@ -151,9 +144,7 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
             if (!fromCacheOnly) {
                 bitmap = loadDrawable(objTag, path);
                 if (bitmap != null) {
-                    if (currentCacheSize > 0) {
-                        put(path, bitmap);
-                    }
+                    put(path, bitmap);
                 } else {
                     brokenBitmaps.add(path);
                 }
@@ -164,26 +155,42 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
 
     @Nullable
     private BitmapSubsetDrawable loadDrawable(Object objTag, String path) {
-        Bitmap bitmap = loadBitmap(objTag, path);
+        boolean preRounded = false;
+        Bitmap bitmap = null;
+        File thumbnail = ImageThumbnails.getThumbnail(new File(path), rounded);
+        if (rounded && thumbnail.exists()) {
+            bitmap = loadThumbnail(objTag, thumbnail);
+            preRounded = bitmap != null;
+        }
         if (bitmap == null) {
-            return null;
+            thumbnail = ImageThumbnails.getThumbnail(new File(path), false);
+            if (thumbnail.exists()) {
+                bitmap = loadThumbnail(objTag, thumbnail);
+            }
         }
-        Rect srcRect = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        Bitmap background = getSuitableRecycledBitmap(srcRect);
-        if (background == null) {
-            MyLog.w(objTag, "No suitable bitmap found to cache "
-                    + srcRect.width() + "x" + srcRect.height() + " '" + path + "'");
-            return null ;
+        if (bitmap == null) {
+            bitmap = loadBitmap(objTag, path);
         }
-        Canvas canvas = new Canvas(background);
-        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
-        if (rounded) {
-            drawRoundedBitmap(canvas, bitmap);
-        } else {
-            canvas.drawBitmap(bitmap, 0 , 0, null);
+        if (bitmap == null) {
+            return null;
+        }
+        if (rounded && !preRounded) {
+            Bitmap decoded = bitmap;
+            try {
+                bitmap = newBlankBitmap(decoded.getWidth(), decoded.getHeight());
+                drawRoundedBitmap(new Canvas(bitmap), decoded);
+            } catch (OutOfMemoryError e) {
+                MyLog.w(objTag, getInfo(), e);
+                onOutOfMemory();
+                bitmap = null;
+            } finally {
+                pool.put(decoded);
+            }
+            if (bitmap == null) {
+                return null;
+            }
         }
-        bitmap.recycle();
-        return new BitmapSubsetDrawable(background, srcRect);
+        return new BitmapSubsetDrawable(bitmap, new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight()));
     }
 
     /**
@@ -199,23 +206,19 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         canvas.drawOval(rectF, paint);
     }
 
-    private Bitmap getSuitableRecycledBitmap(Rect srcRect) {
-        return recycledBitmaps.poll();
-    }
-
     @Nullable
     private Bitmap loadBitmap(Object objTag, String path) {
         Bitmap bitmap = null;
+        BitmapFactory.Options bounds = decodeBounds(path);
+        Point imageSize = new Point(bounds.outWidth, bounds.outHeight);
         if (MyPreferences.getShowDebuggingInfoInUi()) {
-            bitmap = BitmapFactory
-                    .decodeFile(path, calculateScaling(objTag, getImageSize(path)));
+            bitmap = decodeIntoPooled(path, calculateScaling(objTag, imageSize), imageSize, bounds.outMimeType);
         } else {
             try {
-                bitmap = BitmapFactory
-                        .decodeFile(path, calculateScaling(objTag, getImageSize(path)));
+                bitmap = decodeIntoPooled(path, calculateScaling(objTag, imageSize), imageSize, bounds.outMimeType);
             } catch (OutOfMemoryError e) {
                 MyLog.w(objTag, getInfo(), e);
-                evictAll();
+                onOutOfMemory();
             }
         }
         if (MyLog.isVerboseEnabled()) {
@@ -226,6 +229,83 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         return bitmap;
     }
 
+    /** Thumbnails are made for the caches' bounds, so they are decoded as they are */
+    @Nullable
+    private Bitmap loadThumbnail(Object objTag, File thumbnail) {
+        String path = thumbnail.getAbsolutePath();
+        BitmapFactory.Options bounds = decodeBounds(path);
+        if (bounds.outWidth < 1 || bounds.outHeight < 1
+                || bounds.outWidth > maxBitmapWidth || bounds.outHeight > maxBitmapHeight) {
+            // Broken or made for larger bounds
+            return null;
+        }
+        try {
+            return decodeIntoPooled(path, new BitmapFactory.Options(), new Point(bounds.outWidth, bounds.outHeight),
+                    bounds.outMimeType);
+        } catch (OutOfMemoryError e) {
+            MyLog.w(objTag, getInfo(), e);
+            onOutOfMemory();
+        }
+        return null;
+    }
+
+    private static BitmapFactory.Options decodeBounds(String path) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        return options;
+    }
+
+    /**
+     * Decodes the image directly into a pooled bitmap, if there is a suitable one.
+     * Before KitKat sampled images cannot be decoded into existing bitmaps
+     */
+    @Nullable
+    private Bitmap decodeIntoPooled(String path, BitmapFactory.Options options, Point imageSize, String mimeType) {
+        options.inMutable = true;
+        options.inPreferredConfig = getBitmapConfig(mimeType);
+        int sampleSize = Math.max(1, options.inSampleSize);
+        if (imageSize.x > 0 && imageSize.y > 0
+                && (sampleSize == 1 || Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)) {
+            // Not less than the decoder may need
+            options.inBitmap = pool.get((imageSize.x + sampleSize - 1) / sampleSize,
+                    (imageSize.y + sampleSize - 1) / sampleSize, options.inPreferredConfig);
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+        if (bitmap == null && options.inBitmap != null) {
+            // The image couldn't be decoded into that bitmap, e.g. because of its format
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(path, options);
+        }
+        return bitmap;
+    }
+
+    /** Rounded bitmaps need transparency, JPEGs are opaque */
+    private Bitmap.Config getBitmapConfig(String mimeType) {
+        return !rounded && "image/jpeg".equals(mimeType) ? opaqueBitmapConfig : BITMAP_CONFIG;
+    }
+
+    @Override
+    public void trimMemory(float fraction) {
+        trimToSize(Math.round(size() * fraction));
+        pool.clear();
+    }
+
+    @Override
+    public long getBytesHeld() {
+        long bytes = pool.getBytes();
+        for (BitmapSubsetDrawable drawable : snapshot().values()) {
+            bytes += BitmapPool.getByteCount(drawable.getBitmap());
+        }
+        return bytes;
+    }
+
+    private void onOutOfMemory() {
+        evictAll();
+        pool.clear();
+    }
+
     public Point getImageSize(String path) {
         if (!TextUtils.isEmpty(path)) {
             Drawable drawable = get(path);
@@ -263,17 +343,14 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
     public String getInfo() {
         StringBuilder builder = new StringBuilder(name);
         builder.append(": " + maxBitmapWidth + "x" + maxBitmapHeight + ", "
-                + size() + " of " + currentCacheSize);
-        if (requestedCacheSize != currentCacheSize) {
-            builder.append(" (initially capacity was " + requestedCacheSize + ")");
-        }
-        builder.append(", free: " + recycledBitmaps.size());
+                + size() + " of " + requestedCacheSize);
         if (!brokenBitmaps.isEmpty()) {
             builder.append(", broken: " + brokenBitmaps.size());
         }
         long accesses = hits.get() + misses.get();
         builder.append(", hits:" + hits.get() + ", misses:" + misses.get()
                 + (accesses == 0 ? "" : ", hitRate:" + hits.get() * 100 / accesses + "%"));
+        builder.append("; " + pool.getInfo());
         return builder.toString();
     }
 
@@ -281,6 +358,10 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         return maxBitmapWidth;
     }
 
+    public int getMaxBitmapHeight() {
+        return maxBitmapHeight;
+    }
+
     private final void setMaxBounds(int x, int y) {
         if ( x < 1 || y < 1) {
             MyLog.e(this, MyLog.getStackTrace(
@@ -19,6 +19,7 @@ package org.andstatus.app.graphics;
 import android.annotation.TargetApi;
 import android.app.ActivityManager;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Point;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
@@ -33,9 +34,11 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.MyTheme;
 import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.util.I18n;
+import org.andstatus.app.util.MemoryGovernor;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
+import java.io.File;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -63,6 +66,29 @@ public class MyImageCache {
         }
         initializeAttachedImagesCache(context);
         initializeAvatarsCache(context);
+        MemoryGovernor.register(attachedImagesCache.name, attachedImagesCache);
+        MemoryGovernor.register(avatarsCache.name, avatarsCache);
+        MemoryGovernor.register("Styled drawables", new MemoryGovernor.Consumer() {
+            @Override
+            public void trimMemory(float fraction) {
+                if (fraction == 0) {
+                    styledDrawables.clear();
+                }
+            }
+
+            @Override
+            public long getBytesHeld() {
+                long bytes = 0;
+                for (Drawable[] drawables : styledDrawables.values()) {
+                    for (Drawable drawable : drawables) {
+                        if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() != null) {
+                            bytes += BitmapPool.getByteCount(((BitmapDrawable) drawable).getBitmap());
+                        }
+                    }
+                }
+                return bytes;
+            }
+        });
         MyLog.i(MyImageCache.class.getSimpleName(), "Cache initialized. " + getCacheInfo());
     }
 
@@ -84,6 +110,7 @@ public class MyImageCache {
         }
         attachedImagesCache = new MyDrawableCache(context, "Attached images", imageSize,
                 cacheSize);
+        attachedImagesCache.opaqueBitmapConfig = Bitmap.Config.RGB_565;
     }
 
     private static void initializeAvatarsCache(Context context) {
@@ -105,8 +132,30 @@ public class MyImageCache {
     }
 
     public static void setAvatarsRounded() {
-        avatarsCache.evictAll();
-        avatarsCache.rounded = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_ROUNDED_AVATARS, true);
+        MyDrawableCache cache = getAvatarsCache();
+        cache.evictAll();
+        cache.rounded = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_ROUNDED_AVATARS, true);
+    }
+
+    /** The caches are initialized in background after the start, or on the first use */
+    @NonNull
+    private static MyDrawableCache getAttachedImagesCache() {
+        MyDrawableCache cache = attachedImagesCache;
+        if (cache == null) {
+            initialize(MyContextHolder.get().context());
+            cache = attachedImagesCache;
+        }
+        return cache;
+    }
+
+    @NonNull
+    private static MyDrawableCache getAvatarsCache() {
+        MyDrawableCache cache = avatarsCache;
+        if (cache == null) {
+            initialize(MyContextHolder.get().context());
+            cache = avatarsCache;
+        }
+        return cache;
     }
 
     private static int calcCacheSize(Context context, int imageSize, float partOfAvailableMemory) {
@@ -137,24 +186,38 @@ public class MyImageCache {
 
     @NonNull
     public static Point getAttachedImageSize(String path) {
-        return attachedImagesCache.getImageSize(path);
+        return getAttachedImagesCache().getImageSize(path);
+    }
+
+    /** @return size of the image, see {@link ImageThumbnails#make(File, int, int, boolean)} */
+    @NonNull
+    public static Point makeAttachedImageThumbnail(File image) {
+        MyDrawableCache cache = getAttachedImagesCache();
+        return ImageThumbnails.make(image, cache.getMaxBitmapWidth(), cache.getMaxBitmapHeight(), false);
+    }
+
+    /** The avatar is pre-rounded, if avatars are shown rounded */
+    @NonNull
+    public static Point makeAvatarThumbnail(File image) {
+        MyDrawableCache cache = getAvatarsCache();
+        return ImageThumbnails.make(image, cache.getMaxBitmapWidth(), cache.getMaxBitmapHeight(), cache.rounded);
     }
 
     @Nullable
     public static Drawable getAvatarDrawable(Object objTag, String path) {
-        return avatarsCache.getDrawable(objTag, path);
+        return getAvatarsCache().getDrawable(objTag, path);
     }
 
     public static int getAvatarWidthPixels() {
-        return avatarsCache.getMaxBitmapWidth();
+        return getAvatarsCache().getMaxBitmapWidth();
     }
 
     public static Drawable getCachedAttachedImageDrawable(Object objTag, String path) {
-        return attachedImagesCache.getCachedDrawable(objTag, path);
+        return getAttachedImagesCache().getCachedDrawable(objTag, path);
     }
 
     public static Drawable getAttachedImageDrawable(Object objTag, String path) {
-        return attachedImagesCache.getDrawable(objTag, path);
+        return getAttachedImagesCache().getDrawable(objTag, path);
     }
 
     public static String getCacheInfo() {
@@ -165,6 +228,7 @@ public class MyImageCache {
             builder.append(avatarsCache.getInfo() + "\n");
             builder.append(attachedImagesCache.getInfo() + "\n");
             builder.append("Styled drawables: " + styledDrawables.size() + "\n");
+            builder.append(AttachedImageLoader.getInfo() + "\n");
         }
         Context context = MyContextHolder.get().context();
         if (context != null) {
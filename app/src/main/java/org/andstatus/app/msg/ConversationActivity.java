@@ -27,9 +27,12 @@ import org.andstatus.app.ActivityRequestCode;
 import org.andstatus.app.IntentExtra;
 import org.andstatus.app.LoadableListActivity;
 import org.andstatus.app.R;
+import org.andstatus.app.WhichPage;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.service.CommandData;
+import org.andstatus.app.service.CommandEnum;
+import org.andstatus.app.service.MyServiceEvent;
 import org.andstatus.app.service.QueueViewer;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
@@ -37,6 +40,8 @@ import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.UriUtils;
 import org.andstatus.app.widget.MyBaseAdapter;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * One selected message and, optionally, the whole conversation
  * 
@@ -45,6 +50,8 @@ import org.andstatus.app.widget.MyBaseAdapter;
 public class ConversationActivity extends LoadableListActivity implements ActionableMessageList {
     private MessageContextMenu mContextMenu;
     private MessageEditor mMessageEditor;
+    private static final String LOAD_FROM_DATABASE_ONLY = "LOAD_FROM_DATABASE_ONLY";
+    private final AtomicBoolean conversationRequested = new AtomicBoolean();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -96,6 +103,19 @@ public class ConversationActivity extends LoadableListActivity implements Action
         super.onPause();
     }
 
+    @Override
+    public void onReceive(CommandData commandData, MyServiceEvent event) {
+        super.onReceive(commandData, event);
+        if (event == MyServiceEvent.PROGRESS_EXECUTING_COMMAND
+                && commandData.getCommand() == CommandEnum.GET_CONVERSATION
+                && commandData.getResult().getDownloadedCount() > 0) {
+            // Messages are being fetched, so we don't request them again
+            Bundle args = WhichPage.CURRENT.toBundle();
+            args.putBoolean(LOAD_FROM_DATABASE_ONLY, true);
+            showList(args);
+        }
+    }
+
     @Override
     protected void onReceiveAfterExecutingCommand(CommandData commandData) {
         super.onReceiveAfterExecutingCommand(commandData);
@@ -177,8 +197,11 @@ public class ConversationActivity extends LoadableListActivity implements Action
     
     @Override
     protected SyncLoader newSyncLoader(Bundle args) {
-        return new ConversationLoader<>(ConversationViewItem.class,
+        ConversationLoader<ConversationViewItem> loader = new ConversationLoader<>(ConversationViewItem.class,
                 getMyContext(), getCurrentMyAccount(), centralItemId);
+        loader.setConversationRequested(args != null && args.getBoolean(LOAD_FROM_DATABASE_ONLY)
+                ? new AtomicBoolean(true) : conversationRequested);
+        return loader;
     }
 
     @Override
@@ -21,6 +21,9 @@ import android.database.Cursor;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.MsgTable;
 
+import java.util.HashSet;
+import java.util.Set;
+
 public abstract class ConversationItem extends MessageViewItem implements Comparable<ConversationItem> {
     long mInReplyToMsgId = 0;
 
@@ -36,6 +39,11 @@ public abstract class ConversationItem extends MessageViewItem implements Compar
     int mNParentReplies = 0;
     int mIndentLevel = 0;
     int mReplyLevel = 0;
+    /**
+     * Users, who reblogged this message, found in the rows of the message.
+     * The loader adds other rebloggers and their names to {@link #rebloggers} for all messages at once
+     */
+    final Set<Long> rebloggerIds = new HashSet<>();
     
     /**
      * The newest replies are first, "branches" look up
@@ -57,6 +65,11 @@ public abstract class ConversationItem extends MessageViewItem implements Compar
         return compared;
     }
 
+    /** @return true if {@link #rebloggers} are shown, so they should be loaded */
+    boolean isRebloggersNeeded() {
+        return false;
+    }
+
     public boolean isLoaded() {
         return createdDate > 0;
     }
@@ -79,10 +92,29 @@ public abstract class ConversationItem extends MessageViewItem implements Compar
     }
 
     abstract String[] getProjection();
-    
+
+    /**
+     * Loads the message from the current row of the cursor.
+     * The implementation may read several consecutive rows of this message, but it should leave
+     * the cursor at the last row of this message, so rows of several messages may be in one cursor
+     */
     void load(Cursor cursor) {
         mInReplyToMsgId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_MSG_ID);
         createdDate = DbUtils.getLong(cursor, MsgTable.CREATED_DATE);
     }
+
+    /**
+     * @return false if there are no more rows of this message. The cursor is at the last row of it then
+     */
+    boolean moveToNextRowOfThisMessage(Cursor cursor) {
+        if (!cursor.moveToNext()) {
+            return false;
+        }
+        if (DbUtils.getLong(cursor, MsgTable._ID) == getMsgId()) {
+            return true;
+        }
+        cursor.moveToPrevious();
+        return false;
+    }
     
 }
@@ -17,7 +17,12 @@
 package org.andstatus.app.msg;
 
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
 
 import org.andstatus.app.LoadableListActivity;
 import org.andstatus.app.LoadableListActivity.ProgressPublisher;
@@ -28,6 +33,10 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MatchedUri;
 import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.ProjectionMap;
+import org.andstatus.app.database.MsgOfUserTable;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.database.UserTable;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.MyServiceManager;
@@ -36,20 +45,35 @@ import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TFactory;
+import org.andstatus.app.util.TriState;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ConversationLoader<T extends ConversationItem> implements SyncLoader {
     private static final int MAX_INDENT_LEVEL = 19;
+    /** Number of messages to load from the database by one query */
+    private static final int LOAD_BATCH_SIZE = 500;
+    /** Recursive common table expressions are supported since SQLite 3.8.3 (Android 5.0) */
+    private static final int[] RECURSIVE_QUERY_MIN_SQLITE_VERSION = {3, 8, 3};
+    /** Decided once by the version of SQLite */
+    static volatile TriState recursiveQuerySupported = TriState.UNKNOWN;
     
     private final MyContext myContext;
     private final MyAccount ma;
     private final long selectedMessageId;
     private boolean mAllowLoadingFromInternet = false;
+    /** One command fetches all missing messages, so it is sent once for all reloads of the list */
+    private AtomicBoolean conversationRequested = new AtomicBoolean();
     private final ReplyLevelComparator<T> replyLevelComparator = new ReplyLevelComparator<>();
     private final TFactory<T> tFactory;
 
@@ -60,7 +84,8 @@ public class ConversationLoader<T extends ConversationItem> implements SyncLoade
         return mMsgs;
     }
 
-    final List<Long> idsOfTheMessagesToFind = new ArrayList<>();
+    final Set<Long> idsOfTheMessagesToFind = new HashSet<>();
+    private final Set<Long> idsOfTheMessagesInList = new HashSet<>();
 
     public ConversationLoader(Class<T> tClass, MyContext myContext, MyAccount ma, long selectedMessageId) {
         tFactory = new TFactory<>(tClass);
@@ -73,8 +98,19 @@ public class ConversationLoader<T extends ConversationItem> implements SyncLoade
     public void load(ProgressPublisher publisher) {
         mProgress = publisher;
         idsOfTheMessagesToFind.clear();
+        idsOfTheMessagesInList.clear();
         mMsgs.clear();
-        findPreviousMessagesRecursively(newOMsg(selectedMessageId, 0));
+        if (!loadConversationByRecursiveQuery()) {
+            findPreviousMessagesRecursively(newOMsg(selectedMessageId, 0));
+        }
+        loadRebloggers();
+        layOut();
+    }
+
+    /**
+     * Sorts the loaded messages and sets their order and indentation. O(n log n)
+     */
+    void layOut() {
         Collections.sort(mMsgs, replyLevelComparator);
         enumerateMessages();
         if (SharedPreferencesUtil.getBoolean(
@@ -84,6 +120,245 @@ public class ConversationLoader<T extends ConversationItem> implements SyncLoade
         Collections.sort(mMsgs);
     }
 
+    /**
+     * Finds the whole conversation: the ancestors of the selected message
+     * and all replies to them (recursively) by one query,
+     * and then loads the found messages in batches
+     * @return false if the recursive query is not supported, and nothing was loaded
+     */
+    private boolean loadConversationByRecursiveQuery() {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.v(this, "loadConversationByRecursiveQuery; Database is null");
+            return false;
+        }
+        if (!isRecursiveQuerySupported(db)) {
+            return false;
+        }
+        Map<Long, T> members;
+        try {
+            members = findConversationMembers(db);
+        } catch (SQLiteException e) {
+            MyLog.w(this, "Recursive query failed, falling back to per message queries", e);
+            return false;
+        }
+        loadMessagesFromDatabase(members);
+        for (T oMsg : members.values()) {
+            if (oMsg.isLoaded()) {
+                addMessageToList(oMsg);
+            } else if (mAllowLoadingFromInternet) {
+                loadFromInternet(oMsg.getMsgId());
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRecursiveQuerySupported(SQLiteDatabase db) {
+        if (recursiveQuerySupported == TriState.UNKNOWN) {
+            String version;
+            try {
+                version = DatabaseUtils.stringForQuery(db, "SELECT sqlite_version()", null);
+            } catch (SQLiteException e) {
+                MyLog.w(ConversationLoader.class, "Couldn't get the version of SQLite", e);
+                return false;
+            }
+            recursiveQuerySupported = TriState.fromBoolean(
+                    isVersionAtLeast(version, RECURSIVE_QUERY_MIN_SQLITE_VERSION));
+            MyLog.v(ConversationLoader.class, "SQLite " + version + ", recursive query "
+                    + (recursiveQuerySupported == TriState.TRUE ? "is" : "is not") + " supported");
+        }
+        return recursiveQuerySupported == TriState.TRUE;
+    }
+
+    /** @param version Dot separated numbers, e.g. "3.8.10.2" */
+    static boolean isVersionAtLeast(String version, int[] minVersion) {
+        String[] parts = TextUtils.isEmpty(version) ? new String[0] : version.split("\\.");
+        for (int ind = 0; ind < minVersion.length; ind++) {
+            int number = 0;
+            if (ind < parts.length) {
+                try {
+                    number = Integer.parseInt(parts[ind].trim());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            if (number != minVersion[ind]) {
+                return number > minVersion[ind];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return conversation members with known reply levels and numbers of replies
+     */
+    private Map<Long, T> findConversationMembers(SQLiteDatabase db) {
+        // Ancestors are followed up through loaded messages only, replies - through all messages
+        String sql = "WITH RECURSIVE"
+                + " ancestor(" + MsgTable._ID + "," + MsgTable.IN_REPLY_TO_MSG_ID + "," + MsgTable.CREATED_DATE + ")"
+                + " AS (SELECT " + MsgTable._ID + "," + MsgTable.IN_REPLY_TO_MSG_ID + "," + MsgTable.CREATED_DATE
+                + " FROM " + MsgTable.TABLE_NAME + " WHERE " + MsgTable._ID + "=" + selectedMessageId
+                + " UNION SELECT msg." + MsgTable._ID + ", msg." + MsgTable.IN_REPLY_TO_MSG_ID
+                + ", msg." + MsgTable.CREATED_DATE
+                + " FROM " + MsgTable.TABLE_NAME + " AS msg INNER JOIN ancestor"
+                + " ON msg." + MsgTable._ID + "=ancestor." + MsgTable.IN_REPLY_TO_MSG_ID
+                + " WHERE ancestor." + MsgTable.CREATED_DATE + ">0),"
+                + " member(" + MsgTable._ID + "," + MsgTable.IN_REPLY_TO_MSG_ID + ")"
+                + " AS (SELECT " + MsgTable._ID + "," + MsgTable.IN_REPLY_TO_MSG_ID + " FROM ancestor"
+                + " UNION SELECT msg." + MsgTable._ID + ", msg." + MsgTable.IN_REPLY_TO_MSG_ID
+                + " FROM " + MsgTable.TABLE_NAME + " AS msg INNER JOIN member"
+                + " ON msg." + MsgTable.IN_REPLY_TO_MSG_ID + "=member." + MsgTable._ID + ")"
+                + " SELECT " + MsgTable._ID + "," + MsgTable.IN_REPLY_TO_MSG_ID + " FROM member";
+        Map<Long, T> members = new HashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                long msgId = cursor.getLong(0);
+                if (msgId != 0 && !members.containsKey(msgId)) {
+                    T oMsg = newOMsg(msgId, 0);
+                    oMsg.mInReplyToMsgId = cursor.getLong(1);
+                    members.put(msgId, oMsg);
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        if (!members.containsKey(selectedMessageId)) {
+            members.put(selectedMessageId, newOMsg(selectedMessageId, 0));
+        }
+        setReplyLevels(members);
+        MyLog.v(this, "findConversationMembers id=" + selectedMessageId + ", found " + members.size());
+        return members;
+    }
+
+    private void setReplyLevels(Map<Long, T> members) {
+        Map<Long, List<T>> replies = new HashMap<>();
+        for (T oMsg : members.values()) {
+            if (members.containsKey(oMsg.mInReplyToMsgId)) {
+                List<T> list = replies.get(oMsg.mInReplyToMsgId);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    replies.put(oMsg.mInReplyToMsgId, list);
+                }
+                list.add(oMsg);
+            }
+        }
+        for (Map.Entry<Long, List<T>> entry : replies.entrySet()) {
+            members.get(entry.getKey()).mNReplies = entry.getValue().size();
+        }
+        T selected = members.get(selectedMessageId);
+        if (selected == null) {
+            return;
+        }
+        T root = selected;
+        int rootLevel = 0;
+        for (int count = 0; count < members.size(); count++) {
+            T parent = members.get(root.mInReplyToMsgId);
+            if (parent == null || parent == selected) {
+                break;
+            }
+            root = parent;
+            rootLevel--;
+        }
+        List<T> branch = new ArrayList<>();
+        root.mReplyLevel = rootLevel;
+        branch.add(root);
+        for (int ind = 0; ind < branch.size() && ind < members.size(); ind++) {
+            T oMsg = branch.get(ind);
+            List<T> list = replies.get(oMsg.getMsgId());
+            if (list != null) {
+                for (T reply : list) {
+                    reply.mReplyLevel = oMsg.mReplyLevel + 1;
+                    branch.add(reply);
+                }
+            }
+        }
+    }
+
+    private void loadMessagesFromDatabase(Map<Long, T> members) {
+        Uri uri = MatchedUri.getTimelineUri(Timeline.getTimeline(TimelineType.EVERYTHING, ma, 0, null));
+        for (List<Long> batch : toBatches(members.keySet())) {
+            String selection = ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable._ID
+                    + " IN (" + TextUtils.join(",", batch) + ")";
+            String sortOrder = ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable._ID;
+            Cursor cursor = null;
+            try {
+                cursor = myContext.context().getContentResolver().query(uri,
+                        members.get(batch.get(0)).getProjection(), selection, null, sortOrder);
+                while (cursor != null && cursor.moveToNext()) {
+                    T oMsg = members.get(DbUtils.getLong(cursor, MsgTable._ID));
+                    if (oMsg != null && !oMsg.isLoaded()) {
+                        oMsg.load(cursor);
+                    }
+                }
+            } finally {
+                DbUtils.closeSilently(cursor);
+            }
+        }
+    }
+
+    /** Adds rebloggers of all loaded messages and their names by a query per {@link #LOAD_BATCH_SIZE} ids */
+    private void loadRebloggers() {
+        Map<Long, T> msgs = new HashMap<>();
+        for (T oMsg : mMsgs) {
+            if (oMsg.isRebloggersNeeded()) {
+                msgs.put(oMsg.getMsgId(), oMsg);
+            }
+        }
+        SQLiteDatabase db = myContext.getDatabase();
+        if (msgs.isEmpty() || db == null) {
+            return;
+        }
+        String sql = "SELECT " + MsgOfUserTable.MSG_ID + "," + MsgOfUserTable.USER_ID
+                + " FROM " + MsgOfUserTable.TABLE_NAME
+                + " WHERE " + MsgOfUserTable.REBLOGGED + "=1 AND " + MsgOfUserTable.MSG_ID + " IN (";
+        for (List<Long> batch : toBatches(msgs.keySet())) {
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery(sql + TextUtils.join(",", batch) + ")", null);
+                while (cursor.moveToNext()) {
+                    msgs.get(cursor.getLong(0)).rebloggerIds.add(cursor.getLong(1));
+                }
+            } finally {
+                DbUtils.closeSilently(cursor);
+            }
+        }
+        Set<Long> userIds = new HashSet<>();
+        for (T oMsg : msgs.values()) {
+            userIds.addAll(oMsg.rebloggerIds);
+        }
+        Map<Long, String> names = new HashMap<>();
+        sql = "SELECT " + UserTable._ID + "," + UserTable.WEBFINGER_ID
+                + " FROM " + UserTable.TABLE_NAME + " WHERE " + UserTable._ID + " IN (";
+        for (List<Long> batch : toBatches(userIds)) {
+            Cursor cursor = null;
+            try {
+                cursor = db.rawQuery(sql + TextUtils.join(",", batch) + ")", null);
+                while (cursor.moveToNext()) {
+                    names.put(cursor.getLong(0), cursor.getString(1));
+                }
+            } finally {
+                DbUtils.closeSilently(cursor);
+            }
+        }
+        for (T oMsg : msgs.values()) {
+            for (long userId : oMsg.rebloggerIds) {
+                String name = names.get(userId);
+                oMsg.rebloggers.put(userId, name == null ? "" : name);
+            }
+        }
+    }
+
+    private static List<List<Long>> toBatches(Collection<Long> ids) {
+        List<Long> list = new ArrayList<>(ids);
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += LOAD_BATCH_SIZE) {
+            batches.add(list.subList(from, Math.min(from + LOAD_BATCH_SIZE, list.size())));
+        }
+        return batches;
+    }
+
     private void findPreviousMessagesRecursively(T oMsg) {
         if (!addMessageIdToFind(oMsg.getMsgId())) {
             return;
@@ -109,11 +384,10 @@ public class ConversationLoader<T extends ConversationItem> implements SyncLoade
     private boolean addMessageIdToFind(long msgId) {
         if (msgId == 0) {
             return false;
-        } else if (idsOfTheMessagesToFind.contains(msgId)) {
+        } else if (!idsOfTheMessagesToFind.add(msgId)) {
             MyLog.v(this, "findMessages cycled on the id=" + msgId);
             return false;
         }
-        idsOfTheMessagesToFind.add(msgId);
         return true;
     }
 
@@ -151,7 +425,7 @@ public class ConversationLoader<T extends ConversationItem> implements SyncLoade
 
     private boolean addMessageToList(T oMsg) {
         boolean added = false;
-        if (mMsgs.contains(oMsg)) {
+        if (!idsOfTheMessagesInList.add(oMsg.getMsgId())) {
             MyLog.v(this, "Message id=" + oMsg.getMsgId() + " is in the list already");
         } else {
             mMsgs.add(oMsg);
@@ -163,10 +437,19 @@ public class ConversationLoader<T extends ConversationItem> implements SyncLoade
         return added;
     }
 
+    /** @param conversationRequested true means that missing messages are loaded from the database only */
+    public void setConversationRequested(@NonNull AtomicBoolean conversationRequested) {
+        this.conversationRequested = conversationRequested;
+    }
+
     private void loadFromInternet(long msgId) {
+        if (!conversationRequested.compareAndSet(false, true)) {
+            MyLog.v(this, "Conversation is requested already, message id=" + msgId);
+            return;
+        }
         MyLog.v(this, "Message id=" + msgId + " will be loaded from the Internet");
         MyServiceManager.sendForegroundCommand(
-                CommandData.newItemCommand(CommandEnum.GET_STATUS, ma, msgId));
+                CommandData.newItemCommand(CommandEnum.GET_CONVERSATION, ma, msgId));
     }
 
     private static class ReplyLevelComparator<T extends ConversationItem> implements Comparator<T>, Serializable {
@@ -194,12 +477,32 @@ public class ConversationLoader<T extends ConversationItem> implements SyncLoade
         int list = -1;
         int history = 1;
     }
-    
+
+    private static class BranchItem {
+        final ConversationItem oMsg;
+        final int indent;
+
+        BranchItem(ConversationItem oMsg, int indent) {
+            this.oMsg = oMsg;
+            this.indent = indent;
+        }
+    }
+
     private void enumerateMessages() {
         idsOfTheMessagesToFind.clear();
-        for (ConversationItem oMsg : mMsgs) {
+        Map<Long, List<ConversationItem>> replies = new HashMap<>();
+        for (int ind = mMsgs.size() - 1; ind >= 0; ind--) {
+            ConversationItem oMsg = mMsgs.get(ind);
             oMsg.mListOrder = 0;
             oMsg.mHistoryOrder = 0;
+            if (oMsg.mInReplyToMsgId != 0) {
+                List<ConversationItem> list = replies.get(oMsg.mInReplyToMsgId);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    replies.put(oMsg.mInReplyToMsgId, list);
+                }
+                list.add(oMsg);
+            }
         }
         OrderCounters order = new OrderCounters();
         for (int ind = mMsgs.size()-1; ind >= 0; ind--) {
@@ -207,28 +510,37 @@ public class ConversationLoader<T extends ConversationItem> implements SyncLoade
             if (oMsg.mListOrder < 0 ) {
                 continue;
             }
-            enumerateBranch(oMsg, order, 0);
+            enumerateBranch(oMsg, replies, order);
         }
     }
 
-    private void enumerateBranch(ConversationItem oMsg, OrderCounters order, int indent) {
-        if (!addMessageIdToFind(oMsg.getMsgId())) {
-            return;
-        }
-        int indentNext = indent;
-        oMsg.mHistoryOrder = order.history++;
-        oMsg.mListOrder = order.list--;
-        oMsg.mIndentLevel = indent;
-        if ((oMsg.mNReplies > 1 || oMsg.mNParentReplies > 1)
-                && indentNext < MAX_INDENT_LEVEL) {
-            indentNext++;
-        }
-        for (int ind = mMsgs.size() - 1; ind >= 0; ind--) {
-           ConversationItem reply = mMsgs.get(ind);
-           if (reply.mInReplyToMsgId == oMsg.getMsgId()) {
-               reply.mNParentReplies = oMsg.mNReplies;
-               enumerateBranch(reply, order, indentNext);
-           }
+    /** Depth-first walk through the branch without recursion, so long threads don't overflow the stack */
+    private void enumerateBranch(ConversationItem branchRoot, Map<Long, List<ConversationItem>> replies,
+                                 OrderCounters order) {
+        List<BranchItem> stack = new ArrayList<>();
+        stack.add(new BranchItem(branchRoot, 0));
+        while (!stack.isEmpty()) {
+            BranchItem item = stack.remove(stack.size() - 1);
+            ConversationItem oMsg = item.oMsg;
+            if (!addMessageIdToFind(oMsg.getMsgId())) {
+                continue;
+            }
+            int indentNext = item.indent;
+            oMsg.mHistoryOrder = order.history++;
+            oMsg.mListOrder = order.list--;
+            oMsg.mIndentLevel = item.indent;
+            if ((oMsg.mNReplies > 1 || oMsg.mNParentReplies > 1)
+                    && indentNext < MAX_INDENT_LEVEL) {
+                indentNext++;
+            }
+            List<ConversationItem> list = replies.get(oMsg.getMsgId());
+            if (list != null) {
+                for (int ind = list.size() - 1; ind >= 0; ind--) {
+                    ConversationItem reply = list.get(ind);
+                    reply.mNParentReplies = oMsg.mNReplies;
+                    stack.add(new BranchItem(reply, indentNext));
+                }
+            }
         }
     }
 
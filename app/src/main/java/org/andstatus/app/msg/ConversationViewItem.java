@@ -26,16 +26,12 @@ import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.DownloadStatus;
-import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.TimelineSql;
 import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.database.UserTable;
 import org.andstatus.app.util.MyHtml;
 
-import java.util.HashSet;
-import java.util.Set;
-
 public class ConversationViewItem extends ConversationItem {
     String mAuthor = "";
     
@@ -52,13 +48,14 @@ public class ConversationViewItem extends ConversationItem {
         return TimelineSql.getConversationProjection();        
     }
 
+    @Override
+    boolean isRebloggersNeeded() {
+        return true;
+    }
+
     @Override
     void load(Cursor cursor) {
-        /**
-         * IDs of all known senders of this message except for the Author
-         * These "senders" reblogged the message
-         */
-        Set<Long> rebloggerIds = new HashSet<>();
+        // Known senders of this message except for the Author reblogged the message
         int ind=0;
         do {
             long senderId = DbUtils.getLong(cursor, MsgTable.SENDER_ID);
@@ -100,16 +97,6 @@ public class ConversationViewItem extends ConversationItem {
             }
             
             ind++;
-        } while (cursor.moveToNext());
-
-        for (long rebloggerId : MyQuery.getRebloggers(getMsgId())) {
-            if (!rebloggerIds.contains(rebloggerId)) {
-                rebloggerIds.add(rebloggerId);
-            }
-        }
-
-        for (long rebloggerId : rebloggerIds) {
-            rebloggers.put(rebloggerId, MyQuery.userIdToWebfingerId(rebloggerId));
-        }
+        } while (moveToNextRowOfThisMessage(cursor));
     }
 }
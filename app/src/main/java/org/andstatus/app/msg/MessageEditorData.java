@@ -145,6 +145,7 @@ public class MessageEditorData {
             if (data.image.getStatus() == DownloadStatus.LOADED) {
                 AttachedImageFile imageFile = new AttachedImageFile(data.image.getDownloadId(),
                         data.image.getFilename());
+                imageFile.setSize(data.image.getWidth(), data.image.getHeight());
                 data.imageSize = imageFile.getSize();
                 data.imageDrawable = imageFile.getDrawableSync();
             }
@@ -24,6 +24,7 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.TextFingerprint;
 import org.andstatus.app.widget.DuplicatesCollapsible;
 import org.andstatus.app.widget.DuplicationLink;
 import org.apache.commons.lang3.StringEscapeUtils;
@@ -43,6 +44,12 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem> {
     private long originId;
 
     String body = "";
+    private long bodyFingerprint = TextFingerprint.UNKNOWN;
+    /** The body for which {@link #bodyFingerprint} is valid */
+    private String bodyOfFingerprint = null;
+    private String cleanedBody = "";
+    /** The body for which {@link #cleanedBody} is valid */
+    private String bodyOfCleanedBody = null;
 
     boolean favorited = false;
     Map<Long, String> rebloggers = new HashMap<>();
@@ -118,6 +125,10 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem> {
         return children;
     }
 
+    void setChildren(@NonNull List<TimelineViewItem> children) {
+        this.children = children;
+    }
+
     @Override
     public DuplicationLink duplicates(MessageViewItem other) {
         DuplicationLink link = DuplicationLink.NONE;
@@ -129,28 +140,60 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem> {
         }
         if (link == DuplicationLink.NONE) {
             if (Math.abs(createdDate - other.createdDate) < TimeUnit.HOURS.toMillis(24)) {
-                String thisBody = getCleanedBody(body);
-                String otherBody = getCleanedBody(other.body);
+                String thisBody = getCleanedBody();
+                String otherBody = other.getCleanedBody();
                 if (thisBody.equals(otherBody)) {
-                    if (createdDate == other.createdDate) {
-                        link = duplicatesByFavoritedAndReblogged(other);
-                    } else if (createdDate < other.createdDate) {
-                        link = DuplicationLink.IS_DUPLICATED;
-                    } else {
-                        link = DuplicationLink.DUPLICATES;
-                    }
+                    link = duplicatesByCreatedDate(other);
                 } else if (thisBody.contains(otherBody)) {
                     link = DuplicationLink.DUPLICATES;
                 } else if (otherBody.contains(thisBody)) {
                     link = DuplicationLink.IS_DUPLICATED;
+                } else if (TextFingerprint.areNear(getBodyFingerprint(), other.getBodyFingerprint())) {
+                    link = duplicatesByCreatedDate(other);
                 }
             }
         }
         return link;
     }
 
+    private DuplicationLink duplicatesByCreatedDate(MessageViewItem other) {
+        if (createdDate == other.createdDate) {
+            return duplicatesByFavoritedAndReblogged(other);
+        } else if (createdDate < other.createdDate) {
+            return DuplicationLink.IS_DUPLICATED;
+        } else {
+            return DuplicationLink.DUPLICATES;
+        }
+    }
+
+    /** Fingerprint of the current body, e.g. stored in the database */
+    void setBodyFingerprint(long bodyFingerprint) {
+        this.bodyFingerprint = bodyFingerprint;
+        bodyOfFingerprint = body;
+    }
+
+    /**
+     * @return {@link TextFingerprint} of the body, calculated now if it wasn't stored yet.
+     * The body is compared by reference intentionally: we only need to know if it was replaced
+     */
+    long getBodyFingerprint() {
+        if (bodyOfFingerprint != body || bodyFingerprint == TextFingerprint.UNKNOWN) {
+            setBodyFingerprint(TextFingerprint.fromBody(body));
+        }
+        return bodyFingerprint;
+    }
+
+    @NonNull
+    private String getCleanedBody() {
+        if (bodyOfCleanedBody != body) {
+            cleanedBody = getCleanedBody(body);
+            bodyOfCleanedBody = body;
+        }
+        return cleanedBody;
+    }
+
     @NonNull
-    private String getCleanedBody(String body) {
+    private static String getCleanedBody(String body) {
         String out = MyHtml.fromHtml(body).toLowerCase();
         out = StringEscapeUtils.unescapeHtml4(out);
         return out.replaceAll("\n", " ").
@@ -791,6 +791,9 @@ public class TimelineActivity extends LoadableListActivity implements
         }
         boolean isDifferentRequest = !params.equals(paramsToLoad);
         paramsToLoad = params;
+        if (chainedRequest != TriState.TRUE) {
+            showCachedPages(params);
+        }
         if (isLoading() && chainedRequest != TriState.TRUE) {
             if(MyLog.isVerboseEnabled()) {
                 if (isDifferentRequest) {
@@ -812,6 +815,27 @@ public class TimelineActivity extends LoadableListActivity implements
         }
     }
 
+    /**
+     * Instantly show recently viewed pages of the requested timeline (if they are cached)
+     * while the timeline is being reloaded
+     */
+    private void showCachedPages(TimelineListParameters params) {
+        if (params.whichPage != WhichPage.CURRENT
+                || getListData().size() > 0 && getParamsLoaded().getTimeline().equals(params.getTimeline())) {
+            return;
+        }
+        TimelineData cachedData = TimelinePagesCache.get(myContext, params.getTimeline());
+        if (cachedData == null) {
+            return;
+        }
+        MyLog.v(this, "showCachedPages; " + cachedData);
+        saveListPosition();
+        listData = cachedData;
+        setListAdapter(newListAdapter());
+        new TimelineListPositionStorage(getListAdapter(), getListView(), cachedData.params).restore();
+        updateScreen();
+    }
+
     @Override
     protected SyncLoader newSyncLoader(Bundle args) {
         final String method = "newSyncLoader";
@@ -847,6 +871,7 @@ public class TimelineActivity extends LoadableListActivity implements
         final String method = "onLoadFinished";
         verboseListPositionLog(method, "started");
         TimelineData dataLoaded = setAndGetListData(((TimelineLoader) getLoaded()).getPage());
+        TimelinePagesCache.put(dataLoaded);
         MyLog.v(this, method + "; " + dataLoaded.params.toSummary());
 
         // TODO start: Move this inside superclass
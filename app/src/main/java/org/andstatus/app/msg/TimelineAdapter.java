@@ -24,12 +24,12 @@ import android.widget.TextView;
 
 import org.andstatus.app.R;
 import org.andstatus.app.account.MyAccount;
-import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyPreferencesSnapshot;
+import org.andstatus.app.context.StartupTrace;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyUrlSpan;
-import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.widget.MyBaseAdapter;
 
 import java.util.HashSet;
@@ -42,12 +42,11 @@ public class TimelineAdapter extends MyBaseAdapter {
     private final MessageContextMenu contextMenu;
     private final int listItemLayoutId;
     private final TimelineData listData;
-    private final boolean showAvatars = MyPreferences.getShowAvatars();
-    private final boolean showAttachedImages = MyPreferences.getDownloadAndDisplayAttachedImages();
-    private final boolean showButtonsBelowMessages =
-            SharedPreferencesUtil.getBoolean(MyPreferences.KEY_SHOW_BUTTONS_BELOW_MESSAGE, true);
-    private final boolean markReplies = SharedPreferencesUtil.getBoolean(
-            MyPreferences.KEY_MARK_REPLIES_IN_TIMELINE, false);
+    private final MyPreferencesSnapshot preferences = MyPreferencesSnapshot.get();
+    private final boolean showAvatars = preferences.showAvatars;
+    private final boolean showAttachedImages = preferences.downloadAndDisplayAttachedImages;
+    private final boolean showButtonsBelowMessages = preferences.showButtonsBelowMessage;
+    private final boolean markReplies = preferences.markRepliesInTimeline;
     private int positionPrev = -1;
     private Set<Long> preloadedImages = new HashSet<>(100);
     private int messageNumberShownCounter = 0;
@@ -108,6 +107,7 @@ public class TimelineAdapter extends MyBaseAdapter {
         }
         preloadAttachments(position);
         showMessageNumber(position, view);
+        StartupTrace.onTimelineRowShown();
         positionPrev = position;
         return view;
     }
@@ -149,8 +149,7 @@ public class TimelineAdapter extends MyBaseAdapter {
             TimelineViewItem item = getItem(positionToPreload);
             if (!preloadedImages.contains(item.getMsgId())) {
                 preloadedImages.add(item.getMsgId());
-                item.getAttachedImageFile().preloadAttachedImage(contextMenu.messageList);
-                break;
+                item.getAttachedImageFile().preloadAttachedImage();
             }
         }
     }
@@ -278,7 +277,7 @@ public class TimelineAdapter extends MyBaseAdapter {
     @Override
     public void onClick(View v) {
         boolean handled = false;
-        if (MyPreferences.isLongPressToOpenContextMenu()) {
+        if (preferences.longPressToOpenContextMenu) {
             TimelineViewItem item = getItem(v);
             if (TimelineActivity.class.isAssignableFrom(contextMenu.messageList.getClass())) {
                 ((TimelineActivity) contextMenu.messageList).onItemClick(item);
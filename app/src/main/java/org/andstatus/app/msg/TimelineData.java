@@ -22,11 +22,14 @@ import android.support.v4.util.Pair;
 import org.andstatus.app.WhichPage;
 import org.andstatus.app.list.ListData;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.TextFingerprint;
+import org.andstatus.app.widget.DuplicationLink;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -50,6 +53,21 @@ public class TimelineData extends ListData {
         dropExcessivePage(thisPage);
     }
 
+    /** A copy, which pages and items may be changed independently of the source */
+    TimelineData(@NonNull TimelineData source) {
+        super(source);
+        params = source.params;
+        isSameTimeline = source.isSameTimeline;
+        pages = new ArrayList<>();
+        for (TimelinePage page : source.pages) {
+            List<TimelineViewItem> items = new ArrayList<>();
+            for (TimelineViewItem item : page.items) {
+                items.add(item.copy());
+            }
+            pages.add(new TimelinePage(page.params, items));
+        }
+    }
+
     private List<TimelinePage> copyPages(List<TimelinePage> pages) {
         ArrayList<TimelinePage> copiedPages = new ArrayList<>();
         for (TimelinePage page : pages) {
@@ -248,40 +266,106 @@ public class TimelineData extends ListData {
     }
 
     private void collapseDuplicates(long itemId) {
-        Set<Pair<TimelinePage, TimelineViewItem>> toCollapse = new HashSet<>();
+        Map<TimelinePage, Set<TimelineViewItem>> toCollapse = new HashMap<>();
         innerCollapseDuplicates(itemId, toCollapse);
-        for (Pair<TimelinePage, TimelineViewItem> pair : toCollapse) {
-            pair.first.items.remove(pair.second);
+        for (Map.Entry<TimelinePage, Set<TimelineViewItem>> entry : toCollapse.entrySet()) {
+            entry.getKey().items.removeAll(entry.getValue());
         }
     }
 
-    private void innerCollapseDuplicates(long itemId, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
-        Pair<TimelinePage, TimelineViewItem> parent = new Pair<>(null, null);
-        Set<Pair<TimelinePage, TimelineViewItem>> group = new HashSet<>();
+    /** Duplicates, found among all loaded pages */
+    private static class DuplicatesGroup {
+        Pair<TimelinePage, TimelineViewItem> parent;
+        final List<Pair<TimelinePage, TimelineViewItem>> members = new ArrayList<>();
+
+        DuplicatesGroup(Pair<TimelinePage, TimelineViewItem> first) {
+            parent = first;
+            members.add(first);
+        }
+    }
+
+    /**
+     * An item is compared with the group of the previous item and with the groups,
+     * found by {@link TextFingerprint} bands in a hash index, so this takes linear time
+     * and finds near duplicates, which are not adjacent
+     */
+    private void innerCollapseDuplicates(long itemId, Map<TimelinePage, Set<TimelineViewItem>> toCollapse) {
+        List<DuplicatesGroup> groups = new ArrayList<>();
+        Map<Long, List<DuplicatesGroup>> fingerprintIndex = new HashMap<>();
+        DuplicatesGroup previous = null;
         for (TimelinePage page : pages) {
             for (TimelineViewItem item : page.items) {
-                Pair<TimelinePage, TimelineViewItem> itemPair =new Pair<>(page, item);
-                switch (item.duplicates(parent.second)) {
-                    case DUPLICATES:
-                        break;
-                    case IS_DUPLICATED:
-                        parent = itemPair;
-                        break;
-                    default:
-                        if (collapseThisGroup(itemId, parent, group, toCollapse)) {
-                            return;
+                Pair<TimelinePage, TimelineViewItem> itemPair = new Pair<>(page, item);
+                DuplicatesGroup group = null;
+                DuplicationLink link = DuplicationLink.NONE;
+                if (previous != null) {
+                    link = item.duplicates(previous.parent.second);
+                    if (link != DuplicationLink.NONE) {
+                        group = previous;
+                    }
+                }
+                long fingerprint = item.getBodyFingerprint();
+                if (group == null && TextFingerprint.isMeaningful(fingerprint)) {
+                    bands:
+                    for (int band = 0; band < TextFingerprint.BANDS_COUNT; band++) {
+                        List<DuplicatesGroup> candidates =
+                                fingerprintIndex.get(TextFingerprint.bandKey(fingerprint, band));
+                        if (candidates == null) {
+                            continue;
                         }
-                        group.clear();
-                        parent = itemPair;
-                        break;
+                        for (DuplicatesGroup candidate : candidates) {
+                            if (candidate == previous || !TextFingerprint.areNear(fingerprint,
+                                    candidate.parent.second.getBodyFingerprint())) {
+                                continue;
+                            }
+                            link = item.duplicates(candidate.parent.second);
+                            if (link != DuplicationLink.NONE) {
+                                group = candidate;
+                                break bands;
+                            }
+                        }
+                    }
+                }
+                if (group == null) {
+                    group = new DuplicatesGroup(itemPair);
+                    groups.add(group);
+                } else {
+                    group.members.add(itemPair);
+                    if (link == DuplicationLink.IS_DUPLICATED) {
+                        group.parent = itemPair;
+                    }
+                }
+                if (TextFingerprint.isMeaningful(fingerprint)) {
+                    addToIndex(fingerprintIndex, fingerprint, group);
                 }
-                group.add(itemPair);
+                previous = group;
+            }
+        }
+        for (DuplicatesGroup group : groups) {
+            if (collapseThisGroup(itemId, group.parent, group.members, toCollapse)) {
+                return;
+            }
+        }
+    }
+
+    private static void addToIndex(Map<Long, List<DuplicatesGroup>> fingerprintIndex, long fingerprint,
+                                   DuplicatesGroup group) {
+        for (int band = 0; band < TextFingerprint.BANDS_COUNT; band++) {
+            long key = TextFingerprint.bandKey(fingerprint, band);
+            List<DuplicatesGroup> groups = fingerprintIndex.get(key);
+            if (groups == null) {
+                groups = new ArrayList<>();
+                fingerprintIndex.put(key, groups);
+            }
+            if (groups.isEmpty() || groups.get(groups.size() - 1) != group) {
+                groups.add(group);
             }
         }
-        collapseThisGroup(itemId, parent, group, toCollapse);
     }
 
-    private boolean collapseThisGroup(long itemId, Pair<TimelinePage, TimelineViewItem> parent, Set<Pair<TimelinePage, TimelineViewItem>> group, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
+    private boolean collapseThisGroup(long itemId, Pair<TimelinePage, TimelineViewItem> parent,
+                                      List<Pair<TimelinePage, TimelineViewItem>> group,
+                                      Map<TimelinePage, Set<TimelineViewItem>> toCollapse) {
         if (group.isEmpty()) {
             return false;
         }
@@ -314,7 +398,12 @@ public class TimelineData extends ListData {
             for (Pair<TimelinePage, TimelineViewItem> itemPair : group) {
                 if (!parent.equals(itemPair)) {
                     parent.second.collapse(itemPair.second);
-                    toCollapse.add(itemPair);
+                    Set<TimelineViewItem> pageItems = toCollapse.get(itemPair.first);
+                    if (pageItems == null) {
+                        pageItems = new HashSet<>();
+                        toCollapse.put(itemPair.first, pageItems);
+                    }
+                    pageItems.add(itemPair.second);
                 }
             }
         }
@@ -322,19 +411,23 @@ public class TimelineData extends ListData {
     }
 
     private void showDuplicates(long itemId) {
+        List<TimelineViewItem> toShow = new ArrayList<>();
+        pagesLoop:
         for (TimelinePage page : pages) {
             for (int ind = page.items.size() - 1; ind >= 0; ind--) {
                 if (page.items.get(ind).isCollapsed()) {
-                    if (showDuplicatesOfOneItem(itemId, page, ind)) {
-                        return;
+                    if (showDuplicatesOfOneItem(itemId, page.items.get(ind), toShow)) {
+                        break pagesLoop;
                     }
                 }
             }
         }
+        for (TimelineViewItem item : toShow) {
+            insertInOrder(item);
+        }
     }
 
-    private boolean showDuplicatesOfOneItem(long itemId, TimelinePage page, int ind) {
-        TimelineViewItem item = page.items.get(ind);
+    private boolean showDuplicatesOfOneItem(long itemId, TimelineViewItem item, List<TimelineViewItem> toShow) {
         boolean groupOfSelectedItem = itemId == item.getMsgId();
         if (itemId != 0 && !groupOfSelectedItem) {
             for (TimelineViewItem child : item.getChildren()) {
@@ -361,13 +454,32 @@ public class TimelineData extends ListData {
             }
         }
         if (!hasIndividualCollapseState && (itemId == 0 || groupOfSelectedItem)) {
-            int ind2 = ind + 1;
-            for (TimelineViewItem child : item.getChildren()) {
-                page.items.add(ind2++, child);
-            }
+            toShow.addAll(item.getChildren());
             item.getChildren().clear();
         }
         return groupOfSelectedItem;
     }
 
+    /**
+     * Duplicates may be collapsed from other positions and pages, so an item is returned
+     * to the page, which was loaded with its sent date, keeping the order of items
+     */
+    private void insertInOrder(TimelineViewItem item) {
+        if (pages.isEmpty()) {
+            return;
+        }
+        TimelinePage page = pages.get(pages.size() - 1);
+        for (TimelinePage p : pages) {
+            if (item.sentDate >= p.params.minSentDateLoaded) {
+                page = p;
+                break;
+            }
+        }
+        int ind = 0;
+        while (ind < page.items.size() && page.items.get(ind).sentDate >= item.sentDate) {
+            ind++;
+        }
+        page.items.add(ind, item);
+    }
+
 }
@@ -23,14 +23,13 @@ import android.text.TextUtils;
 import org.andstatus.app.LoadableListActivity;
 import org.andstatus.app.WhichPage;
 import org.andstatus.app.context.MyContextHolder;
-import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyPreferencesSnapshot;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
-import org.andstatus.app.util.SharedPreferencesUtil;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -131,10 +130,10 @@ public class TimelineLoader implements LoadableListActivity.SyncLoader {
 
     @NonNull
     private void loadFromCursor(Cursor cursor) {
-        KeywordsFilter keywordsFilter = new KeywordsFilter(
-                SharedPreferencesUtil.getString(MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS, ""));
+        MyPreferencesSnapshot preferences = MyPreferencesSnapshot.get();
+        KeywordsFilter keywordsFilter = preferences.keywordsFilter;
         boolean hideRepliesNotToMeOrFriends = getParams().getTimelineType() == TimelineType.HOME
-                && SharedPreferencesUtil.getBoolean(MyPreferences.KEY_FILTER_HIDE_REPLIES_NOT_TO_ME_OR_FRIENDS, false);
+                && preferences.hideRepliesNotToMeOrFriends;
         String searchQuery = getParams().getTimeline().getSearchQuery().toLowerCase();
 
         long startTime = System.currentTimeMillis();
@@ -146,7 +145,7 @@ public class TimelineLoader implements LoadableListActivity.SyncLoader {
                     boolean reversedOrder = getParams().isSortOrderAscending();
                     do {
                         rowsCount++;
-                        TimelineViewItem item = TimelineViewItem.fromCursorRow(params.getMyContext(), cursor);
+                        TimelineViewItem item = TimelineViewItem.fromCursorRow(params.getMyContext(), preferences, cursor);
                         getParams().rememberSentDateLoaded(item.sentDate);
                         String body = MyHtml.fromHtml(item.body).toLowerCase();
                         boolean skip = keywordsFilter.matched(body);
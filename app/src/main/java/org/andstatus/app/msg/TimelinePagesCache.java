@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import android.support.annotation.NonNull;
+import android.util.LruCache;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.util.MemoryGovernor;
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Process-wide cache of the recently viewed pages of Timelines, so that switching back
+ * to a recently viewed Timeline (or recreating the Activity) may show the list instantly,
+ * while the list is being reloaded in the background.
+ * The cache is bounded by the total number of the items in all cached pages
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class TimelinePagesCache {
+    private static final String TAG = TimelinePagesCache.class.getSimpleName();
+    static final int MAX_ITEMS_COUNT = TimelineListParameters.PAGE_SIZE * 8;
+    /** Rough size of an item without its body: other strings, objects and references */
+    private static final int ITEM_BYTES_ESTIMATE = 1024;
+
+    private static final LruCache<Timeline, CachedTimelineData> cache =
+            new LruCache<Timeline, CachedTimelineData>(MAX_ITEMS_COUNT) {
+        @Override
+        protected int sizeOf(Timeline key, CachedTimelineData value) {
+            return value.size;
+        }
+    };
+
+    static {
+        MemoryGovernor.register("Timeline pages", new MemoryGovernor.Consumer() {
+            @Override
+            public void trimMemory(float fraction) {
+                cache.trimToSize(Math.round(cache.size() * fraction));
+            }
+
+            @Override
+            public long getBytesHeld() {
+                long bytes = 0;
+                for (CachedTimelineData cached : cache.snapshot().values()) {
+                    bytes += cached.bytes;
+                }
+                return bytes;
+            }
+        });
+    }
+
+    /** Holds a copy of the data, which is not shown, so it is not changed */
+    private static class CachedTimelineData {
+        final TimelineData data;
+        final long syncSucceededDate;
+        final int size;
+        final long bytes;
+
+        CachedTimelineData(TimelineData data) {
+            this.data = new TimelineData(data);
+            syncSucceededDate = data.params.getTimeline().getSyncSucceededDate();
+            size = data.size() + 1;
+            long bytesEstimate = 0;
+            for (TimelinePage page : this.data.pages) {
+                for (TimelineViewItem item : page.items) {
+                    bytesEstimate += ITEM_BYTES_ESTIMATE + 2L * item.body.length();
+                    for (TimelineViewItem child : item.getChildren()) {
+                        bytesEstimate += ITEM_BYTES_ESTIMATE + 2L * child.body.length();
+                    }
+                }
+            }
+            bytes = bytesEstimate;
+        }
+
+        boolean isValidFor(MyContext myContext, Timeline timeline) {
+            return data.params.getMyContext() == myContext
+                    && timeline.getSyncSucceededDate() == syncSucceededDate;
+        }
+    }
+
+    private TimelinePagesCache() {
+        // Non instantiable
+    }
+
+    static void put(@NonNull TimelineData data) {
+        Timeline timeline = data.params.getTimeline();
+        if (timeline.isEmpty() || !data.params.isLoaded() || data.size() == 0) {
+            return;
+        }
+        cache.put(timeline, new CachedTimelineData(data));
+    }
+
+    /**
+     * @return a copy of the cached data, or null if nothing valid is cached for this timeline
+     */
+    static TimelineData get(MyContext myContext, @NonNull Timeline timeline) {
+        if (timeline.isEmpty()) {
+            return null;
+        }
+        CachedTimelineData cached = cache.get(timeline);
+        if (cached == null) {
+            return null;
+        }
+        if (!cached.isValidFor(myContext, timeline)) {
+            MyLog.v(TAG, "Removed outdated " + timeline);
+            cache.remove(timeline);
+            return null;
+        }
+        return new TimelineData(cached.data);
+    }
+
+    public static void clear() {
+        cache.evictAll();
+    }
+
+    public static String getCacheInfo() {
+        return "Timeline pages: " + cache.size() + " of " + cache.maxSize() + " items"
+                + ", hits:" + cache.hitCount() + ", misses:" + cache.missCount();
+    }
+}
@@ -23,13 +23,12 @@ import android.text.TextUtils;
 
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyContext;
-import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyPreferencesSnapshot;
 import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.data.TimelineSql;
-import org.andstatus.app.database.DownloadTable;
 import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.database.UserTable;
@@ -39,10 +38,13 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author yvolk@yurivolkov.com
  */
-public class TimelineViewItem extends MessageViewItem {
+public class TimelineViewItem extends MessageViewItem implements Cloneable {
 
     long sentDate = 0;
     DownloadStatus msgStatus = DownloadStatus.UNKNOWN;
@@ -68,6 +70,11 @@ public class TimelineViewItem extends MessageViewItem {
     }
 
     public static TimelineViewItem fromCursorRow(MyContext myContext, Cursor cursor) {
+        return fromCursorRow(myContext, MyPreferencesSnapshot.get(), cursor);
+    }
+
+    public static TimelineViewItem fromCursorRow(MyContext myContext, MyPreferencesSnapshot preferences,
+                                                 Cursor cursor) {
         TimelineViewItem item = new TimelineViewItem();
         item.setMyContext(myContext);
         item.setMsgId(DbUtils.getLong(cursor, MsgTable._ID));
@@ -75,8 +82,9 @@ public class TimelineViewItem extends MessageViewItem {
         item.setLinkedUserAndAccount(DbUtils.getLong(cursor, UserTable.LINKED_USER_ID));
 
         item.authorName = TimelineSql.userColumnIndexToNameAtTimeline(cursor,
-                cursor.getColumnIndex(UserTable.AUTHOR_NAME), MyPreferences.getShowOrigin());
+                cursor.getColumnIndex(UserTable.AUTHOR_NAME), preferences.showOrigin);
         item.body = MyHtml.htmlify(DbUtils.getString(cursor, MsgTable.BODY));
+        item.setBodyFingerprint(DbUtils.getLong(cursor, MsgTable.BODY_FINGERPRINT));
         item.inReplyToMsgId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_MSG_ID);
         item.inReplyToName = DbUtils.getString(cursor, UserTable.IN_REPLY_TO_NAME);
         item.recipientName = DbUtils.getString(cursor, UserTable.RECIPIENT_NAME);
@@ -109,15 +117,29 @@ public class TimelineViewItem extends MessageViewItem {
         }
 
         item.avatarDrawable = AvatarFile.getDrawable(item.authorId, cursor);
-        if (MyPreferences.getDownloadAndDisplayAttachedImages()) {
-            item.attachedImageFile = new AttachedImageFile(
-                    DbUtils.getLong(cursor, DownloadTable.IMAGE_ID),
-                    DbUtils.getString(cursor, DownloadTable.IMAGE_FILE_NAME));
+        if (preferences.downloadAndDisplayAttachedImages) {
+            item.attachedImageFile = AttachedImageFile.fromCursor(cursor);
         }
         item.inReplyToUserId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_USER_ID);
         return item;
     }
 
+    /** @return a copy, which children may be collapsed and expanded independently of this item */
+    TimelineViewItem copy() {
+        TimelineViewItem item;
+        try {
+            item = (TimelineViewItem) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        List<TimelineViewItem> children = new ArrayList<>();
+        for (TimelineViewItem child : getChildren()) {
+            children.add(child.copy());
+        }
+        item.setChildren(children);
+        return item;
+    }
+
     private void addReblogger(long userId, String userName) {
         rebloggers.put(userId, userName);
     }
@@ -41,13 +41,24 @@ public class ConnectionException extends IOException {
         REQUEST_ENTITY_TOO_LARGE,
         LENGTH_REQUIRED,
         CLIENT_ERROR,
-        SERVER_ERROR;
+        SERVER_ERROR,
+        /** Response to a conditional request: the resource wasn't modified */
+        NOT_MODIFIED,
+        /** Rate limit exceeded, see {@link RateLimits} */
+        TOO_MANY_REQUESTS,
+        /** The rest of the file, see {@link PartialDownload} */
+        PARTIAL_CONTENT,
+        /** We asked for a part of the file, which the server doesn't have */
+        RANGE_NOT_SATISFIABLE;
         
         public static StatusCode fromResponseCode(int responseCode) {
             switch (responseCode) {
 	            case 200:
-	            case 304:
 	            	return OK;
+                case 206:
+                    return PARTIAL_CONTENT;
+                case 304:
+                    return NOT_MODIFIED;
                 case 301:
                 case 302:
                 case 303:
@@ -65,6 +76,10 @@ public class ConnectionException extends IOException {
                     return LENGTH_REQUIRED;
                 case 413:
                     return REQUEST_ENTITY_TOO_LARGE;
+                case 416:
+                    return RANGE_NOT_SATISFIABLE;
+                case 429:
+                    return TOO_MANY_REQUESTS;
                 case 500:
                     return INTERNAL_SERVER_ERROR;
                 case 502:
@@ -152,7 +167,9 @@ public class ConnectionException extends IOException {
     }
 
     private static boolean isHardFromStatusCode(boolean isHardIn, StatusCode statusCode) {
-        return isHardIn || (statusCode != StatusCode.UNKNOWN && statusCode != StatusCode.OK);
+        return isHardIn || (statusCode != StatusCode.UNKNOWN && statusCode != StatusCode.OK
+                && statusCode != StatusCode.NOT_MODIFIED && statusCode != StatusCode.TOO_MANY_REQUESTS
+                && statusCode != StatusCode.RANGE_NOT_SATISFIABLE);
     }
 
     public StatusCode getStatusCode() {
@@ -29,6 +29,8 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 
 public abstract class HttpConnection {
     public HttpConnectionData data;
@@ -83,11 +85,15 @@ public abstract class HttpConnection {
             throw new IllegalArgumentException("path is empty");
         }
         HttpReadResult result = new HttpReadResult(pathToUrlString(path)).setFormParams(formParams)
-                .setLegacyHttpProtocol(isLegacyHttpProtocol);
+                .setLegacyHttpProtocol(isLegacyHttpProtocol).setRateLimited(getRateLimitsKey());
         if( result.hasFormParams()) {
             MyLog.logNetworkLevelMessage("post_form", data.getLogName(), result.getFormParams());
         }
-        postRequest(result);
+        try {
+            postRequest(result);
+        } finally {
+            result.saveRateLimits();
+        }
         MyLog.logNetworkLevelMessage("post_response", data.getLogName(), result.strResponse);
         result.parseAndThrow();
         return result.getJsonObject();
@@ -96,27 +102,83 @@ public abstract class HttpConnection {
     protected abstract void postRequest(HttpReadResult result) throws ConnectionException;
     
     public final JSONObject getRequest(String path) throws ConnectionException {
-        return getRequestCommon(path, true).getJsonObject();
+        return getRequestCommon(path, true, false).getJsonObject();
+    }
+
+    /**
+     * Conditional GET request: sends validators of the previous response
+     * @throws ConnectionException with {@link StatusCode#NOT_MODIFIED} if the resource wasn't modified since then
+     */
+    public final JSONObject getRequestIfModified(String path) throws ConnectionException {
+        HttpReadResult result = getRequestCommon(path, true, true);
+        JSONObject jso = result.getJsonObject();
+        result.saveValidators();
+        return jso;
     }
 
     public final JSONObject getUnauthenticatedRequest(String path) throws ConnectionException {
-        return getRequestCommon(path, false).getJsonObject();
+        return getRequestCommon(path, false, false).getJsonObject();
     }
     
-    private HttpReadResult getRequestCommon(String path, boolean authenticated) throws ConnectionException {
+    private HttpReadResult getRequestCommon(String path, boolean authenticated, boolean conditional)
+            throws ConnectionException {
         if (TextUtils.isEmpty(path)) {
             throw new IllegalArgumentException("path is empty");
         }
         HttpReadResult result = new HttpReadResult(pathToUrlString(path));
         result.authenticate = authenticated;
-        getRequest(result);
+        if (authenticated) {
+            result.setRateLimited(getRateLimitsKey());
+        }
+        if (conditional) {
+            // Responses may differ for different accounts
+            result.setConditional(data.getAccountName() + " " + result.getUrl());
+        }
+        try {
+            getRequest(result);
+        } finally {
+            result.saveRateLimits();
+        }
         MyLog.logNetworkLevelMessage("get_response", data.getLogName(), result.strResponse);
         result.parseAndThrow();
         return result;
     }
     
     public final JSONArray getRequestAsArray(String path) throws ConnectionException {
-        return getRequestCommon(path, true).getJsonArray();
+        return getRequestCommon(path, true, false).getJsonArray();
+    }
+
+    /**
+     * Streaming alternative to {@link #getRequestAsArray(String)}: objects of the array are passed
+     * to the consumer in the order of the response, as soon as each of them is read,
+     * so neither the whole response nor the whole JSON tree are kept in memory
+     * @return number of the objects read
+     */
+    public final int getRequestAsArrayStreamed(String path, JsonObjectConsumer consumer)
+            throws ConnectionException {
+        if (TextUtils.isEmpty(path)) {
+            throw new IllegalArgumentException("path is empty");
+        }
+        HttpReadResult result = new HttpReadResult(pathToUrlString(path)).setRateLimited(getRateLimitsKey());
+        result.jsonObjectConsumer = consumer;
+        try {
+            getRequest(result);
+        } finally {
+            result.saveRateLimits();
+        }
+        result.parseAndThrow();
+        if (!result.isStreamed()) {
+            // The connection read the response into a String (e.g. a mocked one)
+            MyLog.logNetworkLevelMessage("get_response", data.getLogName(), result.strResponse);
+            try {
+                result.readJsonObjects(new StringReader(result.strResponse));
+            } catch (ConnectionException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new ConnectionException(result.toString(), e);
+            }
+        }
+        return result.getJsonObjectsCount();
     }
 
     public final void downloadFile(String url, File file) throws ConnectionException {
@@ -124,8 +186,35 @@ public abstract class HttpConnection {
         getRequest(result);
         result.parseAndThrow();
     }
+
+    /**
+     * Downloads the rest of the file, if the file on the server wasn't changed, otherwise the whole file
+     * @param partialDownload its validator is updated from the response, even if the download fails
+     */
+    public final void downloadFile(String url, File file, PartialDownload partialDownload)
+            throws ConnectionException {
+        HttpReadResult result = new HttpReadResult(url, file).setPartialDownload(partialDownload);
+        getRequest(result);
+        result.parseAndThrow();
+    }
+
+    /**
+     * Conditional download of the file, which we have already
+     * @throws ConnectionException with {@link StatusCode#NOT_MODIFIED} if the file wasn't modified since then
+     */
+    public final void downloadFileIfModified(String url, File file) throws ConnectionException {
+        HttpReadResult result = new HttpReadResult(url, file).setConditional(url);
+        getRequest(result);
+        result.parseAndThrow();
+        result.saveValidators();
+    }
     
     protected abstract void getRequest(HttpReadResult result) throws ConnectionException;
+
+    /** API requests are counted per account, see {@link RateLimits} */
+    public String getRateLimitsKey() {
+        return data.getAccountName() == null ? "" : data.getAccountName().toString();
+    }
     
     public abstract void clearAuthInformation();
 
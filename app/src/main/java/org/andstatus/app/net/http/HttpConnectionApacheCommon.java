@@ -47,6 +47,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class HttpConnectionApacheCommon {
     private HttpConnectionApacheSpecific specific;
@@ -60,6 +61,7 @@ public class HttpConnectionApacheCommon {
         if (result.isLegacyHttpProtocol()) {
             httpPost.setProtocolVersion(HttpVersion.HTTP_1_0);
         }
+        httpPost.setHeader("Accept-Encoding", HttpConnectionUtils.ACCEPT_ENCODING);
         try {
             if ( !result.hasFormParams()) {
                 // Nothing to do at this step
@@ -133,10 +135,8 @@ public class HttpConnectionApacheCommon {
         return formParams;
     }
 
-    public static HttpClient getHttpClient(SslModeEnum sslMode) {
-        return sslMode == SslModeEnum.MISCONFIGURED ?
-                MisconfiguredSslHttpClientFactory.getHttpClient() :
-                    MyHttpClientFactory.getHttpClient(sslMode) ;
+    public static HttpClient getHttpClient(HttpConnectionData data) {
+        return HttpConnectionPools.getHttpClient(data);
     }
 
     protected void getRequest(HttpReadResult result) {
@@ -146,7 +146,7 @@ public class HttpConnectionApacheCommon {
         try {
             boolean stop = false;
             do {
-                HttpGet httpGet = newHttpGet(result.getUrl());
+                HttpGet httpGet = newHttpGet(result);
                 if (result.authenticate) {
                     specific.httpApacheSetAuthorization(httpGet);
                 }
@@ -154,15 +154,27 @@ public class HttpConnectionApacheCommon {
                 StatusLine statusLine = httpResponse.getStatusLine();
                 result.statusLine = statusLine.toString();
                 result.setStatusCode(statusLine.getStatusCode());
+                result.setValidatorsReceived(getHeaderValue(httpResponse, "ETag"),
+                        getHeaderValue(httpResponse, "Last-Modified"));
+                setRateLimitHeadersReceived(result, httpResponse);
                 switch (result.getStatusCode()) {
+                    case NOT_MODIFIED:
+                        stop = true;
+                        break;
                     case OK:
+                    case PARTIAL_CONTENT:
                     case UNKNOWN:
                         HttpEntity entity = httpResponse.getEntity();
                         if (entity != null) {
                             if (result.fileResult != null) {
-                                FileUtils.readStreamToFile(entity.getContent(), result.fileResult);
+                                HttpConnectionUtils.readStreamToFile(result, entity.getContent(),
+                                        getContentEncoding(entity), result.fileResult);
+                            } else if (result.jsonObjectConsumer != null) {
+                                HttpConnectionUtils.readStreamToJsonObjects(result, entity.getContent(),
+                                        getContentEncoding(entity));
                             } else {
-                                result.strResponse = HttpConnectionUtils.readStreamToString(entity.getContent());
+                                result.strResponse = HttpConnectionUtils.readStreamToString(result,
+                                        entity.getContent(), getContentEncoding(entity));
                             }
                         }
                         stop = true;
@@ -180,12 +192,15 @@ public class HttpConnectionApacheCommon {
                             }
                             MyLog.v(this, message.toString());
                         }
+                        // Returns the connection to the pool before the next request
+                        DbUtils.closeSilently(httpResponse);
                         break;
                     default:
                         result.appendToLog( "statusLine:'" + statusLine + "'");
                         entity = httpResponse.getEntity();
                         if (entity != null) {
-                            result.strResponse = HttpConnectionUtils.readStreamToString(entity.getContent());
+                            result.strResponse = HttpConnectionUtils.readStreamToString(result,
+                                    entity.getContent(), getContentEncoding(entity));
                         }
                         stop =  result.fileResult == null || !result.authenticate;
                         if (!stop) {
@@ -206,17 +221,37 @@ public class HttpConnectionApacheCommon {
         }
     }
     
-    private HttpGet newHttpGet(String url) {
-        HttpGet httpGet = new HttpGet(url);
+    private HttpGet newHttpGet(HttpReadResult result) {
+        HttpGet httpGet = new HttpGet(result.getUrl());
         httpGet.setHeader("User-Agent", HttpConnection.USER_AGENT);
+        if (result.fileResult == null) {
+            // Media files are compressed already
+            httpGet.setHeader("Accept-Encoding", HttpConnectionUtils.ACCEPT_ENCODING);
+        }
+        for (Map.Entry<String, String> header : result.getConditionalHeaders().entrySet()) {
+            httpGet.setHeader(header.getKey(), header.getValue());
+        }
         return httpGet;
     }
 
-    public static String readHttpResponseToString(HttpResponse httpResponse) throws IOException {
+    static void setRateLimitHeadersReceived(HttpReadResult result, HttpResponse httpResponse) {
+        for (String name : RateLimits.HEADERS) {
+            result.setRateLimitHeaderReceived(name, getHeaderValue(httpResponse, name));
+        }
+    }
+
+    private static String getHeaderValue(HttpResponse httpResponse, String name) {
+        Header header = httpResponse.getFirstHeader(name);
+        return header == null ? "" : header.getValue();
+    }
+
+    public static String readHttpResponseToString(HttpReadResult result, HttpResponse httpResponse)
+            throws IOException {
         HttpEntity httpEntity = httpResponse.getEntity();
         if (httpEntity != null) {
             try {
-                return HttpConnectionUtils.readStreamToString(httpEntity.getContent());
+                return HttpConnectionUtils.readStreamToString(result, httpEntity.getContent(),
+                        getContentEncoding(httpEntity));
             } catch (IllegalStateException e) {
                 throw new IOException(e);
             }
@@ -224,4 +259,10 @@ public class HttpConnectionApacheCommon {
         return null;
     }
 
+    /** The client doesn't decompress responses, see {@link MyHttpClientFactory} */
+    private static String getContentEncoding(HttpEntity entity) {
+        Header header = entity.getContentEncoding();
+        return header == null ? "" : header.getValue();
+    }
+
 }
@@ -27,6 +27,7 @@ import cz.msebera.android.httpclient.StatusLine;
 import cz.msebera.android.httpclient.client.HttpClient;
 import cz.msebera.android.httpclient.client.methods.HttpGet;
 import cz.msebera.android.httpclient.client.methods.HttpPost;
+import cz.msebera.android.httpclient.util.EntityUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -49,27 +50,32 @@ public class HttpConnectionBasic extends HttpConnection implements HttpConnectio
 
     @Override
     public void httpApachePostRequest(HttpPost postMethod, HttpReadResult result) throws ConnectionException {
+        HttpResponse httpResponse = null;
         try {
-            HttpClient client = HttpConnectionApacheCommon.getHttpClient(data.getSslMode());
+            HttpClient client = HttpConnectionApacheCommon.getHttpClient(data);
             postMethod.setHeader("User-Agent", HttpConnection.USER_AGENT);
             if (getCredentialsPresent()) {
                 postMethod.addHeader("Authorization", "Basic " + getCredentials());
             }
-            HttpResponse httpResponse = client.execute(postMethod);
+            httpResponse = client.execute(postMethod);
             StatusLine statusLine = httpResponse.getStatusLine();
             result.statusLine = statusLine.toString();
             result.setStatusCode(statusLine.getStatusCode());
-            result.strResponse = HttpConnectionApacheCommon.readHttpResponseToString(httpResponse);
+            HttpConnectionApacheCommon.setRateLimitHeadersReceived(result, httpResponse);
+            result.strResponse = HttpConnectionApacheCommon.readHttpResponseToString(result, httpResponse);
         } catch (Exception e) {
             result.e1 = e;
         } finally {
-            postMethod.abort();
+            // The connection goes back to the pool, aborting would close it
+            if (httpResponse != null) {
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
+            }
         }
     }
 
     @Override
     public HttpResponse httpApacheGetResponse(HttpGet httpGet) throws IOException {
-        HttpClient client = HttpConnectionApacheCommon.getHttpClient(data.getSslMode());
+        HttpClient client = HttpConnectionApacheCommon.getHttpClient(data);
         return client.execute(httpGet);
     }
 
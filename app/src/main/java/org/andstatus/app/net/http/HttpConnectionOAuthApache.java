@@ -18,9 +18,10 @@ package org.andstatus.app.net.http;
 
 import org.andstatus.app.net.social.Connection.ApiRoutineEnum;
 import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.StatusLine;
 import cz.msebera.android.httpclient.client.methods.HttpGet;
 import cz.msebera.android.httpclient.client.methods.HttpPost;
-import cz.msebera.android.httpclient.impl.client.BasicResponseHandler;
+import cz.msebera.android.httpclient.util.EntityUtils;
 
 import java.io.IOException;
 
@@ -45,7 +46,7 @@ public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements Ht
         provider = new CommonsHttpOAuthProvider(getApiUrl(ApiRoutineEnum.OAUTH_REQUEST_TOKEN),
                 getApiUrl(ApiRoutineEnum.OAUTH_ACCESS_TOKEN), getApiUrl(ApiRoutineEnum.OAUTH_AUTHORIZE));
 
-        provider.setHttpClient(HttpConnectionApacheCommon.getHttpClient(data.getSslMode()));
+        provider.setHttpClient(HttpConnectionApacheCommon.getHttpClient(data));
         provider.setOAuth10a(true);
         return provider;
     }
@@ -67,23 +68,32 @@ public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements Ht
     
     @Override
     public void httpApachePostRequest(HttpPost post, HttpReadResult result) throws ConnectionException {
+        HttpResponse httpResponse = null;
         try {
             // TODO: Redo like for get request
             if (result.authenticate) {
                 signRequest(post);
             }
-            result.strResponse = HttpConnectionApacheCommon.getHttpClient(data.getSslMode()).execute(
-                    post, new BasicResponseHandler());
+            httpResponse = HttpConnectionApacheCommon.getHttpClient(data).execute(post);
+            StatusLine statusLine = httpResponse.getStatusLine();
+            result.statusLine = statusLine.toString();
+            result.setStatusCode(statusLine.getStatusCode());
+            HttpConnectionApacheCommon.setRateLimitHeadersReceived(result, httpResponse);
+            result.strResponse = HttpConnectionApacheCommon.readHttpResponseToString(result, httpResponse);
         } catch (Exception e) {
             // We don't catch other exceptions because in fact it's vary difficult to tell
             // what was a real cause of it. So let's make code clearer.
             result.e1 = e;
+        } finally {
+            if (httpResponse != null) {
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
+            }
         }
     }
 
     @Override
     public HttpResponse httpApacheGetResponse(HttpGet httpGet) throws IOException {
-        return HttpConnectionApacheCommon.getHttpClient(data.getSslMode()).execute(httpGet);
+        return HttpConnectionApacheCommon.getHttpClient(data).execute(httpGet);
     }
 
     private void signRequest(Object httpGetOrPost) throws IOException {
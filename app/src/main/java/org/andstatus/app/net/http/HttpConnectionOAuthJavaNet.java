@@ -23,7 +23,6 @@ import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.social.Connection.ApiRoutineEnum;
-import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -123,7 +122,8 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             conn.setDoOutput(true);
             conn.setDoInput(true);
             conn.setRequestMethod("POST");
-            
+            conn.setRequestProperty("Accept-Encoding", HttpConnectionUtils.ACCEPT_ENCODING);
+
             if (!result.hasFormParams()) {
                 // Nothing to do at this step
             } else if (result.getFormParams().has(HttpConnection.KEY_MEDIA_PART_URI)) {
@@ -133,12 +133,15 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             }
                         
             result.setStatusCode(conn.getResponseCode());
+            setRateLimitHeadersReceived(result, conn);
             switch(result.getStatusCode()) {
                 case OK:
-                    result.strResponse = HttpConnectionUtils.readStreamToString(conn.getInputStream());
+                    result.strResponse = HttpConnectionUtils.readStreamToString(result,
+                            conn.getInputStream(), conn.getContentEncoding());
                     break;
                 default:
-                    result.strResponse = HttpConnectionUtils.readStreamToString(conn.getErrorStream());
+                    result.strResponse = HttpConnectionUtils.readStreamToString(result,
+                            conn.getErrorStream(), conn.getContentEncoding());
                     throw result.getExceptionFromJsonErrorResponse();
             }
         } catch (JSONException | IOException e) {
@@ -208,17 +211,36 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             do {
                 conn = (HttpURLConnection) result.getUrlObj().openConnection();
                 conn.setInstanceFollowRedirects(false);
+                if (result.fileResult == null) {
+                    // Setting this header explicitly turns off transparent decompression,
+                    // so we decode the response ourselves and count its bytes
+                    conn.setRequestProperty("Accept-Encoding", HttpConnectionUtils.ACCEPT_ENCODING);
+                }
+                for (Entry<String, String> header : result.getConditionalHeaders().entrySet()) {
+                    conn.setRequestProperty(header.getKey(), header.getValue());
+                }
                 if (result.authenticate) {
                     setAuthorization(conn, consumer, redirected);
                 }
                 conn.connect();
                 result.setStatusCode(conn.getResponseCode());
+                result.setValidatorsReceived(conn.getHeaderField("ETag"), conn.getHeaderField("Last-Modified"));
+                setRateLimitHeadersReceived(result, conn);
                 switch(result.getStatusCode()) {
+                    case NOT_MODIFIED:
+                        stop = true;
+                        break;
                     case OK:
+                    case PARTIAL_CONTENT:
                         if (result.fileResult != null) {
-                            FileUtils.readStreamToFile(conn.getInputStream(), result.fileResult);
+                            HttpConnectionUtils.readStreamToFile(result, conn.getInputStream(),
+                                    conn.getContentEncoding(), result.fileResult);
+                        } else if (result.jsonObjectConsumer != null) {
+                            HttpConnectionUtils.readStreamToJsonObjects(result, conn.getInputStream(),
+                                    conn.getContentEncoding());
                         } else {
-                            result.strResponse = HttpConnectionUtils.readStreamToString(conn.getInputStream());
+                            result.strResponse = HttpConnectionUtils.readStreamToString(result,
+                                    conn.getInputStream(), conn.getContentEncoding());
                         }
                         stop = true;
                         break;
@@ -238,10 +260,11 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
                             }
                             MyLog.v(this, message.toString());
                         }
-                        conn.disconnect();
+                        skipResponseBody(conn);
                         break;
                     default:
-                        result.strResponse = HttpConnectionUtils.readStreamToString(conn.getErrorStream());
+                        result.strResponse = HttpConnectionUtils.readStreamToString(result,
+                                conn.getErrorStream(), conn.getContentEncoding());
                         stop = result.fileResult == null || !result.authenticate;
                         if (!stop) {
                             result.authenticate = false;
@@ -259,6 +282,31 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         }
     }
 
+    private static void setRateLimitHeadersReceived(HttpReadResult result, HttpURLConnection conn) {
+        for (String name : RateLimits.HEADERS) {
+            result.setRateLimitHeaderReceived(name, conn.getHeaderField(name));
+        }
+    }
+
+    /**
+     * Unlike {@link HttpURLConnection#disconnect()} this allows the underlying connection
+     * to be kept alive and reused for the next request
+     */
+    private void skipResponseBody(HttpURLConnection conn) {
+        InputStream in = null;
+        try {
+            in = conn.getInputStream();
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) >= 0) {
+                // Skipping
+            }
+        } catch (IOException e) {
+            MyLog.v(this, "skipResponseBody", e);
+        } finally {
+            DbUtils.closeSilently(in);
+        }
+    }
+
     private void setAuthorization(HttpURLConnection conn, OAuthConsumer consumer, boolean redirected)
             throws ConnectionException {
         if (!getCredentialsPresent()) {
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.util.MemoryGovernor;
+import org.andstatus.app.util.MyLog;
+
+import cz.msebera.android.httpclient.client.HttpClient;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP clients with keep-alive connection pools, one per origin host and {@link SslModeEnum},
+ * shared by all accounts of that host. Idle connections are closed after {@link #IDLE_SECONDS}
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class HttpConnectionPools {
+    private static final String TAG = HttpConnectionPools.class.getSimpleName();
+    static final int MAX_TOTAL = 4;
+    static final int MAX_PER_ROUTE = 2;
+    static final long IDLE_SECONDS = 30;
+    private static final long IDLE_CHECK_PERIOD_MILLIS = 10000;
+
+    private static final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    static {
+        MemoryGovernor.register("HTTP connection pools", new MemoryGovernor.Consumer() {
+            @Override
+            public void trimMemory(float fraction) {
+                closeIdleConnections();
+            }
+
+            @Override
+            public long getBytesHeld() {
+                return 0;
+            }
+        });
+    }
+
+    static class Pool {
+        final String key;
+        final HttpConnectionStats stats = new HttpConnectionStats();
+        final HttpClient client;
+        private volatile long idleCheckedAt = System.currentTimeMillis();
+
+        Pool(String key, SslModeEnum sslMode) {
+            this.key = key;
+            client = sslMode == SslModeEnum.MISCONFIGURED ?
+                    MisconfiguredSslHttpClientFactory.getHttpClient(stats) :
+                    MyHttpClientFactory.getHttpClient(sslMode, stats);
+        }
+
+        HttpClient getHttpClient() {
+            long now = System.currentTimeMillis();
+            if (now - idleCheckedAt > IDLE_CHECK_PERIOD_MILLIS) {
+                idleCheckedAt = now;
+                closeIdleConnections(IDLE_SECONDS);
+                MyLog.v(TAG, this.toString());
+            }
+            return client;
+        }
+
+        @SuppressWarnings("deprecation")
+        void closeIdleConnections(long idleSeconds) {
+            client.getConnectionManager().closeExpiredConnections();
+            client.getConnectionManager().closeIdleConnections(idleSeconds, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return "Pool{" + key + "; " + stats + "}";
+        }
+    }
+
+    private HttpConnectionPools() {
+        // Non instantiable
+    }
+
+    static HttpClient getHttpClient(HttpConnectionData data) {
+        return getPool(data.originUrl, data.getSslMode()).getHttpClient();
+    }
+
+    static Pool getPool(URL originUrl, SslModeEnum sslMode) {
+        String key = sslMode + " " + (originUrl == null ? "" : originUrl.getHost());
+        Pool pool = pools.get(key);
+        if (pool == null) {
+            synchronized (pools) {
+                pool = pools.get(key);
+                if (pool == null) {
+                    pool = new Pool(key, sslMode);
+                    pools.put(key, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /** Closes connections, which are not in use, of all pools, e.g. on low memory */
+    public static void closeIdleConnections() {
+        for (Pool pool : pools.values()) {
+            pool.closeIdleConnections(0);
+        }
+    }
+
+    /** Statistics of each pool: reuse rate, TLS handshakes avoided etc. */
+    public static String getStats() {
+        StringBuilder builder = new StringBuilder();
+        for (Pool pool : pools.values()) {
+            builder.append(pool.toString()).append("\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Connection settings may have changed, so new pools will be created on demand.
+     * Connections in use are not interrupted, the forgotten pools are left to the garbage collector
+     */
+    public static void forget() {
+        synchronized (pools) {
+            for (Pool pool : pools.values()) {
+                MyLog.v(TAG, "Forgetting " + pool);
+                pool.closeIdleConnections(0);
+            }
+            pools.clear();
+        }
+    }
+}
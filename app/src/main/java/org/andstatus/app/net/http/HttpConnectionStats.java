@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import net.jcip.annotations.ThreadSafe;
+
+import cz.msebera.android.httpclient.HttpHost;
+import cz.msebera.android.httpclient.HttpRequest;
+import cz.msebera.android.httpclient.HttpRequestInterceptor;
+import cz.msebera.android.httpclient.client.protocol.HttpClientContext;
+import cz.msebera.android.httpclient.conn.socket.ConnectionSocketFactory;
+import cz.msebera.android.httpclient.conn.socket.LayeredConnectionSocketFactory;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Counters of requests and of connections, opened by one {@link HttpConnectionPools} pool:
+ * how often connections are reused and how many TLS handshakes are avoided
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+class HttpConnectionStats {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong tlsRequests = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong tlsHandshakes = new AtomicLong();
+    private final AtomicLong tlsSessionsResumed = new AtomicLong();
+
+    final HttpRequestInterceptor requestCounter = new HttpRequestInterceptor() {
+        @Override
+        public void process(HttpRequest request, HttpContext context) {
+            requests.incrementAndGet();
+            HttpHost target = HttpClientContext.adapt(context).getTargetHost();
+            if (target != null && "https".equalsIgnoreCase(target.getSchemeName())) {
+                tlsRequests.incrementAndGet();
+            }
+        }
+    };
+
+    ConnectionSocketFactory countConnections(ConnectionSocketFactory socketFactory) {
+        return socketFactory instanceof LayeredConnectionSocketFactory
+                ? new CountingLayeredSocketFactory((LayeredConnectionSocketFactory) socketFactory)
+                : new CountingSocketFactory(socketFactory);
+    }
+
+    void onConnected(Socket socket, long startedAt) {
+        connectionsOpened.incrementAndGet();
+        onLayered(socket, startedAt);
+    }
+
+    /** TLS over already connected socket, e.g. tunnelled through a proxy */
+    void onLayered(Socket socket, long startedAt) {
+        if (socket instanceof SSLSocket) {
+            // A resumed session was created during one of the previous connections
+            if (((SSLSocket) socket).getSession().getCreationTime() < startedAt) {
+                tlsSessionsResumed.incrementAndGet();
+            } else {
+                tlsHandshakes.incrementAndGet();
+            }
+        }
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    /** Requests, sent via already opened (kept alive) connections */
+    long getConnectionsReused() {
+        return Math.max(0, requests.get() - connectionsOpened.get());
+    }
+
+    /** @return 0 ... 1 */
+    float getReuseRate() {
+        long requestsCount = requests.get();
+        return requestsCount == 0 ? 0 : (float) getConnectionsReused() / requestsCount;
+    }
+
+    long getTlsHandshakes() {
+        return tlsHandshakes.get();
+    }
+
+    long getTlsSessionsResumed() {
+        return tlsSessionsResumed.get();
+    }
+
+    /** Full TLS handshakes avoided due to connection reuse and due to TLS session resumption */
+    long getHandshakesAvoided() {
+        return Math.max(0, tlsRequests.get() - tlsHandshakes.get());
+    }
+
+    @Override
+    public String toString() {
+        return "requests:" + getRequests()
+                + ", connections opened:" + getConnectionsOpened()
+                + ", reuse rate:" + Math.round(getReuseRate() * 100) + "%"
+                + ", TLS handshakes:" + getTlsHandshakes()
+                + ", sessions resumed:" + getTlsSessionsResumed()
+                + ", handshakes avoided:" + getHandshakesAvoided();
+    }
+
+    private class CountingSocketFactory implements ConnectionSocketFactory {
+        private final ConnectionSocketFactory socketFactory;
+
+        CountingSocketFactory(ConnectionSocketFactory socketFactory) {
+            this.socketFactory = socketFactory;
+        }
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return socketFactory.createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket sock, HttpHost host, InetSocketAddress remoteAddress,
+                                    InetSocketAddress localAddress, HttpContext context) throws IOException {
+            long startedAt = System.currentTimeMillis();
+            Socket socket = socketFactory.connectSocket(connectTimeout, sock, host, remoteAddress,
+                    localAddress, context);
+            onConnected(socket, startedAt);
+            return socket;
+        }
+    }
+
+    private class CountingLayeredSocketFactory extends CountingSocketFactory
+            implements LayeredConnectionSocketFactory {
+        private final LayeredConnectionSocketFactory socketFactory;
+
+        CountingLayeredSocketFactory(LayeredConnectionSocketFactory socketFactory) {
+            super(socketFactory);
+            this.socketFactory = socketFactory;
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+                throws IOException {
+            long startedAt = System.currentTimeMillis();
+            Socket layered = socketFactory.createLayeredSocket(socket, target, port, context);
+            onLayered(layered, startedAt);
+            return layered;
+        }
+    }
+}
@@ -16,18 +16,30 @@
 
 package org.andstatus.app.net.http;
 
+import android.text.TextUtils;
+
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.FileUtils;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Locale;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class HttpConnectionUtils {
     public static final String UTF_8 = "UTF-8";
+    /** Value of the "Accept-Encoding" request header for the API requests */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
 
     private HttpConnectionUtils() {
     }
@@ -73,4 +85,128 @@ public class HttpConnectionUtils {
         return builder.toString();
     }
 
+    /**
+     * Reads the response body, decoding it according to its "Content-Encoding",
+     * and records the numbers of the received and decoded bytes in the result
+     */
+    static String readStreamToString(HttpReadResult result, InputStream in, String contentEncoding)
+            throws IOException {
+        if (in == null) {
+            return "";
+        }
+        CountingInputStream received = new CountingInputStream(in);
+        CountingInputStream decoded = new CountingInputStream(decodedStream(received, contentEncoding));
+        try {
+            return readStreamToString(decoded);
+        } finally {
+            result.addBytesCount(received.getCount(), decoded.getCount());
+        }
+    }
+
+    /**
+     * The same as {@link #readStreamToString(HttpReadResult, InputStream, String)}, but passes
+     * objects of the JSON array to {@link HttpReadResult#jsonObjectConsumer} as they are read
+     */
+    static void readStreamToJsonObjects(HttpReadResult result, InputStream in, String contentEncoding)
+            throws IOException {
+        if (in == null) {
+            return;
+        }
+        CountingInputStream received = new CountingInputStream(in);
+        CountingInputStream decoded = new CountingInputStream(decodedStream(received, contentEncoding));
+        try {
+            result.readJsonObjects(new InputStreamReader(decoded, UTF_8));
+        } finally {
+            DbUtils.closeSilently(decoded);
+            result.addBytesCount(received.getCount(), decoded.getCount());
+        }
+    }
+
+    /**
+     * The same as {@link #readStreamToString(HttpReadResult, InputStream, String)}, but to a file.
+     * The rest of the file is appended to the file
+     */
+    static void readStreamToFile(HttpReadResult result, InputStream in, String contentEncoding, File file)
+            throws IOException {
+        if (in == null) {
+            return;
+        }
+        CountingInputStream received = new CountingInputStream(in);
+        CountingInputStream decoded = new CountingInputStream(decodedStream(received, contentEncoding));
+        try {
+            FileUtils.readStreamToFile(decoded, file, result.isPartialContent());
+        } finally {
+            result.addBytesCount(received.getCount(), decoded.getCount());
+        }
+    }
+
+    private static InputStream decodedStream(InputStream in, String contentEncoding) throws IOException {
+        String encoding = TextUtils.isEmpty(contentEncoding) ? "" : contentEncoding.trim().toLowerCase(Locale.US);
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in, BUFFER_LENGTH);
+            case "deflate":
+                return inflaterStream(in);
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * "deflate" should be zlib-wrapped (RFC 2616), but some servers send raw deflate data,
+     * so we check the zlib header first
+     */
+    private static InputStream inflaterStream(InputStream in) throws IOException {
+        BufferedInputStream bufferedIn = new BufferedInputStream(in, BUFFER_LENGTH);
+        bufferedIn.mark(2);
+        int byte1 = bufferedIn.read();
+        int byte2 = bufferedIn.read();
+        bufferedIn.reset();
+        boolean zlibWrapped = byte1 >= 0 && byte2 >= 0
+                && (byte1 & 0x0F) == 8 && ((byte1 << 8) | byte2) % 31 == 0;
+        return new InflaterInputStream(bufferedIn, new Inflater(!zlibWrapped), BUFFER_LENGTH);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long byteCount) throws IOException {
+            long skipped = super.skip(byteCount);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
 }
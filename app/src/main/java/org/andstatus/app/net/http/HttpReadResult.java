@@ -27,9 +27,13 @@ import org.json.JSONObject;
 import org.json.JSONTokener;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 public class HttpReadResult {
     private final String urlInitial;
@@ -48,6 +52,27 @@ public class HttpReadResult {
     private StatusCode statusCode = StatusCode.UNKNOWN;
 
     boolean redirected = false;
+    /** Bytes of the response bodies, as received (maybe, compressed) and after decoding */
+    private long receivedBytes = 0;
+    private long decodedBytes = 0;
+
+    /** Key in {@link HttpValidators}, empty if the request is not conditional */
+    private String validatorsKey = "";
+    private String eTagReceived = "";
+    private String lastModifiedReceived = "";
+    /** If set, only the rest of the file is requested */
+    private PartialDownload partialDownload = null;
+
+    /** Account name, the key in {@link RateLimits}, empty if the request is not counted */
+    private String rateLimitsKey = "";
+    private final Map<String, String> rateLimitHeaders = new HashMap<>();
+
+    /**
+     * If set, objects of the JSON array of a successful response are passed to the consumer,
+     * instead of reading the response into {@link #strResponse}
+     */
+    JsonObjectConsumer jsonObjectConsumer = null;
+    private int jsonObjectsCount = -1;
 
     public HttpReadResult(String urlIn) throws ConnectionException {
         this (urlIn, null);
@@ -87,6 +112,107 @@ public class HttpReadResult {
     public URL getUrlObj() {
         return url;
     }
+
+    void addBytesCount(long received, long decoded) {
+        receivedBytes += received;
+        decodedBytes += decoded;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public long getDecodedBytes() {
+        return decodedBytes;
+    }
+
+    HttpReadResult setRateLimited(String rateLimitsKey) {
+        this.rateLimitsKey = rateLimitsKey;
+        return this;
+    }
+
+    /** @param name one of {@link RateLimits#HEADERS} */
+    void setRateLimitHeaderReceived(String name, String value) {
+        if (!TextUtils.isEmpty(value)) {
+            rateLimitHeaders.put(RateLimits.normalizeHeaderName(name), value);
+        }
+    }
+
+    /** Counts the request, even a failed one */
+    void saveRateLimits() {
+        if (!TextUtils.isEmpty(rateLimitsKey) && intStatusCode != 0) {
+            RateLimits.onResponse(rateLimitsKey, getUrl(), statusCode, rateLimitHeaders);
+        }
+    }
+
+    HttpReadResult setConditional(String validatorsKey) {
+        this.validatorsKey = validatorsKey;
+        return this;
+    }
+
+    HttpReadResult setPartialDownload(PartialDownload partialDownload) {
+        this.partialDownload = partialDownload;
+        return this;
+    }
+
+    /** The response contains the rest of the file, which should be appended to the part, we have */
+    boolean isPartialContent() {
+        return statusCode == StatusCode.PARTIAL_CONTENT && partialDownload != null
+                && partialDownload.isRangeSent();
+    }
+
+    boolean isConditional() {
+        return !TextUtils.isEmpty(validatorsKey);
+    }
+
+    /**
+     * @return "If-None-Match" and "If-Modified-Since" headers for the request, if we have validators.
+     * Validators are not sent to the URL, to which we were redirected.
+     * "Range" and "If-Range" headers, if we have a part of the file
+     */
+    Map<String, String> getConditionalHeaders() {
+        Map<String, String> headers = partialDownload == null ? new HashMap<String, String>()
+                : partialDownload.getRangeHeaders();
+        if (isConditional() && !redirected) {
+            HttpValidators.Validators validators = HttpValidators.get(validatorsKey);
+            if (validators != null) {
+                if (!TextUtils.isEmpty(validators.eTag)) {
+                    headers.put("If-None-Match", validators.eTag);
+                }
+                if (!TextUtils.isEmpty(validators.lastModified)) {
+                    headers.put("If-Modified-Since", validators.lastModified);
+                }
+            }
+        }
+        return headers;
+    }
+
+    boolean isStreamed() {
+        return jsonObjectsCount >= 0;
+    }
+
+    int getJsonObjectsCount() {
+        return jsonObjectsCount;
+    }
+
+    void readJsonObjects(Reader reader) throws IOException {
+        jsonObjectsCount = new JsonArrayReader(jsonObjectConsumer).read(reader);
+    }
+
+    void setValidatorsReceived(String eTag, String lastModified) {
+        eTagReceived = eTag == null ? "" : eTag;
+        lastModifiedReceived = lastModified == null ? "" : lastModified;
+        if (partialDownload != null && (statusCode == StatusCode.OK || statusCode == StatusCode.PARTIAL_CONTENT)) {
+            partialDownload.onValidatorsReceived(eTag, lastModified, isPartialContent());
+        }
+    }
+
+    /** Call this after the response was successfully parsed */
+    void saveValidators() {
+        if (isConditional() && !redirected) {
+            HttpValidators.put(validatorsKey, eTagReceived, lastModifiedReceived);
+        }
+    }
     
     void appendToLog(CharSequence chars) {
         if (TextUtils.isEmpty(chars)) {
@@ -114,7 +240,11 @@ public class HttpReadResult {
                 + (redirected ? "; redirected from:'" + urlInitial + "'" : "")
                 + ( hasFormParams() ? "; posted:'" + formParams.toString() + "'" : "")
                 + (TextUtils.isEmpty(strResponse) ? "" : "; response:'" + I18n.trimTextAt(strResponse, 40) + "'")
-                + (fileResult == null ? "" : "; saved to file");
+                + (decodedBytes == 0 ? "" : "; bytes received:" + receivedBytes
+                        + (receivedBytes == decodedBytes ? "" : ", decoded:" + decodedBytes))
+                + (fileResult == null ? "" : "; saved to file")
+                + (partialDownload == null ? "" : "; partial download " + partialDownload)
+                + (isStreamed() ? "; " + jsonObjectsCount + " objects streamed" : "");
     }
     
     JSONObject getJsonObject() throws ConnectionException {
@@ -206,7 +336,10 @@ public class HttpReadResult {
     }
 
     public void parseAndThrow() throws ConnectionException {
-        if ( isStatusOk()) {
+        if (statusCode == StatusCode.NOT_MODIFIED && e1 == null && isConditional()) {
+            HttpValidators.onNotModified(validatorsKey);
+            throw ConnectionException.fromStatusCode(statusCode, toString());
+        } else if ( isStatusOk()) {
             MyLog.v(this, toString());
         } else {
             if (!TextUtils.isEmpty(strResponse)) {
@@ -219,7 +352,8 @@ public class HttpReadResult {
 
     private boolean isStatusOk() {
         return e1 == null 
-                && (statusCode == StatusCode.OK || statusCode == StatusCode.UNKNOWN);
+                && (statusCode == StatusCode.OK || statusCode == StatusCode.UNKNOWN
+                    || statusCode == StatusCode.NOT_MODIFIED || statusCode == StatusCode.PARTIAL_CONTENT);
     }
 
     public HttpReadResult setFormParams(JSONObject formParamsIn) {
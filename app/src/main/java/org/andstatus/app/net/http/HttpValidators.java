@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent store of cache validators ("ETag" and "Last-Modified" response headers)
+ * for conditional GET requests, see https://tools.ietf.org/html/rfc7232
+ * The store is bounded: least recently used entries are evicted.
+ * Changes are kept in memory and persisted in batches
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class HttpValidators {
+    private static final String TAG = HttpValidators.class.getSimpleName();
+    static final String PREFS_FILE_NAME = "http_validators";
+    static final int MAX_SIZE = 500;
+
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "last_modified";
+    private static final String KEY_USED_DATE = "used_date";
+
+    private static final Object lock = new Object();
+    @GuardedBy("lock")
+    private static LinkedHashMap<String, Validators> validators = null;
+    /** Changes, which are not persisted yet, by key. A null value means removal */
+    @GuardedBy("lock")
+    private static final Map<String, Validators> changed = new HashMap<>();
+    @GuardedBy("lock")
+    private static long persistedAt = 0;
+    static final long PERSIST_PERIOD_MILLIS = 30000;
+
+    static class Validators {
+        final String eTag;
+        final String lastModified;
+        final long usedDate;
+
+        Validators(String eTag, String lastModified, long usedDate) {
+            this.eTag = eTag == null ? "" : eTag;
+            this.lastModified = lastModified == null ? "" : lastModified;
+            this.usedDate = usedDate;
+        }
+
+        boolean isEmpty() {
+            return TextUtils.isEmpty(eTag) && TextUtils.isEmpty(lastModified);
+        }
+
+        String toJson() {
+            JSONObject jso = new JSONObject();
+            try {
+                jso.put(KEY_ETAG, eTag);
+                jso.put(KEY_LAST_MODIFIED, lastModified);
+                jso.put(KEY_USED_DATE, usedDate);
+            } catch (JSONException e) {
+                MyLog.d(TAG, "toJson", e);
+            }
+            return jso.toString();
+        }
+
+        static Validators fromJson(String json) {
+            try {
+                JSONObject jso = new JSONObject(json);
+                return new Validators(jso.optString(KEY_ETAG), jso.optString(KEY_LAST_MODIFIED),
+                        jso.optLong(KEY_USED_DATE));
+            } catch (JSONException e) {
+                MyLog.d(TAG, "fromJson '" + json + "'", e);
+                return new Validators("", "", 0);
+            }
+        }
+    }
+
+    private HttpValidators() {
+        // Non instantiable
+    }
+
+    /**
+     * @return null if nothing is stored for the key
+     */
+    static Validators get(String key) {
+        synchronized (lock) {
+            return getMap().get(key);
+        }
+    }
+
+    /**
+     * Stores validators of the response, removes previously stored ones, if the response has none
+     */
+    static void put(String key, String eTag, String lastModified) {
+        Validators newValidators = new Validators(eTag, lastModified, System.currentTimeMillis());
+        synchronized (lock) {
+            Map<String, Validators> map = getMap();
+            if (newValidators.isEmpty()) {
+                if (map.remove(key) != null) {
+                    changed.put(key, null);
+                }
+            } else {
+                map.put(key, newValidators);
+                changed.put(key, newValidators);
+                Iterator<String> iterator = map.keySet().iterator();
+                while (map.size() > MAX_SIZE && iterator.hasNext()) {
+                    String keyToEvict = iterator.next();
+                    iterator.remove();
+                    changed.put(keyToEvict, null);
+                }
+            }
+            persistIfDue();
+        }
+    }
+
+    /** The resource was not modified: mark the validators as recently used */
+    static void onNotModified(String key) {
+        synchronized (lock) {
+            Map<String, Validators> map = getMap();
+            Validators old = map.get(key);
+            if (old != null) {
+                Validators used = new Validators(old.eTag, old.lastModified, System.currentTimeMillis());
+                map.put(key, used);
+                changed.put(key, used);
+                persistIfDue();
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private static void persistIfDue() {
+        if (System.currentTimeMillis() - persistedAt >= PERSIST_PERIOD_MILLIS) {
+            persist();
+        }
+    }
+
+    /**
+     * Writes changes to the preferences file at once: rewriting the file for each response
+     * would be too slow. Is called after each command and, at least, once in {@link #PERSIST_PERIOD_MILLIS}
+     */
+    public static void persist() {
+        synchronized (lock) {
+            persistedAt = System.currentTimeMillis();
+            if (changed.isEmpty()) {
+                return;
+            }
+            SharedPreferences.Editor editor = getEditor();
+            if (editor != null) {
+                for (Map.Entry<String, Validators> entry : changed.entrySet()) {
+                    if (entry.getValue() == null) {
+                        editor.remove(entry.getKey());
+                    } else {
+                        editor.putString(entry.getKey(), entry.getValue().toJson());
+                    }
+                }
+                editor.apply();
+            }
+            changed.clear();
+        }
+    }
+
+    /** Drops the validators in memory, so they are reloaded. Changes, which are not persisted, are lost */
+    static void forget() {
+        synchronized (lock) {
+            validators = null;
+            changed.clear();
+        }
+    }
+
+    public static void clear() {
+        synchronized (lock) {
+            getMap().clear();
+            changed.clear();
+            persistedAt = System.currentTimeMillis();
+            SharedPreferences.Editor editor = getEditor();
+            if (editor != null) {
+                editor.clear().apply();
+            }
+        }
+    }
+
+    public static int size() {
+        synchronized (lock) {
+            return getMap().size();
+        }
+    }
+
+    @GuardedBy("lock")
+    private static Map<String, Validators> getMap() {
+        if (validators == null) {
+            validators = new LinkedHashMap<>(16, 0.75f, true);
+            loadInOrderOfUse(validators);
+            persistedAt = System.currentTimeMillis();
+        }
+        return validators;
+    }
+
+    private static void loadInOrderOfUse(Map<String, Validators> map) {
+        SharedPreferences sp = SharedPreferencesUtil.getSharedPreferences(PREFS_FILE_NAME);
+        if (sp == null) {
+            return;
+        }
+        List<Map.Entry<String, Validators>> entries = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : sp.getAll().entrySet()) {
+            if (entry.getValue() instanceof String) {
+                entries.add(new AbstractMap.SimpleEntry<>(entry.getKey(),
+                        Validators.fromJson((String) entry.getValue())));
+            }
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<String, Validators>>() {
+            @Override
+            public int compare(Map.Entry<String, Validators> lhs, Map.Entry<String, Validators> rhs) {
+                return lhs.getValue().usedDate < rhs.getValue().usedDate ? -1
+                        : (lhs.getValue().usedDate == rhs.getValue().usedDate ? 0 : 1);
+            }
+        });
+        for (Map.Entry<String, Validators> entry : entries) {
+            if (!entry.getValue().isEmpty()) {
+                map.put(entry.getKey(), entry.getValue());
+            }
+        }
+        MyLog.v(TAG, "Loaded " + map.size() + " validators");
+    }
+
+    private static SharedPreferences.Editor getEditor() {
+        SharedPreferences sp = SharedPreferencesUtil.getSharedPreferences(PREFS_FILE_NAME);
+        return sp == null ? null : sp.edit();
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser of a JSON array of objects, which passes the objects to a {@link JsonObjectConsumer}
+ * as soon as each of them is read, so only one object of the array is in memory at a time.
+ * The array is found the same way as in {@link HttpReadResult#getJsonArray()}:
+ * it's either the root of the document, or the "items" array of the root object,
+ * or else the first array, found in the root object
+ * @author yvolk@yurivolkov.com
+ */
+class JsonArrayReader {
+    private final JsonObjectConsumer consumer;
+    private int count = 0;
+
+    JsonArrayReader(JsonObjectConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * @return number of the objects, passed to the consumer
+     */
+    int read(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.setLenient(true);
+        try {
+            JsonToken token;
+            try {
+                token = reader.peek();
+            } catch (EOFException e) {
+                // Empty response
+                return 0;
+            }
+            switch (token) {
+                case BEGIN_ARRAY:
+                    readArray(reader);
+                    break;
+                case BEGIN_OBJECT:
+                    readArrayInObject(reader);
+                    break;
+                default:
+                    throw new ConnectionException("Not an array: " + token);
+            }
+        } catch (IllegalStateException | NumberFormatException | JSONException e) {
+            throw new ConnectionException("Reading JSON array, " + count + " objects read", e);
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    private void readArrayInObject(JsonReader reader) throws IOException, JSONException {
+        JSONArray firstArray = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+            } else if ("items".equals(name)) {
+                readArray(reader);
+                firstArray = null;
+                break;
+            } else if (firstArray == null) {
+                firstArray = readJsonArray(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        if (firstArray != null) {
+            for (int index = 0; index < firstArray.length(); index++) {
+                accept(firstArray.get(index));
+            }
+        }
+    }
+
+    private void readArray(JsonReader reader) throws IOException, JSONException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            accept(readValue(reader));
+        }
+        reader.endArray();
+    }
+
+    private void accept(Object value) throws ConnectionException {
+        if (!(value instanceof JSONObject)) {
+            throw new ConnectionException("Not an object at index " + count + ": " + value);
+        }
+        count++;
+        consumer.accept((JSONObject) value);
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readJsonObject(reader);
+            case BEGIN_ARRAY:
+                return readJsonArray(reader);
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                // The same numeric types as in a tree, parsed by JSONObject
+                return new JSONTokener(reader.nextString()).nextValue();
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                throw new ConnectionException("Unexpected token " + reader.peek());
+        }
+    }
+
+    private static JSONObject readJsonObject(JsonReader reader) throws IOException, JSONException {
+        JSONObject jso = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            jso.put(reader.nextName(), readValue(reader));
+        }
+        reader.endObject();
+        return jso;
+    }
+
+    private static JSONArray readJsonArray(JsonReader reader) throws IOException, JSONException {
+        JSONArray jsa = new JSONArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            jsa.put(readValue(reader));
+        }
+        reader.endArray();
+        return jsa;
+    }
+}
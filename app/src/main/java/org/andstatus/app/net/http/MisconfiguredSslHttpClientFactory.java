@@ -19,7 +19,7 @@ package org.andstatus.app.net.http;
 import org.andstatus.app.context.MyPreferences;
 import cz.msebera.android.httpclient.HttpVersion;
 import cz.msebera.android.httpclient.client.HttpClient;
-import cz.msebera.android.httpclient.conn.ClientConnectionManager;
+import cz.msebera.android.httpclient.client.params.ClientPNames;
 import cz.msebera.android.httpclient.conn.scheme.PlainSocketFactory;
 import cz.msebera.android.httpclient.conn.scheme.Scheme;
 import cz.msebera.android.httpclient.conn.scheme.SchemeRegistry;
@@ -38,7 +38,8 @@ public class MisconfiguredSslHttpClientFactory {
         // Empty
     }
     
-    static HttpClient getHttpClient() {
+    /** The client is shared by all accounts of an origin, see {@link HttpConnectionPools} */
+    static HttpClient getHttpClient(HttpConnectionStats stats) {
         SchemeRegistry schemeRegistry = new SchemeRegistry();
         schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
         
@@ -49,12 +50,18 @@ public class MisconfiguredSslHttpClientFactory {
         schemeRegistry.register(new Scheme("https", socketFactory, 443));
 
         HttpParams params = getHttpParams();        
-        ClientConnectionManager clientConnectionManager = new ThreadSafeClientConnManager(params, schemeRegistry);
-        HttpClient client = new DefaultHttpClient(clientConnectionManager, params);
+        ThreadSafeClientConnManager clientConnectionManager = new ThreadSafeClientConnManager(params, schemeRegistry);
+        clientConnectionManager.setMaxTotal(HttpConnectionPools.MAX_TOTAL);
+        clientConnectionManager.setDefaultMaxPerRoute(HttpConnectionPools.MAX_PER_ROUTE);
+        DefaultHttpClient client = new DefaultHttpClient(clientConnectionManager, params);
+        client.addRequestInterceptor(stats.requestCounter);
         client.getParams()
                 .setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT,
                         MyPreferences.getConnectionTimeoutMs())
                 .setIntParameter(CoreConnectionPNames.SO_TIMEOUT,
+                        MyPreferences.getConnectionTimeoutMs())
+                // Don't wait forever for a connection of the shared pool
+                .setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT,
                         MyPreferences.getConnectionTimeoutMs());
         return client;
     }
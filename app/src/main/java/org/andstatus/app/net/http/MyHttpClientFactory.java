@@ -17,39 +17,60 @@
 package org.andstatus.app.net.http;
 
 import org.andstatus.app.context.MyPreferences;
+import cz.msebera.android.httpclient.HttpResponse;
 import cz.msebera.android.httpclient.client.HttpClient;
 import cz.msebera.android.httpclient.client.config.RequestConfig;
 import cz.msebera.android.httpclient.config.Registry;
 import cz.msebera.android.httpclient.config.RegistryBuilder;
+import cz.msebera.android.httpclient.conn.ConnectionKeepAliveStrategy;
 import cz.msebera.android.httpclient.conn.socket.ConnectionSocketFactory;
 import cz.msebera.android.httpclient.conn.socket.PlainConnectionSocketFactory;
+import cz.msebera.android.httpclient.impl.client.DefaultConnectionKeepAliveStrategy;
 import cz.msebera.android.httpclient.impl.client.HttpClientBuilder;
 import cz.msebera.android.httpclient.impl.client.HttpClients;
 import cz.msebera.android.httpclient.impl.conn.PoolingHttpClientConnectionManager;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+import java.util.concurrent.TimeUnit;
 
 public class MyHttpClientFactory {
 
     /** Based on: https://github.com/rfc2822/davdroid/blob/master/src/at/bitfire/davdroid/webdav/DavHttpClient.java */
 
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
+    /** Not longer than the server allows and not longer than idle connections are kept */
+    private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = new DefaultConnectionKeepAliveStrategy() {
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long maxMillis = TimeUnit.SECONDS.toMillis(HttpConnectionPools.IDLE_SECONDS);
+            long millis = super.getKeepAliveDuration(response, context);
+            return millis > 0 && millis < maxMillis ? millis : maxMillis;
+        }
+    };
+
     private MyHttpClientFactory() {
         // Empty
     }
     
-    public static HttpClient getHttpClient(SslModeEnum sslMode) {
+    /** The client is shared by all accounts of an origin, see {@link HttpConnectionPools} */
+    static HttpClient getHttpClient(SslModeEnum sslMode, HttpConnectionStats stats) {
         Registry<ConnectionSocketFactory> registry = 
                 RegistryBuilder.<ConnectionSocketFactory> create()
-                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
-                    .register("https", TlsSniSocketFactory.getInstance(sslMode))
+                    .register("http", stats.countConnections(PlainConnectionSocketFactory.getSocketFactory()))
+                    .register("https", stats.countConnections(TlsSniSocketFactory.getInstance(sslMode)))
                     .build();
         PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
-        // max.  3 connections in total
-        connectionManager.setMaxTotal(3);
-        // max.  2 connections per host
-        connectionManager.setDefaultMaxPerRoute(2);
+        connectionManager.setMaxTotal(HttpConnectionPools.MAX_TOTAL);
+        connectionManager.setDefaultMaxPerRoute(HttpConnectionPools.MAX_PER_ROUTE);
+        // Instead of the stale connection check before each request
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
 
         // use request defaults from AndroidHttpClient
         RequestConfig requestConfig = RequestConfig.copy(RequestConfig.DEFAULT)
                 .setConnectTimeout(MyPreferences.getConnectionTimeoutMs())
+                // Don't wait forever for a connection of the shared pool
+                .setConnectionRequestTimeout(MyPreferences.getConnectionTimeoutMs())
                 .setSocketTimeout(2*MyPreferences.getConnectionTimeoutMs())
                 .setStaleConnectionCheckEnabled(false)
                 .build();
@@ -57,6 +78,8 @@ public class MyHttpClientFactory {
         HttpClientBuilder builder = HttpClients.custom()
                 .useSystemProperties()
                 .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(KEEP_ALIVE_STRATEGY)
+                .addInterceptorFirst(stats.requestCounter)
                 .setDefaultRequestConfig(requestConfig)
                 /* TODO maybe:  
                 .setRetryHandler(DavHttpRequestRetryHandler.INSTANCE)
@@ -64,6 +87,8 @@ public class MyHttpClientFactory {
                 */
                 .disableRedirectHandling()
                 .setUserAgent(HttpConnection.USER_AGENT)
+                // We decode responses ourselves to count both compressed and uncompressed bytes
+                .disableContentCompression()
                 .disableCookieManagement();
 
         return builder.build();
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.text.TextUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The part of the file, which we have downloaded already, and the validator of the file on the server.
+ * The rest of the file is requested with "Range" and "If-Range" headers, see https://tools.ietf.org/html/rfc7233
+ * @author yvolk@yurivolkov.com
+ */
+public class PartialDownload {
+    private long offset;
+    /** Strong ETag or Last-Modified of the file on the server */
+    private String validator;
+    /** The offset in the "Range" header, which was sent, 0 if the whole file was requested */
+    private volatile long rangeOffsetSent = 0;
+
+    public PartialDownload(long offset, String validator) {
+        this.offset = offset;
+        this.validator = validator == null ? "" : validator;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public String getValidator() {
+        return validator;
+    }
+
+    /** Without a validator we cannot be sure, that the rest of the file is of the same version */
+    public boolean isResumable() {
+        return offset > 0 && !TextUtils.isEmpty(validator);
+    }
+
+    /** A partial content response continues the part of the file, which we have, only if we asked for that */
+    boolean isRangeSent() {
+        return rangeOffsetSent > 0 && rangeOffsetSent == offset;
+    }
+
+    /**
+     * Weak ETags cannot be used in "If-Range", so Last-Modified is used instead of them.
+     * A partial content response without validators is of the version, which we asked for,
+     * so the validator of the request is kept
+     */
+    void onValidatorsReceived(String eTag, String lastModified, boolean partialContent) {
+        String received;
+        if (!TextUtils.isEmpty(eTag) && !eTag.startsWith("W/")) {
+            received = eTag;
+        } else {
+            received = lastModified == null ? "" : lastModified;
+        }
+        if (!partialContent || !TextUtils.isEmpty(received)) {
+            validator = received;
+        }
+    }
+
+    /** If the file on the server was changed, it is sent from the beginning */
+    Map<String, String> getRangeHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        rangeOffsetSent = isResumable() ? offset : 0;
+        if (isResumable()) {
+            headers.put("Range", "bytes=" + offset + "-");
+            headers.put("If-Range", validator);
+            // Offsets are in bytes of the file, not of its encoded representation
+            headers.put("Accept-Encoding", "identity");
+        }
+        return headers;
+    }
+
+    @Override
+    public String toString() {
+        return "offset:" + offset + (TextUtils.isEmpty(validator) ? "" : ", validator:'" + validator + "'");
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.text.TextUtils;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.social.MbRateLimitStatus;
+import org.andstatus.app.util.MyLog;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets of API requests, per account and per endpoint (path of the URL),
+ * fed by rate limit headers of responses and by {@link MbRateLimitStatus}.
+ * See https://dev.twitter.com/rest/public/rate-limiting
+ * A part of the tokens is reserved for commands, launched by the User
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class RateLimits {
+    private static final String TAG = RateLimits.class.getSimpleName();
+    /** Rate limit window of Twitter API v.1.1, used if a server doesn't tell the time of reset */
+    static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    static final int RESERVED_FOR_USER_PERCENT = 10;
+
+    static final String HEADER_LIMIT = "x-rate-limit-limit";
+    static final String HEADER_REMAINING = "x-rate-limit-remaining";
+    static final String HEADER_RESET = "x-rate-limit-reset";
+    static final String HEADER_RETRY_AFTER = "retry-after";
+    /** Response headers, which we read. Lowercase, other spelling variants are normalized */
+    static final String[] HEADERS = {HEADER_LIMIT, HEADER_REMAINING, HEADER_RESET,
+            "x-ratelimit-limit", "x-ratelimit-remaining", "x-ratelimit-reset", HEADER_RETRY_AFTER};
+
+    private static final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    static class TokenBucket {
+        @GuardedBy("this")
+        private int limit = 0;
+        @GuardedBy("this")
+        private double tokens = 0;
+        /** When the server refills the bucket completely, 0 if unknown: then we refill it gradually */
+        @GuardedBy("this")
+        private long resetAt = 0;
+        @GuardedBy("this")
+        private long refilledAt = 0;
+
+        synchronized void update(int limitIn, int remaining, long resetAtIn, long now) {
+            limit = Math.max(limitIn, 1);
+            tokens = Math.max(0, Math.min(remaining, limit));
+            resetAt = resetAtIn > now ? resetAtIn : 0;
+            refilledAt = now;
+        }
+
+        synchronized void consume(long now) {
+            refill(now);
+            tokens = Math.max(0, tokens - 1);
+        }
+
+        /** @return 0 if there are enough tokens now */
+        synchronized long millisUntilAvailable(double needed, long now) {
+            refill(now);
+            if (tokens >= needed) {
+                return 0;
+            }
+            if (resetAt > 0) {
+                return resetAt - now;
+            }
+            return (long) Math.ceil((needed - tokens) * DEFAULT_WINDOW_MILLIS / limit);
+        }
+
+        synchronized int getLimit() {
+            return limit;
+        }
+
+        @GuardedBy("this")
+        private void refill(long now) {
+            if (resetAt > 0) {
+                if (now >= resetAt) {
+                    tokens = limit;
+                    resetAt = 0;
+                    refilledAt = now;
+                }
+            } else if (now > refilledAt) {
+                tokens = Math.min(limit, tokens + (double) (now - refilledAt) * limit / DEFAULT_WINDOW_MILLIS);
+                refilledAt = now;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "tokens:" + Math.round(tokens) + "/" + limit
+                    + (resetAt > 0 ? ", reset in " + TimeUnit.MILLISECONDS.toSeconds(resetAt
+                    - System.currentTimeMillis()) + "s" : "");
+        }
+    }
+
+    private RateLimits() {
+        // Non instantiable
+    }
+
+    /** @return path of the URL, the same for all requests to the API routine */
+    public static String toEndpoint(String url) {
+        try {
+            return new URL(url).getPath();
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    /**
+     * How long a request to the endpoint should be deferred in order not to exceed the rate limit
+     * @param launchedByUser commands, launched by the User, may use tokens, reserved for them
+     * @return 0 if the request may be sent now or if we don't know limits of the endpoint
+     */
+    public static long getDelayMillis(String accountName, String endpoint, boolean launchedByUser) {
+        TokenBucket bucket = TextUtils.isEmpty(endpoint) ? null : buckets.get(toKey(accountName, endpoint));
+        if (bucket == null) {
+            return 0;
+        }
+        double needed = launchedByUser ? 1 : 1 + Math.ceil(bucket.getLimit() * RESERVED_FOR_USER_PERCENT / 100.0);
+        return bucket.millisUntilAvailable(needed, System.currentTimeMillis());
+    }
+
+    /** Limits of the endpoint, as reported by the "rate limit status" API */
+    public static void onRateLimitStatus(String accountName, String endpoint, MbRateLimitStatus status) {
+        if (TextUtils.isEmpty(endpoint) || status.isEmpty()) {
+            return;
+        }
+        getBucket(toKey(accountName, endpoint)).update(status.limit, status.remaining, status.resetTime,
+                System.currentTimeMillis());
+    }
+
+    /** Each response of the endpoint consumes a token, rate limit headers adjust the bucket */
+    static void onResponse(String accountName, String url, StatusCode statusCode, Map<String, String> headers) {
+        String key = toKey(accountName, toEndpoint(url));
+        long now = System.currentTimeMillis();
+        int limit = parseInt(headers.get(HEADER_LIMIT));
+        long resetAt = parseResetTime(headers.get(HEADER_RESET), now);
+        if (statusCode == StatusCode.TOO_MANY_REQUESTS) {
+            long retryAt = parseResetTime(headers.get(HEADER_RETRY_AFTER), now);
+            if (retryAt > resetAt) {
+                resetAt = retryAt;
+            }
+            TokenBucket bucket = getBucket(key);
+            bucket.update(Math.max(limit, bucket.getLimit()), 0, resetAt > now ? resetAt
+                    : now + DEFAULT_WINDOW_MILLIS, now);
+            MyLog.d(TAG, "Too many requests " + key + "; " + bucket);
+        } else if (limit > 0 && headers.containsKey(HEADER_REMAINING)) {
+            getBucket(key).update(limit, parseInt(headers.get(HEADER_REMAINING)), resetAt, now);
+        } else {
+            TokenBucket bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.consume(now);
+            }
+        }
+    }
+
+    public static void clear() {
+        buckets.clear();
+    }
+
+    private static String toKey(String accountName, String endpoint) {
+        return accountName + " " + endpoint;
+    }
+
+    private static TokenBucket getBucket(String key) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            synchronized (buckets) {
+                bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new TokenBucket();
+                    buckets.put(key, bucket);
+                }
+            }
+        }
+        return bucket;
+    }
+
+    /** Different servers spell the same headers differently */
+    static String normalizeHeaderName(String name) {
+        return name.toLowerCase(Locale.US).replace("x-ratelimit-", "x-rate-limit-");
+    }
+
+    private static int parseInt(String value) {
+        return (int) parseLong(value);
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return TextUtils.isEmpty(value) ? 0 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param value Epoch seconds, as Twitter sends them, or seconds from now
+     * @return 0 if unknown
+     */
+    private static long parseResetTime(String value, long now) {
+        long seconds = parseLong(value);
+        if (seconds <= 0) {
+            return 0;
+        }
+        // An epoch time is far in the future from 1970, a delay is much shorter
+        return seconds > TimeUnit.DAYS.toSeconds(365) ? TimeUnit.SECONDS.toMillis(seconds)
+                : now + TimeUnit.SECONDS.toMillis(seconds);
+    }
+}
@@ -10,9 +10,12 @@
 package org.andstatus.app.net.http;
 
 import android.annotation.TargetApi;
+import android.content.Context;
 import android.net.SSLCertificateSocketFactory;
+import android.net.SSLSessionCache;
 import android.os.Build;
 
+import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.util.MyLog;
 import cz.msebera.android.httpclient.HttpHost;
@@ -68,16 +71,24 @@ public class TlsSniSocketFactory implements LayeredConnectionSocketFactory {
 
     public TlsSniSocketFactory(SslModeEnum sslMode) {
         secure = sslMode == SslModeEnum.SECURE;
+        // TLS sessions are resumed (abbreviated handshake) for the same host,
+        // even after the application restart
+        SSLSessionCache sessionCache = getSessionCache();
         if (secure) {
             sslSocketFactory = (SSLCertificateSocketFactory) SSLCertificateSocketFactory
-                    .getDefault(MyPreferences.getConnectionTimeoutMs());
+                    .getDefault(MyPreferences.getConnectionTimeoutMs(), sessionCache);
         } else {
             sslSocketFactory = (SSLCertificateSocketFactory) SSLCertificateSocketFactory
-                    .getInsecure(MyPreferences.getConnectionTimeoutMs(), null);
+                    .getInsecure(MyPreferences.getConnectionTimeoutMs(), sessionCache);
             MyLog.i(this, "Insecure SSL allowed");
         }
     }
     
+    private static SSLSessionCache getSessionCache() {
+        Context context = MyContextHolder.get().context();
+        return context == null ? null : new SSLSessionCache(context);
+    }
+
     @Override
     public Socket createSocket(HttpContext context) throws IOException {
         return sslSocketFactory.createSocket();
@@ -29,6 +29,8 @@ import org.andstatus.app.net.http.HttpConnection;
 import org.andstatus.app.net.http.HttpConnectionData;
 import org.andstatus.app.net.http.HttpConnectionMock;
 import org.andstatus.app.net.http.OAuthConsumerAndProvider;
+import org.andstatus.app.net.http.PartialDownload;
+import org.andstatus.app.net.http.RateLimits;
 import org.andstatus.app.net.social.MbTimelineItem.ItemType;
 import org.andstatus.app.origin.OriginConnectionData;
 import org.andstatus.app.util.MyLog;
@@ -117,6 +119,8 @@ public abstract class Connection {
         SEARCH_MESSAGES(true),
 
         GET_MESSAGE,
+        /** Messages of the conversation, to which the message belongs */
+        GET_CONVERSATION,
         STOP_FOLLOWING_USER,
         
         /**
@@ -194,6 +198,23 @@ public abstract class Connection {
         }
         return is;
     }
+
+    /**
+     * Endpoint of the API routine for {@link RateLimits}
+     * @return empty string if the routine is not supported or its path depends on parameters
+     */
+    @NonNull
+    public String getRateLimitEndpoint(ApiRoutineEnum routine) {
+        String path = routine == null ? "" : this.getApiPath1(routine);
+        if (TextUtils.isEmpty(path) || path.contains("%")) {
+            return "";
+        }
+        try {
+            return RateLimits.toEndpoint(http.pathToUrlString(path));
+        } catch (ConnectionException e) {
+            return "";
+        }
+    }
     
     /**
      * Check API requests status.
@@ -302,6 +323,14 @@ public abstract class Connection {
 
     /** See {@link #getMessage(String)} */
     protected abstract MbMessage getMessage1(String statusId) throws ConnectionException;
+
+    /**
+     * Returns all messages of the conversation, see {@link MbMessage#conversationOid}
+     * The API is supported if {@link #isApiSupported(ApiRoutineEnum)} for {@link ApiRoutineEnum#GET_CONVERSATION}
+     */
+    public List<MbTimelineItem> getConversation(String conversationOid) throws ConnectionException {
+        throw ConnectionException.fromStatusCode(StatusCode.UNSUPPORTED_API, "getConversation oid=" + conversationOid);
+    }
     
     /**
      * Update user status by posting to the Twitter REST API.
@@ -353,6 +382,19 @@ public abstract class Connection {
     public abstract List<MbTimelineItem> getTimeline(ApiRoutineEnum apiRoutine, TimelinePosition sinceId, int limit, String userId)
             throws ConnectionException;
 
+    /**
+     * Streaming variant of {@link #getTimeline(ApiRoutineEnum, TimelinePosition, int, String)}:
+     * items are passed to the consumer as soon as they are parsed, in the order of the response
+     * (i.e. not necessarily in chronological order), so the whole response is not kept in memory.
+     * This default implementation gets the whole list first
+     */
+    public void getTimeline(ApiRoutineEnum apiRoutine, TimelinePosition sinceId, int limit, String userId,
+                            TimelineItemConsumer consumer) throws ConnectionException {
+        for (MbTimelineItem item : getTimeline(apiRoutine, sinceId, limit, userId)) {
+            consumer.accept(item);
+        }
+    }
+
     public abstract List<MbTimelineItem> search(TimelinePosition youngestPosition, int limit, String searchQuery)
             throws ConnectionException;
     
@@ -371,9 +413,18 @@ public abstract class Connection {
      * @param userId
      * @param userName
      * @return User object
-     * @throws ConnectionException
+     * @throws ConnectionException with {@link StatusCode#NOT_MODIFIED} if the User
+     * wasn't changed since the previous request
      */
-    public abstract MbUser getUser(String userId, String userName) throws ConnectionException;
+    public final MbUser getUser(String userId, String userName) throws ConnectionException {
+        return getUser(userId, userName, true);
+    }
+
+    /**
+     * @param ifModified false if we don't have the User stored, so "Not modified" response is useless
+     */
+    public abstract MbUser getUser(String userId, String userName, boolean ifModified)
+            throws ConnectionException;
     
     protected final String fixSinceId(String sinceId) {
         String out = "";
@@ -438,6 +489,10 @@ public abstract class Connection {
         return false;
     }
 
+    /**
+     * @throws ConnectionException with {@link StatusCode#NOT_MODIFIED} if the configuration
+     * wasn't changed since the previous request
+     */
     public MbConfig getConfig() throws ConnectionException {
         return MbConfig.getEmpty();
     }
@@ -467,7 +522,11 @@ public abstract class Connection {
         if(TextUtils.isEmpty(stringDate)) {
             return 0;
         }
-        long unixDate = 0;
+        long unixDate = DateParser.parseRfc822(stringDate);
+        if (unixDate != 0) {
+            return unixDate;
+        }
+        // Slow path for formats, unknown to the DateParser
         String[] formats = {"", "E MMM d HH:mm:ss Z yyyy", "E, d MMM yyyy HH:mm:ss Z"};
         for (String format : formats) {
             if (TextUtils.isEmpty(format)) {
@@ -496,9 +555,13 @@ public abstract class Connection {
 
     protected void setMessagesPublic(List<MbTimelineItem> timeline) {
         for (MbTimelineItem item : timeline) {
-            if (item.getType() == ItemType.MESSAGE) {
-                item.mbMessage.setPublic(true);
-            }
+            setMessagePublic(item);
+        }
+    }
+
+    protected void setMessagePublic(MbTimelineItem item) {
+        if (item.getType() == ItemType.MESSAGE) {
+            item.mbMessage.setPublic(true);
         }
     }
 
@@ -528,6 +591,19 @@ public abstract class Connection {
         http.downloadFile(url, file);
     }
 
+    /** Resumes the download, see {@link HttpConnection#downloadFile(String, File, PartialDownload)} */
+    public void downloadFile(String url, File file, PartialDownload partialDownload) throws ConnectionException {
+        http.downloadFile(url, file, partialDownload);
+    }
+
+    /**
+     * Download the file only if it was modified since the previous download
+     * @throws ConnectionException with {@link StatusCode#NOT_MODIFIED} if it wasn't
+     */
+    public void downloadFileIfModified(String url, File file) throws ConnectionException {
+        http.downloadFileIfModified(url, file);
+    }
+
     @NonNull
     public HttpConnectionMock getHttpMock() {
         if (http != null && HttpConnectionMock.class.isAssignableFrom(http.getClass())) {
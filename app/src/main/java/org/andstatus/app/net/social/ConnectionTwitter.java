@@ -21,6 +21,7 @@ import android.text.TextUtils;
 
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.JsonObjectConsumer;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
@@ -31,6 +32,7 @@ import org.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Twitter API implementations
@@ -210,8 +212,30 @@ public abstract class ConnectionTwitter extends Connection {
     @Override
     public List<MbTimelineItem> getTimeline(ApiRoutineEnum apiRoutine, TimelinePosition youngestPosition, int limit, String userId)
             throws ConnectionException {
-        String url = this.getApiPath(apiRoutine);
-        Uri sUri = Uri.parse(url);
+        JSONArray jArr = http.getRequestAsArray(getTimelineUrl(apiRoutine, youngestPosition, limit, userId));
+        return jArrToTimeline(jArr, apiRoutine, getApiPath(apiRoutine));
+    }
+
+    @Override
+    public void getTimeline(final ApiRoutineEnum apiRoutine, TimelinePosition youngestPosition, int limit,
+                            String userId, final TimelineItemConsumer consumer) throws ConnectionException {
+        String url = getTimelineUrl(apiRoutine, youngestPosition, limit, userId);
+        int count = http.getRequestAsArrayStreamed(url, new JsonObjectConsumer() {
+            @Override
+            public void accept(JSONObject jso) throws ConnectionException {
+                MbTimelineItem item = timelineItemFromJson(jso);
+                if (apiRoutine.isMsgPublic()) {
+                    setMessagePublic(item);
+                }
+                consumer.accept(item);
+            }
+        });
+        MyLog.d(this, apiRoutine + " '" + url + "' " + count + " items streamed");
+    }
+
+    private String getTimelineUrl(ApiRoutineEnum apiRoutine, TimelinePosition youngestPosition, int limit,
+                                  String userId) throws ConnectionException {
+        Uri sUri = Uri.parse(getApiPath(apiRoutine));
         Uri.Builder builder = sUri.buildUpon();
         if (!youngestPosition.isEmpty()) {
             builder.appendQueryParameter("since_id", youngestPosition.getPosition());
@@ -222,8 +246,7 @@ public abstract class ConnectionTwitter extends Connection {
         if (!TextUtils.isEmpty(userId)) {
             builder.appendQueryParameter("user_id", userId);
         }
-        JSONArray jArr = http.getRequestAsArray(builder.build().toString());
-        return jArrToTimeline(jArr, apiRoutine, url);
+        return builder.build().toString();
     }
 
     private MbTimelineItem timelineItemFromJson(JSONObject jso) throws ConnectionException {
@@ -455,7 +478,7 @@ public abstract class ConnectionTwitter extends Connection {
      *      href="https://dev.twitter.com/docs/api/1.1/get/users/show">GET users/show</a>
      */
     @Override
-    public MbUser getUser(String userId, String userName) throws ConnectionException {
+    public MbUser getUser(String userId, String userName, boolean ifModified) throws ConnectionException {
         Uri sUri = Uri.parse(getApiPath(ApiRoutineEnum.GET_USER));
         Uri.Builder builder = sUri.buildUpon();
         if (MbUser.isOidReal(userId)) {
@@ -463,7 +486,8 @@ public abstract class ConnectionTwitter extends Connection {
         } else {
             builder.appendQueryParameter("screen_name", userName);
         }
-        JSONObject jso = http.getRequest(builder.build().toString());
+        String url = builder.build().toString();
+        JSONObject jso = ifModified ? http.getRequestIfModified(url) : http.getRequest(url);
         MbUser mbUser = userFromJson(jso);
         MyLog.v(this, "getUser oid='" + userId + "', userName='" + userName + "' -> " + mbUser.getRealName());
         return mbUser;
@@ -515,6 +539,7 @@ public abstract class ConnectionTwitter extends Connection {
                 case GNUSOCIAL_TWITTER:
                     status.remaining = result.optInt("remaining_hits");
                     status.limit = result.optInt("hourly_limit");
+                    status.resetTime = TimeUnit.SECONDS.toMillis(result.optLong("reset_time_in_seconds"));
                     break;
                 default:
                     JSONObject resources = null;
@@ -523,6 +548,7 @@ public abstract class ConnectionTwitter extends Connection {
                         JSONObject limitObject = resources.getJSONObject("statuses").getJSONObject("/statuses/home_timeline");
                         status.remaining = limitObject.optInt("remaining");
                         status.limit = limitObject.optInt("limit");
+                        status.resetTime = TimeUnit.SECONDS.toMillis(limitObject.optLong("reset"));
                     } catch (JSONException e) {
                         throw ConnectionException.loggedJsonException(this, "getting rate limits", e, resources);
                     }
@@ -52,6 +52,9 @@ public class ConnectionTwitterGnuSocial extends ConnectionTwitter1p0 {
             case GET_OPEN_INSTANCES:
                 url = "http://gstools.org/api/get_open_instances";
                 break;
+            case GET_CONVERSATION:
+                url = "statusnet/conversation/";
+                break;
             case PUBLIC_TIMELINE:
                 url = "statuses/public_timeline" + EXTENSION;
                 break;
@@ -127,7 +130,7 @@ public class ConnectionTwitterGnuSocial extends ConnectionTwitter1p0 {
     
     @Override
     public MbConfig getConfig() throws ConnectionException {
-        JSONObject result = http.getRequest(getApiPath(ApiRoutineEnum.GET_CONFIG));
+        JSONObject result = http.getRequestIfModified(getApiPath(ApiRoutineEnum.GET_CONFIG));
         MbConfig config = MbConfig.getEmpty();
         if (result != null) {
             JSONObject site = result.optJSONObject("site");
@@ -159,11 +162,25 @@ public class ConnectionTwitterGnuSocial extends ConnectionTwitter1p0 {
         }
     }
 
+    @Override
+    public List<MbTimelineItem> getConversation(String conversationOid) throws ConnectionException {
+        if (TextUtils.isEmpty(conversationOid)) {
+            return new ArrayList<>();
+        }
+        String url = getApiPath(ApiRoutineEnum.GET_CONVERSATION) + conversationOid + EXTENSION;
+        JSONArray jArr = http.getRequestAsArray(url);
+        return jArrToTimeline(jArr, ApiRoutineEnum.GET_CONVERSATION, url);
+    }
+
     private static final String ATTACHMENTS_FIELD_NAME = "attachments";
+    private static final String CONVERSATION_ID_FIELD_NAME = "statusnet_conversation_id";
     @Override
     protected MbMessage messageFromJson(JSONObject jso) throws ConnectionException {
         final String method = "messageFromJson";
         MbMessage message = super.messageFromJson(jso);
+        if (jso != null && jso.has(CONVERSATION_ID_FIELD_NAME)) {
+            message.conversationOid = jso.optString(CONVERSATION_ID_FIELD_NAME);
+        }
         if (jso != null && jso.has(ATTACHMENTS_FIELD_NAME)) {
             try {
                 JSONArray jArr = jso.getJSONArray(ATTACHMENTS_FIELD_NAME);
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.social;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses dates, which servers send, without creating objects and without shared mutable state,
+ * so it is safe to use from any thread.
+ * Methods return Unix time in milliseconds or 0 if the string is not in the expected format
+ * @author yvolk@yurivolkov.com
+ */
+public final class DateParser {
+    private static final String MONTHS = "janfebmaraprmayjunjulaugsepoctnovdec";
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int NO_ZONE = Integer.MIN_VALUE;
+
+    private DateParser() {
+        // Non instantiable
+    }
+
+    /**
+     * Twitter and GNU social: "Wed Aug 27 13:08:45 +0000 2008", also "Thu Sep 26 22:23:05 GMT+04:00 2013",
+     * and RFC 822: "Tue, 10 Jun 2003 04:00:00 GMT"
+     */
+    public static long parseRfc822(String s) {
+        int len = s == null ? 0 : s.length();
+        if (len == 0) {
+            return 0;
+        }
+        int pos = skipSpaces(s, 0);
+        if (pos < len && isLetter(s.charAt(pos)) && monthAt(s, pos) < 0) {
+            // Day of week
+            pos = skipLetters(s, pos);
+            if (pos < len && s.charAt(pos) == ',') {
+                pos++;
+            }
+            pos = skipSpaces(s, pos);
+        }
+        int month;
+        int day;
+        int end;
+        if (pos < len && isLetter(s.charAt(pos))) {
+            month = monthAt(s, pos);
+            pos = skipSpaces(s, skipLetters(s, pos));
+            end = skipDigits(s, pos);
+            day = toInt(s, pos, end);
+        } else {
+            end = skipDigits(s, pos);
+            day = toInt(s, pos, end);
+            pos = skipSpaces(s, end);
+            month = monthAt(s, pos);
+            end = skipLetters(s, pos);
+        }
+        pos = skipSpaces(s, end);
+        end = skipDigits(s, pos);
+        int year = -1;
+        if (end >= len || s.charAt(end) != ':') {
+            if (end - pos != 4) {
+                return 0;
+            }
+            year = toInt(s, pos, end);
+            pos = skipSpaces(s, end);
+        }
+        if (pos + 5 > len || s.charAt(pos + 2) != ':') {
+            return 0;
+        }
+        int hour = twoDigits(s, pos);
+        int minute = twoDigits(s, pos + 3);
+        int second = 0;
+        pos += 5;
+        if (pos < len && s.charAt(pos) == ':') {
+            second = twoDigits(s, pos + 1);
+            pos += 3;
+        }
+        pos = skipSpaces(s, pos);
+        end = zoneEnd(s, pos);
+        int offsetMinutes = zoneOffsetMinutes(s, pos, end);
+        if (offsetMinutes == NO_ZONE) {
+            return 0;
+        }
+        pos = skipSpaces(s, end);
+        if (year < 0) {
+            end = skipDigits(s, pos);
+            if (end - pos != 4) {
+                return 0;
+            }
+            year = toInt(s, pos, end);
+            pos = skipSpaces(s, end);
+        }
+        if (pos != len) {
+            return 0;
+        }
+        return toUnixTime(year, month + 1, day, hour, minute, second, 0, offsetMinutes);
+    }
+
+    /** Pump.io: "2013-09-12T17:10:44Z", also with milliseconds and with a "+03:00" or "+0300" offset */
+    public static long parseIso8601(String s) {
+        int len = s == null ? 0 : s.length();
+        if (len < 19 || s.charAt(4) != '-' || s.charAt(7) != '-'
+                || (s.charAt(10) != 'T' && s.charAt(10) != 't' && s.charAt(10) != ' ')
+                || s.charAt(13) != ':' || s.charAt(16) != ':') {
+            return 0;
+        }
+        int year = skipDigits(s, 0) == 4 ? toInt(s, 0, 4) : -1;
+        int month = twoDigits(s, 5);
+        int day = twoDigits(s, 8);
+        int hour = twoDigits(s, 11);
+        int minute = twoDigits(s, 14);
+        int second = twoDigits(s, 17);
+        int pos = 19;
+        int millis = 0;
+        if (pos < len && s.charAt(pos) == '.') {
+            int end = skipDigits(s, pos + 1);
+            if (end == pos + 1) {
+                return 0;
+            }
+            // Only milliseconds are significant
+            for (int ind = pos + 1; ind < pos + 4; ind++) {
+                millis = millis * 10 + (ind < end ? s.charAt(ind) - '0' : 0);
+            }
+            pos = end;
+        }
+        int end = zoneEnd(s, pos);
+        if (end != len) {
+            return 0;
+        }
+        int offsetMinutes = zoneOffsetMinutes(s, pos, end);
+        if (offsetMinutes == NO_ZONE) {
+            return 0;
+        }
+        return toUnixTime(year, month, day, hour, minute, second, millis, offsetMinutes);
+    }
+
+    private static long toUnixTime(int year, int month, int day, int hour, int minute, int second,
+                                   int millis, int offsetMinutes) {
+        if (year < 1000 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return 0;
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + TimeUnit.SECONDS.toMillis(hour * 3600 + (minute - offsetMinutes) * 60 + second) + millis;
+    }
+
+    /** Days since 1970-01-01 of the proleptic Gregorian calendar, see http://howardhinnant.github.io/date_algorithms.html */
+    static long daysFromCivil(int yearIn, int month, int day) {
+        int year = month <= 2 ? yearIn - 1 : yearIn;
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /** "Z", "UT", "UTC", "GMT", each optionally followed by an offset, or an offset: "+0300", "+03:00", "+03" */
+    private static int zoneEnd(String s, int start) {
+        int len = s.length();
+        int pos = skipLetters(s, start);
+        if (pos < len && (s.charAt(pos) == '+' || s.charAt(pos) == '-')) {
+            pos = skipDigits(s, pos + 1);
+            if (pos < len && s.charAt(pos) == ':') {
+                pos = skipDigits(s, pos + 1);
+            }
+        }
+        return pos;
+    }
+
+    /** @return {@link #NO_ZONE} if the zone is unknown */
+    private static int zoneOffsetMinutes(String s, int start, int end) {
+        int pos = skipLetters(s, start);
+        int letters = pos - start;
+        if (letters > 0 && !isUtcName(s, start, letters)) {
+            return NO_ZONE;
+        }
+        if (pos == end) {
+            return letters > 0 ? 0 : NO_ZONE;
+        }
+        int sign = s.charAt(pos) == '-' ? -1 : 1;
+        int digitsEnd = skipDigits(s, pos + 1);
+        int hours;
+        int minutes = 0;
+        switch (digitsEnd - pos - 1) {
+            case 2:
+                hours = twoDigits(s, pos + 1);
+                if (digitsEnd < end) {
+                    if (end - digitsEnd != 3) {
+                        return NO_ZONE;
+                    }
+                    minutes = twoDigits(s, digitsEnd + 1);
+                }
+                break;
+            case 4:
+                hours = twoDigits(s, pos + 1);
+                minutes = twoDigits(s, pos + 3);
+                break;
+            default:
+                return NO_ZONE;
+        }
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+            return NO_ZONE;
+        }
+        return sign * (hours * 60 + minutes);
+    }
+
+    private static boolean isUtcName(String s, int start, int length) {
+        switch (length) {
+            case 1:
+                return s.regionMatches(true, start, "Z", 0, 1);
+            case 2:
+                return s.regionMatches(true, start, "UT", 0, 2);
+            case 3:
+                return s.regionMatches(true, start, "UTC", 0, 3) || s.regionMatches(true, start, "GMT", 0, 3);
+            default:
+                return false;
+        }
+    }
+
+    /** @return zero based index of the month, -1 if the month name was not found */
+    private static int monthAt(String s, int pos) {
+        if (pos + 3 > s.length()) {
+            return -1;
+        }
+        for (int month = 0; month < 12; month++) {
+            if (s.regionMatches(true, pos, MONTHS, month * 3, 3)) {
+                return month;
+            }
+        }
+        return -1;
+    }
+
+    /** @return -1 if not two digits */
+    private static int twoDigits(String s, int pos) {
+        if (pos + 2 > s.length() || !isDigit(s.charAt(pos)) || !isDigit(s.charAt(pos + 1))) {
+            return -1;
+        }
+        return (s.charAt(pos) - '0') * 10 + s.charAt(pos + 1) - '0';
+    }
+
+    /** @return -1 if there are no digits */
+    private static int toInt(String s, int start, int end) {
+        if (end <= start || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int pos = start; pos < end; pos++) {
+            value = value * 10 + s.charAt(pos) - '0';
+        }
+        return value;
+    }
+
+    private static int skipSpaces(String s, int start) {
+        int pos = start;
+        while (pos < s.length() && s.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipLetters(String s, int start) {
+        int pos = start;
+        while (pos < s.length() && isLetter(s.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipDigits(String s, int start) {
+        int pos = start;
+        while (pos < s.length() && isDigit(s.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
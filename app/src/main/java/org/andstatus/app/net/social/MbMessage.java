@@ -46,6 +46,8 @@ public class MbMessage {
     public MbMessage rebloggedMessage = null;
     public MbMessage inReplyToMessage = null;
     public final List<MbMessage> replies = new ArrayList<>();
+    /** Id of the conversation in the Origin, if the Origin has such notion. Not stored */
+    public String conversationOid = "";
     public String via = "";
     public String url="";
     private boolean isPublic = false;
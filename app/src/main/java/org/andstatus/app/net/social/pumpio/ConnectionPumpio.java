@@ -27,12 +27,15 @@ import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.http.HttpConnection;
 import org.andstatus.app.net.http.HttpConnectionData;
+import org.andstatus.app.net.http.JsonObjectConsumer;
 import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.net.social.DateParser;
 import org.andstatus.app.net.social.MbAttachment;
 import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.MbRateLimitStatus;
 import org.andstatus.app.net.social.MbTimelineItem;
 import org.andstatus.app.net.social.MbUser;
+import org.andstatus.app.net.social.TimelineItemConsumer;
 import org.andstatus.app.net.social.TimelinePosition;
 import org.andstatus.app.origin.OriginConnectionData;
 import org.andstatus.app.util.JsonUtils;
@@ -143,7 +146,6 @@ public class ConnectionPumpio extends Connection {
         return user;
     }
 
-    private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.GERMANY);
     /**
      * Simple solution based on:
      * http://stackoverflow.com/questions/2201925/converting-iso8601-compliant-string-to-java-util-date
@@ -151,8 +153,10 @@ public class ConnectionPumpio extends Connection {
      */
     @Override
     public long parseDate(String stringDate) {
-        long unixDate = 0;
-        if(stringDate != null) {
+        long unixDate = DateParser.parseIso8601(stringDate);
+        if (unixDate == 0 && stringDate != null) {
+            // Slow path for formats, unknown to the DateParser
+            DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.GERMANY);
             String datePrepared;        
             if (stringDate.lastIndexOf('Z') == stringDate.length()-1) {
                 datePrepared = stringDate.substring(0, stringDate.length()-1) + "+0000";
@@ -343,17 +347,7 @@ public class ConnectionPumpio extends Connection {
     public List<MbTimelineItem> getTimeline(ApiRoutineEnum apiRoutine, TimelinePosition sinceId, int limit, String userId)
             throws ConnectionException {
         ConnectionAndUrl conu = getConnectionAndUrl(apiRoutine, userId);
-        Uri sUri = Uri.parse(conu.url);
-        Uri.Builder builder = sUri.buildUpon();
-        if (!sinceId.isEmpty()) {
-            // The "since" should point to the "Activity" on the timeline, not to the message
-            // Otherwise we will always get "not found"
-            builder.appendQueryParameter("since", sinceId.getPosition());
-        }
-        if (fixedDownloadLimitForApiRoutine(limit, apiRoutine) > 0) {
-            builder.appendQueryParameter("count",String.valueOf(fixedDownloadLimitForApiRoutine(limit, apiRoutine)));
-        }
-        String url = builder.build().toString();
+        String url = getTimelineUrl(conu, apiRoutine, sinceId, limit);
         JSONArray jArr = conu.httpConnection.getRequestAsArray(url);
         List<MbTimelineItem> timeline = new ArrayList<>();
         if (jArr != null) {
@@ -372,6 +366,35 @@ public class ConnectionPumpio extends Connection {
         return timeline;
     }
 
+    @Override
+    public void getTimeline(ApiRoutineEnum apiRoutine, TimelinePosition sinceId, int limit, String userId,
+                            final TimelineItemConsumer consumer) throws ConnectionException {
+        ConnectionAndUrl conu = getConnectionAndUrl(apiRoutine, userId);
+        String url = getTimelineUrl(conu, apiRoutine, sinceId, limit);
+        int count = conu.httpConnection.getRequestAsArrayStreamed(url, new JsonObjectConsumer() {
+            @Override
+            public void accept(JSONObject jso) throws ConnectionException {
+                consumer.accept(timelineItemFromJson(jso));
+            }
+        });
+        MyLog.d(TAG, "getTimeline '" + url + "' " + count + " messages streamed");
+    }
+
+    private String getTimelineUrl(ConnectionAndUrl conu, ApiRoutineEnum apiRoutine, TimelinePosition sinceId,
+                                  int limit) {
+        Uri sUri = Uri.parse(conu.url);
+        Uri.Builder builder = sUri.buildUpon();
+        if (!sinceId.isEmpty()) {
+            // The "since" should point to the "Activity" on the timeline, not to the message
+            // Otherwise we will always get "not found"
+            builder.appendQueryParameter("since", sinceId.getPosition());
+        }
+        if (fixedDownloadLimitForApiRoutine(limit, apiRoutine) > 0) {
+            builder.appendQueryParameter("count",String.valueOf(fixedDownloadLimitForApiRoutine(limit, apiRoutine)));
+        }
+        return builder.build().toString();
+    }
+
     @Override
     public int fixedDownloadLimitForApiRoutine(int limit, ApiRoutineEnum apiRoutine) {
         final int maxLimit = apiRoutine == ApiRoutineEnum.GET_FRIENDS ? 200 : 20;
@@ -661,10 +684,11 @@ public class ConnectionPumpio extends Connection {
     }
     
     @Override
-    public MbUser getUser(String userId, String userName) throws ConnectionException {
+    public MbUser getUser(String userId, String userName, boolean ifModified) throws ConnectionException {
         ConnectionAndUrl conu = getConnectionAndUrlForUsername(ApiRoutineEnum.GET_USER,
                 MbUser.isOidReal(userId) ? userOidToUsername(userId) : userName);
-        JSONObject jso = conu.httpConnection.getRequest(conu.url);
+        JSONObject jso = ifModified ? conu.httpConnection.getRequestIfModified(conu.url)
+                : conu.httpConnection.getRequest(conu.url);
         MbUser mbUser = userFromJson(jso);
         MyLog.v(this, "getUser oid='" + userId + "', userName='" + userName + "' -> " + mbUser.getRealName());
         return mbUser;
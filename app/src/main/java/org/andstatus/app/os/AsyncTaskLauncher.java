@@ -25,7 +25,9 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -96,6 +98,14 @@ public class AsyncTaskLauncher<Params> {
         return executor;
     }
 
+    /**
+     * Runs a part of the work of a background task in the pool, so that the task may wait for it.
+     * Don't submit to the pool, which runs the waiting task: all its threads may be waiting
+     */
+    public static <V> Future<V> submit(MyAsyncTask.PoolEnum pool, Callable<V> callable) {
+        return getExecutor(pool).submit(callable);
+    }
+
     public static boolean execute(Object objTag, boolean throwOnFail, MyAsyncTask<Void, ?, ?> asyncTask) {
         AsyncTaskLauncher<Void> launcher = new AsyncTaskLauncher<>();
         return launcher.execute(objTag, throwOnFail, asyncTask, (Void) null);
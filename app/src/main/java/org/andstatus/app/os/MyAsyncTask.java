@@ -46,8 +46,9 @@ public abstract class MyAsyncTask<Params, Progress, Result> extends AsyncTask<Pa
     protected volatile long cancelledAt = 0;
 
     public enum PoolEnum {
-        SYNC(2),
-        FILE_DOWNLOAD(1),
+        SYNC(4),
+        /** Workers of the DownloadEngine and one thread for short tasks */
+        FILE_DOWNLOAD(5),
         QUICK_UI(1),
         LONG_UI(1),
         DEFAULT(0);
@@ -16,13 +16,19 @@
 
 package org.andstatus.app.service;
 
+import android.graphics.Point;
+
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.MessageForAccount;
+import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.util.MyLog;
 
+import java.io.File;
+
 public class AttachmentDownloader extends FileDownloader {
 
     protected AttachmentDownloader(DownloadData data) {
@@ -53,6 +59,14 @@ public class AttachmentDownloader extends FileDownloader {
         return bestAccount;
     }
 
+    @Override
+    protected void onDownloaded(File file) {
+        if (data.getContentType() == MyContentType.IMAGE) {
+            Point size = MyImageCache.makeAttachedImageThumbnail(file);
+            data.setImageSize(size.x, size.y);
+        }
+    }
+
     @Override
     protected void onSuccessfulLoad() {
         MyLog.v(this, "Loaded attachment " + data);
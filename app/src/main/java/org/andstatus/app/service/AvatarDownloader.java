@@ -16,14 +16,19 @@
 
 package org.andstatus.app.service;
 
+import android.graphics.Point;
+
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.AvatarData;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.database.UserTable;
+import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.util.MyLog;
 
+import java.io.File;
+
 public class AvatarDownloader extends FileDownloader {
     public AvatarDownloader(long userIdIn) {
         this(AvatarData.getForUser(userIdIn));
@@ -39,6 +44,12 @@ public class AvatarDownloader extends FileDownloader {
         return MyContextHolder.get().persistentAccounts().getFirstSucceededForOriginId(originId);
     }
 
+    @Override
+    protected void onDownloaded(File file) {
+        Point size = MyImageCache.makeAvatarThumbnail(file);
+        data.setImageSize(size.x, size.y);
+    }
+
     @Override
     protected void onSuccessfulLoad() {
         data.deleteOtherOfThisUser();
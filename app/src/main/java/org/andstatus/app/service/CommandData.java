@@ -493,6 +493,22 @@ public class CommandData implements Comparable<CommandData> {
                 predefinedPeriodSeconds);
     }
 
+    /**
+     * Commands with the same key are executed one after another, e.g. all commands of one account
+     * or downloads of one type. Commands with different keys may be executed in parallel
+     */
+    public String getExecutionKey() {
+        switch (command) {
+            case FETCH_ATTACHMENT:
+            case FETCH_AVATAR:
+            case GET_OPEN_INSTANCES:
+                return command.save();
+            default:
+                MyAccount myAccount = getTimeline().getMyAccountToSync(MyContextHolder.get());
+                return myAccount.isValid() ? "account:" + myAccount.getAccountName() : command.save();
+        }
+    }
+
     public final void resetRetries() {
         getResult().resetRetries(getCommand());
     }
@@ -32,6 +32,7 @@ import org.andstatus.app.data.UserMsg;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.database.UserTable;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.util.MyLog;
@@ -173,14 +174,21 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
         long count = 0;
         for (String userOidNew : userOidsNew) {
             MbUser mbUser = null;
+            long userId = MyQuery.oidToId(OidEnum.USER_OID,
+                    execContext.getMyAccount().getOriginId(), userOidNew);
             try {
                 count++;
-                mbUser = execContext.getMyAccount().getConnection().getUser(userOidNew, null);
+                // "Not modified" is possible only for the User, whom we have stored
+                mbUser = execContext.getMyAccount().getConnection().getUser(userOidNew, null, userId != 0);
                 execContext.getResult().incrementDownloadedCount();
             } catch (ConnectionException e) {
-                long userId = MyQuery.oidToId(OidEnum.USER_OID,
-                        execContext.getMyAccount().getOriginId(), userOidNew);
-                if (userId == 0) {
+                if (userId != 0 && e.getStatusCode() == StatusCode.NOT_MODIFIED) {
+                    MyLog.v(this, "User not modified, oid=" + userOidNew);
+                    mbUser = MbUser.fromOriginAndUserOid(
+                            execContext.getMyAccount().getOriginId(), userOidNew);
+                    mbUser.userId = userId;
+                    execContext.getResult().incrementDownloadedCount();
+                } else if (userId == 0) {
                     MyLog.i(this, "Failed to identify a User for oid=" + userOidNew, e);
                 } else {
                     MyLog.v(this, "Server doesn't return User object for oid=" + userOidNew, e);
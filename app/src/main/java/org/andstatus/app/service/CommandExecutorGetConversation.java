@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import org.andstatus.app.R;
+import org.andstatus.app.data.DataInserter;
+import org.andstatus.app.data.LatestUserMessages;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask.PoolEnum;
+import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.HttpConnectionPools;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.net.social.Connection.ApiRoutineEnum;
+import org.andstatus.app.net.social.MbMessage;
+import org.andstatus.app.net.social.MbTimelineItem;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fetches the messages of the conversation, which are missing locally, in one command:
+ * by the conversation API, if the {@link Connection} supports it (GNU social),
+ * or else walking the reply chain up from the message (replies to the fetched messages
+ * come with them in Pump.io). Messages of one step of the walk are fetched concurrently,
+ * inserted in one transaction, and the progress is broadcast after each step,
+ * so an open conversation is refreshed incrementally
+ * @author yvolk@yurivolkov.com
+ */
+class CommandExecutorGetConversation extends CommandExecutorStrategy {
+    /** The command is executed in the {@link PoolEnum#SYNC} pool, so requests go to other pool */
+    private static final PoolEnum REQUESTS_POOL = PoolEnum.DEFAULT;
+    private static final int MAX_MESSAGES_TO_FETCH = 200;
+
+    private final Set<String> requestedOids = new HashSet<>();
+    private int fetchedCount = 0;
+
+    @Override
+    void execute() {
+        long msgId = execContext.getCommandData().itemId;
+        String oid = MyQuery.idToOid(OidEnum.MSG_OID, msgId, 0);
+        if (TextUtils.isEmpty(oid)) {
+            execContext.getResult().incrementParseExceptions();
+            MyLog.w(this, "getConversation failed, no OID for id=" + msgId);
+            return;
+        }
+        Connection connection = execContext.getMyAccount().getConnection();
+        List<String> oidsToFetch = new ArrayList<>();
+        oidsToFetch.add(oid);
+        requestedOids.add(oid);
+        boolean isFirstStep = true;
+        while (!oidsToFetch.isEmpty() && !logSoftErrorIfStopping()) {
+            List<MbMessage> messages = fetchConcurrently(connection, oidsToFetch);
+            if (isFirstStep && connection.isApiSupported(ApiRoutineEnum.GET_CONVERSATION)) {
+                addConversationOfFirst(connection, messages);
+            }
+            isFirstStep = false;
+            insertInOneTransaction(messages);
+            oidsToFetch = nextOidsToFetch(messages);
+        }
+        MyLog.d(this, "getConversation for id=" + msgId + " fetched " + fetchedCount + " messages");
+    }
+
+    /** Concurrency is limited by the connections pool of the origin, see {@link HttpConnectionPools} */
+    private List<MbMessage> fetchConcurrently(final Connection connection, List<String> oids) {
+        List<Future<MbMessage>> futures = new ArrayList<>();
+        for (final String oid : oids) {
+            Callable<MbMessage> request = new Callable<MbMessage>() {
+                @Override
+                public MbMessage call() throws ConnectionException {
+                    return connection.getMessage(oid);
+                }
+            };
+            try {
+                futures.add(AsyncTaskLauncher.submit(REQUESTS_POOL, request));
+            } catch (RejectedExecutionException e) {
+                // The pool is busy, so we do this in our thread
+                FutureTask<MbMessage> task = new FutureTask<>(request);
+                task.run();
+                futures.add(task);
+            }
+        }
+        List<MbMessage> messages = new ArrayList<>();
+        for (int ind = 0; ind < futures.size(); ind++) {
+            try {
+                MbMessage message = futures.get(ind).get();
+                if (message != null && !message.isEmpty()) {
+                    messages.add(message);
+                    fetchedCount++;
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ConnectionException) {
+                    ConnectionException ce = (ConnectionException) e.getCause();
+                    if (ce.getStatusCode() != StatusCode.NOT_FOUND) {
+                        logConnectionException(ce, "getConversation, message oid=" + oids.get(ind));
+                    }
+                } else {
+                    logConnectionException(null, "getConversation, message oid=" + oids.get(ind)
+                            + "; " + e.getCause());
+                }
+            } catch (InterruptedException e) {
+                execContext.getResult().incrementNumIoExceptions();
+                MyLog.d(this, "getConversation interrupted", e);
+                Thread.currentThread().interrupt();
+                for (Future<MbMessage> future : futures) {
+                    future.cancel(true);
+                }
+                break;
+            }
+        }
+        return messages;
+    }
+
+    private void addConversationOfFirst(Connection connection, List<MbMessage> messages) {
+        if (messages.isEmpty() || TextUtils.isEmpty(messages.get(0).conversationOid)) {
+            return;
+        }
+        String conversationOid = messages.get(0).conversationOid;
+        try {
+            for (MbTimelineItem item : connection.getConversation(conversationOid)) {
+                if (item.getType() == MbTimelineItem.ItemType.MESSAGE
+                        && requestedOids.add(item.mbMessage.oid)) {
+                    messages.add(item.mbMessage);
+                    fetchedCount++;
+                }
+            }
+        } catch (ConnectionException e) {
+            logConnectionException(e, "getConversation oid=" + conversationOid);
+        }
+    }
+
+    private void insertInOneTransaction(List<MbMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        DataInserter di = new DataInserter(execContext);
+        LatestUserMessages lum = new LatestUserMessages();
+        SQLiteDatabase db = execContext.getMyContext().getDatabase();
+        if (db != null) {
+            db.beginTransaction();
+        }
+        try {
+            for (MbMessage message : messages) {
+                di.insertOrUpdateMsg(message, lum);
+                execContext.getResult().incrementDownloadedCount();
+            }
+            if (db != null) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            if (db != null) {
+                db.endTransaction();
+            }
+        }
+        lum.save();
+        broadcastProgress(execContext.getResult().getDownloadedCount() + " "
+                + execContext.getContext().getText(R.string.title_command_get_conversation), false);
+    }
+
+    /**
+     * @return oids of the messages, to which fetched messages reply, and of the replies
+     * (without content) to them, which are not fetched yet and are not loaded locally
+     */
+    private List<String> nextOidsToFetch(List<MbMessage> messages) {
+        List<String> oids = new ArrayList<>();
+        for (MbMessage message : messages) {
+            if (message.inReplyToMessage != null) {
+                addIfNotLoaded(oids, message.inReplyToMessage.oid);
+            }
+            for (MbMessage reply : message.replies) {
+                if (reply.sentDate == 0) {
+                    addIfNotLoaded(oids, reply.oid);
+                }
+            }
+        }
+        return oids;
+    }
+
+    private void addIfNotLoaded(List<String> oids, String oid) {
+        if (TextUtils.isEmpty(oid) || fetchedCount + oids.size() >= MAX_MESSAGES_TO_FETCH
+                || !requestedOids.add(oid)) {
+            return;
+        }
+        long msgId = MyQuery.oidToId(OidEnum.MSG_OID, execContext.getMyAccount().getOriginId(), oid);
+        if (msgId == 0 || MyQuery.msgIdToLongColumnValue(MsgTable.CREATED_DATE, msgId) == 0) {
+            oids.add(oid);
+        }
+    }
+}
@@ -33,6 +33,9 @@ import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.http.RateLimits;
+import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.net.social.Connection.ApiRoutineEnum;
 import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.MbRateLimitStatus;
 import org.andstatus.app.net.social.MbUser;
@@ -96,13 +99,19 @@ class CommandExecutorOther extends CommandExecutorStrategy{
         String msgLog = "Get user oid=" + oid + ", userName='" + userName + "'";
         MbUser user = null;
         boolean errorLogged = false;
+        boolean notModified = false;
         if (MbUser.isOidReal(oid) || !TextUtils.isEmpty(userName)) {
             try {
-                user = execContext.getMyAccount().getConnection().getUser(oid, userName);
+                // Validators may outlive the user's row, so without the row we need the user anyway
+                user = execContext.getMyAccount().getConnection().getUser(oid, userName, userId != 0);
                 ok = !user.isEmpty();
             } catch (ConnectionException e) {
-                errorLogged = true;
-                logConnectionException(e, msgLog);
+                if (e.getStatusCode() == StatusCode.NOT_MODIFIED) {
+                    notModified = true;
+                } else {
+                    errorLogged = true;
+                    logConnectionException(e, msgLog);
+                }
             }
         } else {
             MyLog.e(this, msgLog + "; userId not found: " + userId);
@@ -111,7 +120,7 @@ class CommandExecutorOther extends CommandExecutorStrategy{
             new DataInserter(execContext).insertOrUpdateUser(user);
         }
         logOk(ok || !errorLogged);
-        MyLog.d(this, (msgLog + (ok ? " succeeded" : " failed") ));
+        MyLog.d(this, (msgLog + (notModified ? " not modified" : (ok ? " succeeded" : " failed"))));
     }
 
     /**
@@ -397,9 +406,12 @@ class CommandExecutorOther extends CommandExecutorStrategy{
     
     private void rateLimitStatus() {
         try {
-            MbRateLimitStatus rateLimitStatus = execContext.getMyAccount().getConnection().rateLimitStatus();
+            Connection connection = execContext.getMyAccount().getConnection();
+            MbRateLimitStatus rateLimitStatus = connection.rateLimitStatus();
             boolean ok = !rateLimitStatus.isEmpty();
             if (ok) {
+                RateLimits.onRateLimitStatus(execContext.getMyAccount().getAccountName(),
+                        connection.getRateLimitEndpoint(ApiRoutineEnum.STATUSES_HOME_TIMELINE), rateLimitStatus);
                 execContext.getResult().setRemainingHits(rateLimitStatus.remaining); 
                 execContext.getResult().setHourlyLimit(rateLimitStatus.limit);
              }
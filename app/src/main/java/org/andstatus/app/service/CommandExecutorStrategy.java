@@ -18,6 +18,7 @@ package org.andstatus.app.service;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.HttpValidators;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
@@ -35,6 +36,7 @@ class CommandExecutorStrategy implements CommandExecutorParent {
         logLaunch(strategy);
         // This may cause recursive calls to executors...
         strategy.execute();
+        HttpValidators.persist();
         commandData.getResult().afterExecutionEnded();
         logEnd(strategy);
     }
@@ -115,6 +117,9 @@ class CommandExecutorStrategy implements CommandExecutorParent {
                         case GET_FRIENDS:
                             strategy = new CommandExecutorFollowers();
                             break;
+                        case GET_CONVERSATION:
+                            strategy = new CommandExecutorGetConversation();
+                            break;
                         default:
                             strategy = new CommandExecutorOther();
                             break;
@@ -22,7 +22,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
 import org.andstatus.app.context.MyContextHolder;
-import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyPreferencesSnapshot;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.CommandTable;
 import org.andstatus.app.util.MyLog;
@@ -181,14 +181,34 @@ public class CommandQueue {
     }
 
     public boolean isAnythingToExecuteNowIn(QueueType queueType) {
+        return isAnythingToExecuteNowIn(queueType, MyPreferencesSnapshot.get());
+    }
+
+    public boolean isAnythingToExecuteNowIn(QueueType queueType, MyPreferencesSnapshot preferences) {
         if (queues.get(queueType).isEmpty()) {
             return false;
         }
-        if (!MyPreferences.isSyncWhileUsingApplicationEnabled()
-                && MyContextHolder.get().isInForeground()) {
-            return hasForegroundTasks(queueType);
+        boolean foregroundOnly = !preferences.syncWhileUsingApplication
+                && MyContextHolder.get().isInForeground();
+        for (CommandData commandData : get(queueType)) {
+            if ((commandData.isInForeground() || !foregroundOnly)
+                    && !RateLimitScheduler.isDeferred(commandData)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return the shortest delay of commands, deferred due to rate limits, 0 if there are no such */
+    public long getMinDelayMillisOfDeferred(QueueType queueType) {
+        long minDelay = 0;
+        for (CommandData commandData : get(queueType)) {
+            long delay = RateLimitScheduler.getDelayMillis(commandData);
+            if (delay > 0 && (minDelay == 0 || delay < minDelay)) {
+                minDelay = delay;
+            }
         }
-        return true;
+        return minDelay;
     }
 
     public int totalSizeToExecute() {
@@ -20,6 +20,7 @@ import android.net.Uri;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.PartialDownload;
 import org.andstatus.app.net.social.ConnectionEmpty;
 import org.andstatus.app.util.FileUtils;
 
@@ -42,4 +43,15 @@ public class ConnectionLocal extends ConnectionEmpty {
             throw ConnectionException.hardConnectionException("mediaUri='" + uri + "'", e);
         }
     }
+
+    @Override
+    public void downloadFile(String uri, File file, PartialDownload partialDownload) throws ConnectionException {
+        partialDownload.setOffset(0);
+        downloadFile(uri, file);
+    }
+
+    @Override
+    public void downloadFileIfModified(String uri, File file) throws ConnectionException {
+        downloadFile(uri, file);
+    }
 }
@@ -17,8 +17,15 @@
 package org.andstatus.app.service;
 
 public enum ConnectionState {
-    UNKNOWN,
-    OFFLINE,
-    ONLINE,
-    WIFI;
+    UNKNOWN(1),
+    OFFLINE(1),
+    ONLINE(2),
+    WIFI(3);
+
+    /** How many commands {@link MyService} may execute in parallel */
+    public final int maxCommandExecutors;
+
+    ConnectionState(int maxCommandExecutors) {
+        this.maxCommandExecutors = maxCommandExecutors;
+    }
 }
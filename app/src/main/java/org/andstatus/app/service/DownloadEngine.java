@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.content.Context;
+import android.os.PowerManager;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.DownloadData;
+import org.andstatus.app.data.DownloadFile;
+import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads avatars and attachments in parallel, bypassing the queue of {@link MyService}:
+ * no more than {@link #getMaxPerHost()} downloads from one host at a time,
+ * one download for all rows with the same URL, images for rows on screen first.
+ * If the queue is full or the connection is not suitable, the download is requested via the command queue.
+ * Workers run in the {@link MyAsyncTask.PoolEnum#FILE_DOWNLOAD} pool and hold a wake lock.
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class DownloadEngine {
+    private static final String TAG = DownloadEngine.class.getSimpleName();
+    static final int MAX_CONCURRENT = 4;
+    static final int MAX_QUEUED = 200;
+    private static volatile int maxPerHost = 2;
+
+    public enum Priority {
+        /** For rows, which are being shown */
+        ON_SCREEN,
+        BACKGROUND
+    }
+
+    private static final Object lock = new Object();
+    @GuardedBy("lock")
+    private static final TreeSet<Request> queue = new TreeSet<>();
+    /** Queued and in-flight requests by URL */
+    @GuardedBy("lock")
+    private static final Map<String, Request> byUrl = new HashMap<>();
+    @GuardedBy("lock")
+    private static final Map<String, Integer> runningPerHost = new HashMap<>();
+    @GuardedBy("lock")
+    private static int workers = 0;
+    @GuardedBy("lock")
+    private static int inFlight = 0;
+    @GuardedBy("lock")
+    private static long nextSequence = 0;
+    @GuardedBy("lock")
+    private static PowerManager.WakeLock wakeLock = null;
+
+    private static final AtomicLong downloaded = new AtomicLong();
+    private static final AtomicLong coalesced = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+    private static final AtomicLong bytes = new AtomicLong();
+    private static final AtomicLong busyMillis = new AtomicLong();
+
+    static class Request implements Comparable<Request> {
+        final String url;
+        final String host;
+        Priority priority;
+        long sequence;
+        /** Rows, waiting for this URL. The first one is downloaded, others refer to its file */
+        final Map<Long, DownloadData> rows = new LinkedHashMap<>();
+
+        Request(String url, String host) {
+            this.url = url;
+            this.host = host;
+        }
+
+        @Override
+        public int compareTo(@NonNull Request another) {
+            if (priority != another.priority) {
+                return priority.compareTo(another.priority);
+            }
+            return sequence < another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+        }
+
+        @Override
+        public String toString() {
+            return priority + " " + url + (rows.size() > 1 ? " for " + rows.size() + " rows" : "");
+        }
+    }
+
+    private DownloadEngine() {
+        // Non instantiable
+    }
+
+    public static int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    public static void setMaxPerHost(int maxPerHostIn) {
+        maxPerHost = Math.max(1, Math.min(maxPerHostIn, MAX_CONCURRENT));
+    }
+
+    /** Downloads the row, the row should be saved already */
+    public static void request(DownloadData data, Priority priority) {
+        CommandData commandData = toCommandData(data);
+        if (data.getDownloadId() == 0 || !commandData.getCommand().getConnectionRequired()
+                .isConnectionStateOk(MyContextHolder.get().getConnectionState()) || !enqueue(data, priority)) {
+            MyServiceManager.sendCommand(commandData);
+        }
+    }
+
+    /** @return false if the queue is full */
+    static boolean enqueue(DownloadData data, Priority priority) {
+        String url = data.getUri().toString();
+        synchronized (lock) {
+            Request request = byUrl.get(url);
+            if (request == null) {
+                if (queue.size() >= MAX_QUEUED) {
+                    MyLog.v(TAG, "Queue is full, " + data);
+                    return false;
+                }
+                request = new Request(url, TextUtils.isEmpty(data.getUri().getHost()) ? "" : data.getUri().getHost());
+                request.priority = priority;
+                request.sequence = nextSequence++;
+                byUrl.put(url, request);
+                queue.add(request);
+            } else if (priority.compareTo(request.priority) < 0 && queue.remove(request)) {
+                request.priority = priority;
+                request.sequence = nextSequence++;
+                queue.add(request);
+            }
+            if (!request.rows.containsKey(data.getDownloadId())) {
+                request.rows.put(data.getDownloadId(), data);
+            }
+            startWorkers();
+        }
+        return true;
+    }
+
+    @GuardedBy("lock")
+    private static void startWorkers() {
+        while (workers < MAX_CONCURRENT && workers - inFlight < queue.size()) {
+            if (workers == 0) {
+                acquireWakeLock();
+            }
+            workers++;
+            if (!AsyncTaskLauncher.execute(TAG, false, new Worker())) {
+                onWorkerEnded();
+                break;
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private static void onWorkerEnded() {
+        workers--;
+        if (workers == 0) {
+            releaseWakeLock();
+        }
+    }
+
+    private static class Worker extends MyAsyncTask<Void, Void, Void> {
+
+        Worker() {
+            super(TAG, PoolEnum.FILE_DOWNLOAD);
+            setSingleInstance(false);
+        }
+
+        @Override
+        protected Void doInBackground2(Void... params) {
+            boolean ended = false;
+            try {
+                for (Request request = takeNext(); request != null; request = takeNext()) {
+                    download(request);
+                }
+                ended = true;
+            } finally {
+                if (!ended) {
+                    synchronized (lock) {
+                        onWorkerEnded();
+                        startWorkers();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    @GuardedBy("lock")
+    private static void acquireWakeLock() {
+        if (wakeLock == null) {
+            Context context = MyContextHolder.get().context();
+            if (context == null) {
+                return;
+            }
+            PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, DownloadEngine.class.getName());
+            wakeLock.setReferenceCounted(false);
+        }
+        wakeLock.acquire();
+    }
+
+    @GuardedBy("lock")
+    private static void releaseWakeLock() {
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+    }
+
+    /** @return null if nothing may be started now, and then the worker ends */
+    private static Request takeNext() {
+        synchronized (lock) {
+            Iterator<Request> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Request request = iterator.next();
+                Integer running = runningPerHost.get(request.host);
+                if (running == null || running < maxPerHost) {
+                    iterator.remove();
+                    inFlight++;
+                    runningPerHost.put(request.host, running == null ? 1 : running + 1);
+                    return request;
+                }
+            }
+            onWorkerEnded();
+            return null;
+        }
+    }
+
+    /**
+     * The connection and preferences may change, while the request waits in the queue,
+     * so they are checked again. Rows, which were not processed, are retried by the command queue
+     */
+    private static void download(Request request) {
+        long startedAt = System.currentTimeMillis();
+        boolean ok = false;
+        DownloadData data = nextRow(request);
+        try {
+            if (data != null && isConnectionOk(data)) {
+                FileDownloader leader = downloadRow(data, DownloadFile.EMPTY);
+                data = null;
+                ok = leader.getStatus() == DownloadStatus.LOADED;
+                if (ok) {
+                    bytes.addAndGet(leader.data.getFile().getSize());
+                    // Rows may be added, while we are downloading
+                    for (data = nextRow(request); data != null; data = nextRow(request)) {
+                        downloadRow(data, leader.data.getFile());
+                        coalesced.incrementAndGet();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            MyLog.w(TAG, "Failed " + request, e);
+        } finally {
+            List<DownloadData> toRetry = new ArrayList<>();
+            if (data != null) {
+                toRetry.add(data);
+            }
+            synchronized (lock) {
+                toRetry.addAll(request.rows.values());
+                request.rows.clear();
+                byUrl.remove(request.url);
+                inFlight--;
+                Integer running = runningPerHost.get(request.host);
+                if (running == null || running <= 1) {
+                    runningPerHost.remove(request.host);
+                } else {
+                    runningPerHost.put(request.host, running - 1);
+                }
+                startWorkers();
+            }
+            for (DownloadData row : toRetry) {
+                MyServiceManager.sendCommand(toCommandData(row));
+            }
+            busyMillis.addAndGet(System.currentTimeMillis() - startedAt);
+            (ok ? downloaded : failed).incrementAndGet();
+        }
+    }
+
+    private static boolean isConnectionOk(DownloadData data) {
+        return toCommandData(data).getCommand().getConnectionRequired()
+                .isConnectionStateOk(MyContextHolder.get().getConnectionState());
+    }
+
+    private static DownloadData nextRow(Request request) {
+        synchronized (lock) {
+            Iterator<DownloadData> iterator = request.rows.values().iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            DownloadData data = iterator.next();
+            iterator.remove();
+            return data;
+        }
+    }
+
+    /** @param sharedBlob if not empty, the row refers to this file instead of downloading */
+    private static FileDownloader downloadRow(DownloadData data, DownloadFile sharedBlob) {
+        FileDownloader downloader = FileDownloader.newForDownloadRow(data.getDownloadId())
+                .setSharedBlob(sharedBlob);
+        CommandData commandData = toCommandData(data);
+        downloader.load(commandData);
+        if (downloader.data.isSoftError()) {
+            // The command queue will retry
+            MyServiceManager.sendCommand(commandData);
+        } else {
+            MyServiceEventsBroadcaster.newInstance(MyContextHolder.get(), MyServiceManager.getServiceState())
+                    .setCommandData(commandData).setEvent(MyServiceEvent.AFTER_EXECUTING_COMMAND).broadcast();
+        }
+        return downloader;
+    }
+
+    static CommandData toCommandData(DownloadData data) {
+        return data.userId != 0 ?
+                CommandData.newUserCommand(CommandEnum.FETCH_AVATAR, null, data.userId, "")
+                : CommandData.newFetchAttachment(data.msgId, data.getDownloadId());
+    }
+
+    static int getQueueSize() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /** Throughput statistics */
+    public static String getStats() {
+        long millis = busyMillis.get();
+        return "downloaded:" + downloaded.get()
+                + ", coalesced:" + coalesced.get()
+                + ", failed:" + failed.get()
+                + ", KB/s per download:" + (millis == 0 ? 0 : bytes.get() / millis)
+                + ", queued:" + getQueueSize();
+    }
+}
@@ -19,19 +19,26 @@ package org.andstatus.app.service;
 import android.net.Uri;
 
 import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.data.BlobStore;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.DownloadFile;
 import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.http.PartialDownload;
 import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.UriUtils;
 
 import java.io.File;
+import java.io.IOException;
 
 public abstract class FileDownloader {
     protected final DownloadData data;
     public Connection connectionMock;
+    /** If set, the row refers to this file, just downloaded from the same Uri, see {@link DownloadEngine} */
+    private DownloadFile sharedBlob = DownloadFile.EMPTY;
 
     static FileDownloader newForDownloadRow(long rowIdIn) {
         DownloadData data = DownloadData.fromId(rowIdIn);
@@ -45,6 +52,11 @@ public abstract class FileDownloader {
     protected FileDownloader(DownloadData dataIn) {
         data = dataIn;
     }
+
+    FileDownloader setSharedBlob(DownloadFile sharedBlob) {
+        this.sharedBlob = sharedBlob;
+        return this;
+    }
     
     void load(CommandData commandData) {
         switch (data.getStatus()) {
@@ -72,41 +84,95 @@ public abstract class FileDownloader {
         }
         data.onNewDownload();
         downloadFile();
+        DownloadFile downloaded = new DownloadFile(data.getFilenameNew());
+        if (!data.isError() && downloaded.exists()) {
+            onDownloaded(downloaded.getFile());
+        }
         data.saveToDatabase();
         if (!data.isError()) {
             onSuccessfulLoad();
         }
     }
 
+    /** The file is downloaded, but the row is not saved yet */
+    protected void onDownloaded(File file) {
+        // Nothing to do by default
+    }
+
     protected abstract void onSuccessfulLoad();
 
     private void downloadFile() {
         final String method = "downloadFile";
-        DownloadFile fileTemp = new DownloadFile("temp_" + data.getFilenameNew());
+        if (!sharedBlob.isEmpty() || !data.getFile().exists()) {
+            DownloadFile loaded = sharedBlob.isEmpty()
+                    ? BlobStore.findLoaded(data.getUri(), data.getDownloadId()) : sharedBlob;
+            if (BlobStore.refer(loaded)) {
+                data.getPartialFile().delete();
+                data.onBlobStored(loaded);
+                MyLog.v(this, (sharedBlob.isEmpty() ? "Already downloaded " : "Shared ") + data.toString());
+                return;
+            }
+        }
+        // A new file is downloaded into the partial file, which is kept, if the download fails
+        boolean resumable = !data.getFile().exists() && !data.getPartialFile().isEmpty();
+        DownloadFile fileTemp = resumable ? data.getPartialFile() : new DownloadFile("temp_" + data.getFilenameNew());
+        PartialDownload partialDownload = resumable ? data.getPartialDownload() : null;
         try {
             String uriString = data.getUri().toString();
-            File file = fileTemp.getFile();
-            MyAccount ma = findBestAccountForDownload();
-            MyLog.v(this, "About to download " + data.toString() + "; account:" + ma.getAccountName());
-            if (ma.isValidAndSucceeded()) {
-                ((connectionMock != null) ? connectionMock : getConnection(ma, data.getUri())).downloadFile(uriString, file);
-            } else {
-                data.hardErrorLogged(method + ", No account to download the file", null);
-            }
+            downloadFromUri(method, uriString, fileTemp.getFile(), partialDownload);
         } catch (ConnectionException e) {
-            if (e.isHardError()) {
+            if (e.getStatusCode() == StatusCode.NOT_MODIFIED) {
+                fileTemp.delete();
+                data.onNotModified();
+                MyLog.v(this, "Not modified " + data.toString());
+                return;
+            } else if (e.isHardError()) {
                 data.hardErrorLogged(method, e);
             } else {
+                if (e.getStatusCode() == StatusCode.RANGE_NOT_SATISFIABLE) {
+                    // The next attempt will download the whole file
+                    partialDownload = null;
+                }
                 data.softErrorLogged(method, e);
             }
         }
+        if (partialDownload != null && data.isSoftError() && fileTemp.exists()) {
+            partialDownload.setOffset(fileTemp.getSize());
+            data.onPartialDownload(partialDownload);
+            MyLog.v(this, "Partially downloaded " + partialDownload + ", " + data.toString());
+            return;
+        }
+        if (resumable) {
+            data.onPartialDownload(new PartialDownload(0, ""));
+        }
         if (data.isError()) {
             fileTemp.delete();
         }
-        DownloadFile fileNew = new DownloadFile(data.getFilenameNew());
-        fileNew.delete();
-        if (!data.isError() && !fileTemp.getFile().renameTo(fileNew.getFile())) {
-            data.softErrorLogged(method + ", Couldn't rename file " + fileTemp + " to " + fileNew, null);
+        if (!data.isError()) {
+            try {
+                data.onBlobStored(BlobStore.store(fileTemp, MyContentType.getExtension(data.getFilenameNew())));
+            } catch (IOException e) {
+                fileTemp.delete();
+                data.softErrorLogged(method + ", Couldn't store file " + fileTemp, e);
+            }
+        }
+    }
+
+    private void downloadFromUri(String method, String uriString, File file, PartialDownload partialDownload)
+            throws ConnectionException {
+        MyAccount ma = findBestAccountForDownload();
+        MyLog.v(this, "About to download " + data.toString() + "; account:" + ma.getAccountName());
+        if (ma.isValidAndSucceeded()) {
+            Connection connection = (connectionMock != null) ? connectionMock : getConnection(ma, data.getUri());
+            if (data.getFile().exists()) {
+                connection.downloadFileIfModified(uriString, file);
+            } else if (partialDownload != null) {
+                connection.downloadFile(uriString, file, partialDownload);
+            } else {
+                connection.downloadFile(uriString, file);
+            }
+        } else {
+            data.hardErrorLogged(method + ", No account to download the file", null);
         }
     }
 
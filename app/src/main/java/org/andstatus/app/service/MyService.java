@@ -30,7 +30,7 @@ import org.andstatus.app.MyAction;
 import org.andstatus.app.appwidget.AppWidgets;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
-import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.MyPreferencesSnapshot;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.notification.CommandsQueueNotifier;
 import org.andstatus.app.os.AsyncTaskLauncher;
@@ -38,12 +38,15 @@ import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
-import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -72,8 +75,12 @@ public class MyService extends Service {
     private int mLatestProcessedStartId = 0;
     
     private final Object executorLock = new Object();
+    /** Each executor runs in its own thread, their number depends on the {@link ConnectionState} */
     @GuardedBy("executorLock")
-    private QueueExecutor mExecutor = null;
+    private final List<QueueExecutor> executors = new ArrayList<>();
+    /** Commands with these keys are being executed, see {@link CommandData#getExecutionKey()} */
+    @GuardedBy("executorLock")
+    private final Set<String> keysInExecution = new HashSet<>();
 
     private final Object heartBeatLock = new Object();
     @GuardedBy("heartBeatLock")
@@ -264,7 +271,7 @@ public class MyService extends Service {
                 startExecution();
                 break;
             default:
-                MyLog.v(this, "Didn't change execution " + mExecutor);
+                MyLog.v(this, "Didn't change execution " + executorsToString());
                 break;
         }
     }
@@ -359,25 +366,29 @@ public class MyService extends Service {
         final String method = "ensureExecutorStarted";
         StringBuilder logMessageBuilder = new StringBuilder();
         synchronized(executorLock) {
-            if ( mExecutor != null && !mExecutor.needsBackgroundWork()) {
-                logMessageBuilder.append(" Removing used Executor " + mExecutor);
-                removeExecutor(logMessageBuilder);
+            for (QueueExecutor executor : new ArrayList<>(executors)) {
+                if (!executor.needsBackgroundWork()) {
+                    logMessageBuilder.append(" Removing used Executor " + executor);
+                    removeExecutor(executor, logMessageBuilder);
+                } else if (!executor.isReallyWorking()) {
+                    logMessageBuilder.append(" Cancelling stalled Executor " + executor);
+                    removeExecutor(executor, logMessageBuilder);
+                }
             }
-            if ( mExecutor != null && !isExecutorReallyWorkingNow()) {
-                logMessageBuilder.append(" Cancelling stalled Executor " + mExecutor);
-                removeExecutor(logMessageBuilder);
+            int toStart = executors.isEmpty() ? 1 : Math.min(
+                    myContext.getConnectionState().maxCommandExecutors - executors.size(),
+                    countKeysToExecute());
+            if (toStart < 1) {
+                logMessageBuilder.append(" There are Executors already " + executorsToString());
             }
-            if (mExecutor != null) {
-                logMessageBuilder.append(" There is an Executor already " + mExecutor);
-            } else {
-                // For now let's have only ONE working thread 
-                // (it seems there is some problem in parallel execution...)
+            for (int ind = 0; ind < toStart; ind++) {
                 QueueExecutor newExecutor = new QueueExecutor();
                 logMessageBuilder.append(" Adding and starting new Executor " + newExecutor);
                 if (AsyncTaskLauncher.execute(this, false, newExecutor)) {
-                    mExecutor = newExecutor;
+                    executors.add(newExecutor);
                 } else {
                     logMessageBuilder.append(" New executor was not added");
+                    break;
                 }
             }
         }
@@ -385,18 +396,42 @@ public class MyService extends Service {
             MyLog.v(this, method + "; " + logMessageBuilder);
         }
     }
-    
-    private void removeExecutor(StringBuilder logMessageBuilder) {
+
+    /** @return number of different keys of commands, which may be started now by a new executor */
+    @GuardedBy("executorLock")
+    private int countKeysToExecute() {
+        Set<String> keys = new HashSet<>();
+        for (CommandData commandData : queues.get(QueueType.CURRENT)) {
+            String key = commandData.getExecutionKey();
+            if (!keysInExecution.contains(key) && !RateLimitScheduler.isDeferred(commandData)) {
+                keys.add(key);
+            }
+        }
+        return keys.size();
+    }
+
+    private void removeExecutors(StringBuilder logMessageBuilder) {
         synchronized(executorLock) {
-            if (mExecutor == null) {
-                return;
+            for (QueueExecutor executor : new ArrayList<>(executors)) {
+                removeExecutor(executor, logMessageBuilder);
             }
-            if (mExecutor.needsBackgroundWork()) {
+        }
+    }
+
+    private void removeExecutor(QueueExecutor executor, StringBuilder logMessageBuilder) {
+        synchronized(executorLock) {
+            if (executor.needsBackgroundWork()) {
                 logMessageBuilder.append(" Cancelling and");
-                mExecutor.cancelLogged(true);
+                executor.cancelLogged(true);
             }
-            logMessageBuilder.append(" Removing Executor " + mExecutor);
-            mExecutor = null;
+            logMessageBuilder.append(" Removing Executor " + executor);
+            executors.remove(executor);
+        }
+    }
+
+    private String executorsToString() {
+        synchronized(executorLock) {
+            return executors.toString();
         }
     }
 
@@ -412,22 +447,29 @@ public class MyService extends Service {
     }
 
     private boolean isAnythingToExecuteNow() {
-        return queues.isAnythingToExecuteNowIn(QueueType.CURRENT) || isAnythingToRetryNow()
+        MyPreferencesSnapshot preferences = MyPreferencesSnapshot.get();
+        return queues.isAnythingToExecuteNowIn(QueueType.CURRENT, preferences)
+                || isAnythingToRetryNow(preferences)
                 || isExecutorReallyWorkingNow();
     }
     
-    private boolean isAnythingToRetryNow() {
+    private boolean isAnythingToRetryNow(MyPreferencesSnapshot preferences) {
         if (!RelativeTime.moreSecondsAgoThan(mRetryQueueProcessedAt.get(),
                         RETRY_QUEUE_PROCESSING_PERIOD_SECONDS)) {
             return false;
         }
-        return queues.isAnythingToExecuteNowIn(QueueType.RETRY);
+        return queues.isAnythingToExecuteNowIn(QueueType.RETRY, preferences);
     }
     
     private boolean isExecutorReallyWorkingNow() {
         synchronized(executorLock) {
-          return mExecutor != null && mExecutor.isReallyWorking();
-        }        
+            for (QueueExecutor executor : executors) {
+                if (executor.isReallyWorking()) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
     
     @Override
@@ -465,6 +507,7 @@ public class MyService extends Service {
     private void unInitialize() {
         int mainQueueSize = queues.get(QueueType.CURRENT).size();
         int retryQueueSize = queues.get(QueueType.RETRY).size();
+        long wakeUpDelayMillis = queues.getMinDelayMillisOfDeferred(QueueType.CURRENT);
         int latestProcessedStartId = 0;
         synchronized (serviceStateLock) {
             if( mInitialized) {
@@ -488,9 +531,16 @@ public class MyService extends Service {
                 mHeartBeat = null;
             }
         }
+        synchronized(executorLock) {
+            keysInExecution.clear();
+        }
         AsyncTaskLauncher.shutdownExecutors(Collections.singleton(MyAsyncTask.PoolEnum.SYNC));
         releaseWakeLock();
         stopSelfResult(latestProcessedStartId);
+        if (wakeUpDelayMillis > 0) {
+            // Nothing else may start us, when the rate limits allow deferred commands
+            MyServiceManager.scheduleWakeUp(wakeUpDelayMillis);
+        }
         CommandsQueueNotifier.newInstance(myContext).update(
                 mainQueueSize, retryQueueSize);
     }
@@ -500,17 +550,19 @@ public class MyService extends Service {
         StringBuilder logMessageBuilder = new StringBuilder();
         boolean could = true;
         synchronized(executorLock) {
-            if (mExecutor != null && mExecutor.needsBackgroundWork() &&
-                    mExecutor.isReallyWorking() ) {
-                if (forceNow) {
-                    logMessageBuilder.append(" Cancelling working Executor;");
-                } else {
-                    logMessageBuilder.append(" Cannot stop now Executor " + mExecutor);
-                    could = false;
+            for (QueueExecutor executor : executors) {
+                if (executor.needsBackgroundWork() && executor.isReallyWorking()) {
+                    if (forceNow) {
+                        logMessageBuilder.append(" Cancelling working Executor " + executor + ";");
+                    } else {
+                        logMessageBuilder.append(" Cannot stop now Executor " + executor);
+                        could = false;
+                        break;
+                    }
                 }
             }
             if (could) {
-                removeExecutor(logMessageBuilder);
+                removeExecutors(logMessageBuilder);
             }
         }
         if (logMessageBuilder.length() > 0) {
@@ -531,6 +583,7 @@ public class MyService extends Service {
     
     private class QueueExecutor extends MyAsyncTask<Void, Void, Boolean> implements CommandExecutorParent {
         private volatile CommandData currentlyExecuting = null;
+        private volatile String currentlyExecutingKey = "";
         private static final long MAX_EXECUTION_TIME_SECONDS = 60;
 
         QueueExecutor() {
@@ -555,8 +608,8 @@ public class MyService extends Service {
                     break;
                 }
                 synchronized (executorLock) {
-                    if (mExecutor != this) {
-                        breakReason = "Other executor";
+                    if (!executors.contains(this)) {
+                        breakReason = "Removed executor";
                         break;
                     }
                 }
@@ -567,66 +620,52 @@ public class MyService extends Service {
                     breakReason = "No more commands";
                     break;
                 }
-                ConnectionState connectionState = myContext.getConnectionState();
-                if (commandData.getCommand().getConnectionRequired()
-                        .isConnectionStateOk(connectionState)) {
-                    MyServiceEventsBroadcaster.newInstance(myContext, getServiceState())
-                            .setCommandData(commandData)
-                            .setEvent(MyServiceEvent.BEFORE_EXECUTING_COMMAND).broadcast();
-                    CommandExecutorStrategy.executeCommand(commandData, this);
-                } else {
-                    commandData.getResult().incrementNumIoExceptions();
-                    commandData.getResult().setMessage("Expected '"
-                            + commandData.getCommand().getConnectionRequired()
-                            + "', but was '" + connectionState + "' connection");
-                }
-                if (commandData.getResult().shouldWeRetry()) {
-                    queues.addToQueue(QueueType.RETRY, commandData);
-                } else if (commandData.getResult().hasError()) {
-                    queues.addToQueue(QueueType.ERROR, commandData);
+                try {
+                    execute(commandData);
+                } finally {
+                    synchronized (executorLock) {
+                        keysInExecution.remove(currentlyExecutingKey);
+                    }
                 }
-                broadcastAfterExecutingCommand(commandData);
-                addSyncOfThisToQueue(commandData);
             } while (true);
             MyLog.d(this, "Ended, " + breakReason + ", " + queues.totalSizeToExecute() + " commands left");
             return true;
         }
 
+        private void execute(CommandData commandData) {
+            ConnectionState connectionState = myContext.getConnectionState();
+            if (commandData.getCommand().getConnectionRequired()
+                    .isConnectionStateOk(connectionState)) {
+                MyServiceEventsBroadcaster.newInstance(myContext, getServiceState())
+                        .setCommandData(commandData)
+                        .setEvent(MyServiceEvent.BEFORE_EXECUTING_COMMAND).broadcast();
+                CommandExecutorStrategy.executeCommand(commandData, this);
+            } else {
+                commandData.getResult().incrementNumIoExceptions();
+                commandData.getResult().setMessage("Expected '"
+                        + commandData.getCommand().getConnectionRequired()
+                        + "', but was '" + connectionState + "' connection");
+            }
+            if (commandData.getResult().shouldWeRetry()) {
+                queues.addToQueue(QueueType.RETRY, commandData);
+            } else if (commandData.getResult().hasError()) {
+                queues.addToQueue(QueueType.ERROR, commandData);
+            }
+            broadcastAfterExecutingCommand(commandData);
+            addSyncOfThisToQueue(commandData);
+        }
+
         private CommandData pollQueue() {
-            Queue<CommandData> tempQueue = new PriorityBlockingQueue<>(queues.get(QueueType.CURRENT).size()+1);
-            CommandData commandData;
-            do {
-                commandData = queues.get(QueueType.CURRENT).poll();
-                if (commandData == null && isAnythingToRetryNow()) {
-                    moveCommandsFromRetryToMainQueue();
-                    commandData = queues.get(QueueType.CURRENT).poll();
-                }
-                if (commandData == null) {
-                    break;
-                }
-                commandData = findInRetryQueue(commandData);
-                if (commandData != null) {
-                    commandData = findInErrorQueue(commandData);
-                }
-                if (commandData != null && !commandData.isInForeground()
-                        && myContext.isInForeground()
-                        && !MyPreferences.isSyncWhileUsingApplicationEnabled()) {
-                    tempQueue.add(commandData);
-                    commandData = null;
-                }
-            } while (commandData == null);
-            while (!tempQueue.isEmpty()) {
-                CommandData cd = tempQueue.poll();
-                if (!queues.get(QueueType.CURRENT).add(cd)) {
-                    MyLog.e(this, "Couldn't return to main Queue, size=" + queues.get(QueueType.CURRENT).size()
-                            + " command=" + cd);
-                    break;
-                }
+            MyPreferencesSnapshot preferences = MyPreferencesSnapshot.get();
+            CommandData commandData = takeFromMainQueue(preferences);
+            if (commandData == null && isAnythingToRetryNow(preferences)) {
+                moveCommandsFromRetryToMainQueue();
+                commandData = takeFromMainQueue(preferences);
             }
             MyLog.v(this, "Polled in "
                     + (myContext.isInForeground() ? "foreground"
                             + " "
-                            + (MyPreferences.isSyncWhileUsingApplicationEnabled() ? "enabled"
+                            + (preferences.syncWhileUsingApplication ? "enabled"
                                     : "disabled")
                             : "background")
                     + " " + commandData);
@@ -636,12 +675,59 @@ public class MyService extends Service {
             return commandData;
         }
 
+        /**
+         * Skipped commands stay in the queue, so other executors see them while we are scanning.
+         * Only the command, which we take, is removed
+         */
+        private CommandData takeFromMainQueue(MyPreferencesSnapshot preferences) {
+            Queue<CommandData> queue = queues.get(QueueType.CURRENT);
+            CommandData[] candidates = queue.toArray(new CommandData[0]);
+            // Iterator of the PriorityBlockingQueue doesn't follow the priority order
+            Arrays.sort(candidates);
+            boolean onlyForeground = myContext.isInForeground() && !preferences.syncWhileUsingApplication;
+            for (CommandData candidate : candidates) {
+                if (onlyForeground && !candidate.isInForeground()) {
+                    continue;
+                }
+                if (RateLimitScheduler.isDeferred(candidate)) {
+                    MyLog.v(this, "Deferred due to rate limit: " + candidate);
+                    continue;
+                }
+                String key = candidate.getExecutionKey();
+                synchronized (executorLock) {
+                    if (keysInExecution.contains(key)) {
+                        // Another executor is busy with the same account etc.
+                        continue;
+                    }
+                    if (!queue.remove(candidate)) {
+                        // Taken by another executor
+                        continue;
+                    }
+                    keysInExecution.add(key);
+                    currentlyExecutingKey = key;
+                }
+                CommandData commandData = findInRetryQueue(candidate);
+                if (commandData != null) {
+                    commandData = findInErrorQueue(commandData);
+                }
+                if (commandData != null) {
+                    return commandData;
+                }
+                // The same command waits for retry
+                synchronized (executorLock) {
+                    keysInExecution.remove(key);
+                    currentlyExecutingKey = "";
+                }
+            }
+            return null;
+        }
+
         private static final long MIN_RETRY_PERIOD_SECONDS = 900; 
         private void moveCommandsFromRetryToMainQueue() {
             for (CommandData cd : queues.get(QueueType.RETRY)) {
-                if (cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
+                if (cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)
+                        && queues.get(QueueType.RETRY).remove(cd)) {
                     addToMainQueue(cd);
-                    queues.get(QueueType.RETRY).remove(cd);
                     MyLog.v(this, "Moved from Retry to Main queue: " + cd);
                 }
             }
@@ -701,8 +787,7 @@ public class MyService extends Service {
         private void addSyncOfThisToQueue(CommandData commandDataExecuted) {
             if (commandDataExecuted.getResult().hasError()
                     || commandDataExecuted.getCommand() != CommandEnum.UPDATE_STATUS
-                    || !SharedPreferencesUtil.getBoolean(
-                            MyPreferences.KEY_SYNC_AFTER_MESSAGE_WAS_SENT, false)) {
+                    || !MyPreferencesSnapshot.get().syncAfterMessageWasSent) {
                 return;
             }
             addToMainQueue(CommandData.newTimelineCommand(CommandEnum.FETCH_TIMELINE,
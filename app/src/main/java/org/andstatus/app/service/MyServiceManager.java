@@ -16,9 +16,12 @@
  */
 package org.andstatus.app.service;
 
+import android.app.AlarmManager;
+import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
 
 import net.jcip.annotations.GuardedBy;
 
@@ -132,6 +135,24 @@ public class MyServiceManager extends BroadcastReceiver {
         }
     }
 
+    /**
+     * Starts {@link MyService} after the delay, e.g. when commands, deferred due to rate limits,
+     * may be executed. The previously scheduled start is replaced
+     */
+    static void scheduleWakeUp(long delayMillis) {
+        Context context = MyContextHolder.get().context();
+        if (context == null) {
+            return;
+        }
+        Intent serviceIntent = CommandData.getEmpty().toIntent(new Intent(context, MyService.class));
+        PendingIntent pendingIntent = PendingIntent.getService(context, 0, serviceIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT);
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, SystemClock.elapsedRealtime() + delayMillis,
+                pendingIntent);
+        MyLog.v(TAG, "Wake up scheduled in " + delayMillis + "ms");
+    }
+
     /**
      * Stop  {@link MyService} asynchronously
      */
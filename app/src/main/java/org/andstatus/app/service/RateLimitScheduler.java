@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.net.http.RateLimits;
+import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.net.social.Connection.ApiRoutineEnum;
+
+/**
+ * Asks {@link RateLimits} whether a command may be executed now.
+ * Commands, launched by the User, are not deferred while there are tokens, reserved for them
+ * @author yvolk@yurivolkov.com
+ */
+class RateLimitScheduler {
+
+    private RateLimitScheduler() {
+        // Non instantiable
+    }
+
+    static boolean isDeferred(CommandData commandData) {
+        return getDelayMillis(commandData) > 0;
+    }
+
+    /** @return 0 if the command may be executed now */
+    static long getDelayMillis(CommandData commandData) {
+        MyAccount myAccount = commandData.getTimeline().getMyAccountToSync(MyContextHolder.get());
+        if (!myAccount.isValid()) {
+            return 0;
+        }
+        Connection connection = myAccount.getConnection();
+        ApiRoutineEnum routine = toApiRoutine(commandData, connection);
+        if (routine == ApiRoutineEnum.DUMMY) {
+            return 0;
+        }
+        return RateLimits.getDelayMillis(myAccount.getAccountName(), connection.getRateLimitEndpoint(routine),
+                commandData.isInForeground() || commandData.isManuallyLaunched());
+    }
+
+    /** The API routine, which the command calls first */
+    static ApiRoutineEnum toApiRoutine(CommandData commandData, Connection connection) {
+        switch (commandData.getCommand()) {
+            case FETCH_TIMELINE:
+                return commandData.getTimelineType().getConnectionApiRoutine();
+            case GET_USER:
+                return ApiRoutineEnum.GET_USER;
+            case GET_STATUS:
+                return ApiRoutineEnum.GET_MESSAGE;
+            case GET_CONVERSATION:
+                return ApiRoutineEnum.GET_CONVERSATION;
+            case GET_FOLLOWERS:
+                return connection.isApiSupported(ApiRoutineEnum.GET_FOLLOWERS) ? ApiRoutineEnum.GET_FOLLOWERS
+                        : ApiRoutineEnum.GET_FOLLOWERS_IDS;
+            case GET_FRIENDS:
+                return connection.isApiSupported(ApiRoutineEnum.GET_FRIENDS) ? ApiRoutineEnum.GET_FRIENDS
+                        : ApiRoutineEnum.GET_FRIENDS_IDS;
+            case UPDATE_STATUS:
+                return ApiRoutineEnum.POST_MESSAGE;
+            case RATE_LIMIT_STATUS:
+                return ApiRoutineEnum.ACCOUNT_RATE_LIMIT_STATUS;
+            default:
+                return ApiRoutineEnum.DUMMY;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.social.MbTimelineItem;
+import org.andstatus.app.net.social.TimelineItemConsumer;
 import org.andstatus.app.net.social.TimelinePosition;
 import org.andstatus.app.timeline.LatestTimelineItem;
 import org.andstatus.app.util.MyLog;
@@ -38,13 +39,18 @@ import java.util.concurrent.TimeUnit;
 class TimelineDownloaderOther extends TimelineDownloader {
     private static final int MAXIMUM_NUMBER_OF_MESSAGES_TO_DOWNLOAD = 200;
 
+    private int toDownload = MAXIMUM_NUMBER_OF_MESSAGES_TO_DOWNLOAD;
+    private LatestTimelineItem latestTimelineItem;
+    private LatestUserMessages latestUserMessages;
+    private DataInserter di;
+
     @Override
     public void download() throws ConnectionException {
         if (!getTimeline().isSyncable()) {
             throw new IllegalArgumentException("Timeline cannot be synced: " + getTimeline());
         }
 
-        LatestTimelineItem latestTimelineItem = new LatestTimelineItem(getTimeline());
+        latestTimelineItem = new LatestTimelineItem(getTimeline());
         long hours = MyPreferences.getDontSynchronizeOldMessages();
         boolean downloadingLatest = false;
         if (hours > 0 && RelativeTime.moreSecondsAgoThan(latestTimelineItem.getTimelineDownloadedDate(),
@@ -69,41 +75,56 @@ class TimelineDownloaderOther extends TimelineDownloader {
         if (TextUtils.isEmpty(userOid) && getTimeline().getTimelineType().isForUser()) {
             throw new ConnectionException("User oId is not found for id=" + execContext.getCommandData().getUserId());
         }
-        int toDownload = MAXIMUM_NUMBER_OF_MESSAGES_TO_DOWNLOAD;
-        TimelinePosition lastPosition = latestTimelineItem.getPosition();
-        LatestUserMessages latestUserMessages = new LatestUserMessages();
+        toDownload = MAXIMUM_NUMBER_OF_MESSAGES_TO_DOWNLOAD;
+        latestUserMessages = new LatestUserMessages();
 
         latestTimelineItem.onTimelineDownloaded();
 
-        DataInserter di = new DataInserter(execContext);
+        di = new DataInserter(execContext);
+        final String userOidToFetch = userOid;
+        // The next page is requested, while items of the previous one are being inserted
+        new TimelinePipeline(TimelinePipeline.QUEUE_CAPACITY).run(new TimelinePipeline.Fetcher() {
+            @Override
+            public void fetch(TimelineItemConsumer consumer) throws ConnectionException {
+                fetchPages(userOidToFetch, consumer);
+            }
+        }, new TimelineItemConsumer() {
+            @Override
+            public void accept(MbTimelineItem item) {
+                insertItem(item);
+            }
+        });
+        latestUserMessages.save();
+        latestTimelineItem.save();
+    }
+
+    /** Runs in a fetcher thread, see {@link TimelinePipeline} */
+    private void fetchPages(String userOid, final TimelineItemConsumer consumer) throws ConnectionException {
+        TimelinePosition lastPosition = latestTimelineItem.getPosition();
         for (int loopCounter=0; loopCounter < 100; loopCounter++ ) {
             try {
                 int limit = execContext.getMyAccount().getConnection().fixedDownloadLimitForApiRoutine(
                         toDownload, getTimeline().getTimelineType().getConnectionApiRoutine());
-                List<MbTimelineItem> messages;
                 switch (getTimeline().getTimelineType()) {
                     case SEARCH:
-                        messages = execContext.getMyAccount().getConnection().search(lastPosition, limit, getTimeline().getSearchQuery());
+                        List<MbTimelineItem> messages = execContext.getMyAccount().getConnection()
+                                .search(lastPosition, limit, getTimeline().getSearchQuery());
+                        for (MbTimelineItem item : messages) {
+                            onItemFetched(item, consumer);
+                        }
                         break;
                     default:
-                        messages = execContext.getMyAccount().getConnection().getTimeline(
-                                getTimeline().getTimelineType().getConnectionApiRoutine(), lastPosition, limit, userOid);
+                        // Items are handed off as soon as they are parsed from the response
+                        execContext.getMyAccount().getConnection().getTimeline(
+                                getTimeline().getTimelineType().getConnectionApiRoutine(), lastPosition, limit, userOid,
+                                new TimelineItemConsumer() {
+                                    @Override
+                                    public void accept(MbTimelineItem item) throws ConnectionException {
+                                        onItemFetched(item, consumer);
+                                    }
+                                });
                         break;
                 }
-                for (MbTimelineItem item : messages) {
-                    toDownload--;
-                    latestTimelineItem.onNewMsg(item.timelineItemPosition, item.timelineItemDate);
-                    switch (item.getType()) {
-                        case MESSAGE:
-                            di.insertOrUpdateMsg(item.mbMessage, latestUserMessages);
-                            break;
-                        case USER:
-                            di.insertOrUpdateUser(item.mbUser);
-                            break;
-                        default:
-                            break;
-                    }
-                }
                 if (toDownload <= 0
                         || lastPosition == latestTimelineItem.getPosition()) {
                     break;
@@ -121,8 +142,26 @@ class TimelineDownloaderOther extends TimelineDownloader {
                 lastPosition = TimelinePosition.getEmpty();
             }
         }
-        latestUserMessages.save();
-        latestTimelineItem.save();
+    }
+
+    /** The position of the next page is known before the items are inserted */
+    private void onItemFetched(MbTimelineItem item, TimelineItemConsumer consumer) throws ConnectionException {
+        toDownload--;
+        latestTimelineItem.onNewMsg(item.timelineItemPosition, item.timelineItemDate);
+        consumer.accept(item);
+    }
+
+    private void insertItem(MbTimelineItem item) {
+        switch (item.getType()) {
+            case MESSAGE:
+                di.insertOrUpdateMsg(item.mbMessage, latestUserMessages);
+                break;
+            case USER:
+                di.insertOrUpdateUser(item.mbUser);
+                break;
+            default:
+                break;
+        }
     }
 
 }
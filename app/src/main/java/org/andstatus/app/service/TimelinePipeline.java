@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.social.MbTimelineItem;
+import org.andstatus.app.net.social.TimelineItemConsumer;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask.PoolEnum;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fetches timeline items in a thread of the {@link #FETCHER_POOL} and hands them off to the calling thread
+ * via a bounded queue, so the next page is requested while the previous one is being inserted.
+ * The capacity of the queue limits the number of items in memory
+ * @author yvolk@yurivolkov.com
+ */
+class TimelinePipeline {
+    static final int QUEUE_CAPACITY = 100;
+    /** Timelines are downloaded in the {@link PoolEnum#SYNC} pool, so the fetcher runs in other pool */
+    private static final PoolEnum FETCHER_POOL = PoolEnum.DEFAULT;
+    private static final MbTimelineItem END_OF_ITEMS = new MbTimelineItem();
+
+    interface Fetcher {
+        /** Fetches all pages, passing items to the consumer in the order of their arrival */
+        void fetch(TimelineItemConsumer consumer) throws ConnectionException;
+    }
+
+    private final BlockingQueue<MbTimelineItem> queue;
+
+    TimelinePipeline(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Passes all fetched items to the inserter in the calling thread.
+     * An exception of the fetcher is rethrown after the items, fetched before it, are inserted.
+     * An exception of the inserter stops the fetcher
+     */
+    void run(final Fetcher fetcher, TimelineItemConsumer inserter) throws ConnectionException {
+        Future<Void> fetched;
+        try {
+            fetched = AsyncTaskLauncher.submit(FETCHER_POOL, new Callable<Void>() {
+                @Override
+                public Void call() throws ConnectionException {
+                    try {
+                        fetcher.fetch(new TimelineItemConsumer() {
+                            @Override
+                            public void accept(MbTimelineItem item) throws ConnectionException {
+                                put(item);
+                            }
+                        });
+                    } finally {
+                        putEnd();
+                    }
+                    return null;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The pool is busy, so we fetch and insert in our thread, without the pipeline
+            fetcher.fetch(inserter);
+            return;
+        }
+        try {
+            for (MbTimelineItem item = queue.take(); item != END_OF_ITEMS; item = queue.take()) {
+                inserter.accept(item);
+            }
+            fetched.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConnectionException) {
+                throw (ConnectionException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ConnectionException("Fetching failed", e.getCause());
+        } finally {
+            fetched.cancel(true);
+        }
+    }
+
+    private void put(MbTimelineItem item) throws ConnectionException {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted", e);
+        }
+    }
+
+    private void putEnd() {
+        try {
+            queue.put(END_OF_ITEMS);
+        } catch (InterruptedException e) {
+            // The inserter has stopped already
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.andstatus.app.user;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.BaseColumns;
+import android.text.TextUtils;
 
 import org.andstatus.app.LoadableListActivity;
 import org.andstatus.app.LoadableListActivity.ProgressPublisher;
@@ -24,7 +25,11 @@ import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.MyLog;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class UserListLoader implements SyncLoader {
     protected final UserListType mUserListType;
@@ -38,6 +43,10 @@ public class UserListLoader implements SyncLoader {
     }
 
     private final List<UserListViewItem> mItems = new ArrayList<>();
+    /** Index of the items with known userId */
+    private final Map<Long, UserListViewItem> mItemsById = new HashMap<>();
+    /** Items without userId are compared by other attributes, see {@link MbUser#equals(Object)} */
+    private final List<UserListViewItem> mItemsWithoutId = new ArrayList<>();
     private LoadableListActivity.ProgressPublisher mProgress;
 
     public UserListLoader(UserListType userListType, MyAccount ma, long centralItemId, boolean isListCombined) {
@@ -76,8 +85,13 @@ public class UserListLoader implements SyncLoader {
     }
 
     protected void addUserToList(UserListViewItem oUser) {
-        if (!oUser.isEmpty() && !mItems.contains(oUser)) {
+        if (!oUser.isEmpty() && !contains(oUser)) {
             mItems.add(oUser);
+            if (oUser.getUserId() == 0) {
+                mItemsWithoutId.add(oUser);
+            } else {
+                mItemsById.put(oUser.getUserId(), oUser);
+            }
             if (oUser.mbUser.userId == 0 && mAllowLoadingFromInternet) {
                 loadFromInternet(oUser);
             }
@@ -87,6 +101,14 @@ public class UserListLoader implements SyncLoader {
         }
     }
 
+    /** Equivalent of mItems.contains(oUser) without the linear scan */
+    private boolean contains(UserListViewItem oUser) {
+        if (oUser.getUserId() != 0) {
+            return mItemsById.containsKey(oUser.getUserId());
+        }
+        return mItemsWithoutId.contains(oUser);
+    }
+
     private void loadFromInternet(UserListViewItem oUser) {
         MyLog.v(this, "User " + oUser + " will be loaded from the Internet");
         MyServiceManager.sendForegroundCommand(
@@ -100,21 +122,27 @@ public class UserListLoader implements SyncLoader {
     protected void loadInternal() {
         // TODO: Why only MyAccount's ID ??
         Uri mContentUri = MatchedUri.getUserListUri(ma.getUserId(), mUserListType, ma.getOriginId(), mCentralItemId);
+        String sqlUserIds = getSqlUserIds();
+        Map<Long, Set<Long>> myFollowers = TextUtils.isEmpty(sqlUserIds) ? null
+                : MyQuery.getMyFollowersOfUsers(sqlUserIds);
         Cursor c = null;
         try {
             c = MyContextHolder.get().context().getContentResolver()
                     .query(mContentUri, UserListSql.getListProjection(),
-                            UserTable.TABLE_NAME + "." + BaseColumns._ID + getSqlUserIds(),
+                            UserTable.TABLE_NAME + "." + BaseColumns._ID + sqlUserIds,
                             null, null);
             while ( c != null && c.moveToNext()) {
-                populateItem(c);
+                populateItem(c, myFollowers);
             }
         } finally {
             DbUtils.closeSilently(c);
         }
     }
 
-    private void populateItem(Cursor cursor) {
+    /**
+     * @param myFollowers "My followers" of all users of the list, or null to query them for this user
+     */
+    private void populateItem(Cursor cursor, Map<Long, Set<Long>> myFollowers) {
         long userId = DbUtils.getLong(cursor, BaseColumns._ID);
         UserListViewItem item = getById(userId);
         if (item == null) {
@@ -141,19 +169,19 @@ public class UserListLoader implements SyncLoader {
         user.setCreatedDate(DbUtils.getLong(cursor, UserTable.CREATED_DATE));
         user.setUpdatedDate(DbUtils.getLong(cursor, UserTable.UPDATED_DATE));
 
-        item.myFollowers = MyQuery.getMyFollowersOf(userId);
+        if (myFollowers == null) {
+            item.myFollowers = MyQuery.getMyFollowersOf(userId);
+        } else {
+            Set<Long> myFollowersOfUser = myFollowers.get(userId);
+            item.myFollowers = myFollowersOfUser == null ? new HashSet<Long>() : myFollowersOfUser;
+        }
         item.avatarDrawable = AvatarFile.getDrawable(item.getUserId(), cursor);
 
         item.populated = true;
     }
 
     private UserListViewItem getById(long userId) {
-        for (UserListViewItem item : mItems) {
-            if (item.getUserId() == userId) {
-                return item;
-            }
-        }
-        return null;
+        return mItemsById.get(userId);
     }
 
     protected String getSqlUserIds() {
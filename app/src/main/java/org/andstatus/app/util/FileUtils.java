@@ -187,6 +187,11 @@ public class FileUtils {
     }
 
     public static void readStreamToFile(InputStream in, File file) throws IOException {
+        readStreamToFile(in, file, false);
+    }
+
+    /** @param append if true, the stream is appended to the existing file */
+    public static void readStreamToFile(InputStream in, File file, boolean append) throws IOException {
         if (in == null || file == null) {
             return;
         }
@@ -196,7 +201,7 @@ public class FileUtils {
             FileOutputStream fileOutputStream = null;
             OutputStream out = null;
             try {
-                fileOutputStream = new FileOutputStream(file);
+                fileOutputStream = new FileOutputStream(file, append);
                 out = new BufferedOutputStream(fileOutputStream);
                 while ((count = in.read(buffer)) != -1) {
                     out.write(buffer, 0, count);
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.andstatus.app.data.DbUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends lines of the log file in a background thread, so that logging doesn't wait for the disk.
+ * Lines are queued without locking. When the queue is full, new lines are dropped and counted.
+ * The log file is rotated, when it grows over {@link #MAX_FILE_BYTES}
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+class LogFileWriter {
+    private static final String TAG = LogFileWriter.class.getSimpleName();
+    static final int QUEUE_CAPACITY = 10000;
+    static final long MAX_FILE_BYTES = 4 * 1024 * 1024;
+    /** Rotated log files, which are kept, including the current one */
+    static final int MAX_FILES = 5;
+    static final String LOG_FILE_SUFFIX = "_log.txt";
+    private static final long WRITE_PERIOD_MILLIS = 500;
+    private static final int BATCH_CHARS_MAX = 64 * 1024;
+
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    final AtomicLong written = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile Thread thread = null;
+
+    @GuardedBy("this")
+    private long droppedReported = 0;
+    @GuardedBy("this")
+    private FileChannel channel = null;
+    @GuardedBy("this")
+    private String channelFilename = null;
+
+    void add(String line) {
+        int size = queued.incrementAndGet();
+        if (size > QUEUE_CAPACITY) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(line);
+        if (started.compareAndSet(false, true)) {
+            startThread();
+        } else if (size == QUEUE_CAPACITY / 2) {
+            // Don't wait for the next period
+            Thread writerThread = thread;
+            if (writerThread != null) {
+                LockSupport.unpark(writerThread);
+            }
+        }
+    }
+
+    private void startThread() {
+        Thread writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    flush();
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(WRITE_PERIOD_MILLIS));
+                }
+            }
+        }, "AndStatus log writer");
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        thread = writerThread;
+        writerThread.start();
+    }
+
+    /** Writes queued lines in the calling thread */
+    synchronized void flush() {
+        StringBuilder batch = new StringBuilder();
+        int lines = 0;
+        String line;
+        while ((line = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.append(line);
+            lines++;
+            if (batch.length() > BATCH_CHARS_MAX) {
+                write(batch, lines);
+                batch.setLength(0);
+                lines = 0;
+            }
+        }
+        long droppedNow = dropped.get();
+        if (droppedNow > droppedReported) {
+            batch.append(MyLog.currentDateTimeFormatted() + " W/" + TAG + ": "
+                    + (droppedNow - droppedReported) + " lines dropped, the queue was full\n");
+            droppedReported = droppedNow;
+        }
+        write(batch, lines);
+    }
+
+    @GuardedBy("this")
+    private void write(StringBuilder batch, int lines) {
+        if (batch.length() == 0) {
+            return;
+        }
+        try {
+            if (!openChannel()) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes("UTF-8"));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            written.addAndGet(lines);
+            if (channel.size() > MAX_FILE_BYTES) {
+                rotate();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Writing to " + channelFilename, e);
+            closeChannel();
+        }
+    }
+
+    /** @return false if logging to file is turned off */
+    @GuardedBy("this")
+    private boolean openChannel() throws IOException {
+        String filename = MyLog.getMostRecentLogFileName();
+        if (TextUtils.isEmpty(filename)) {
+            closeChannel();
+            return false;
+        }
+        if (channel != null && filename.equals(channelFilename)) {
+            return true;
+        }
+        closeChannel();
+        File file = MyLog.getFileInLogDir(filename, false);
+        if (file == null) {
+            return false;
+        }
+        channel = new FileOutputStream(file, true).getChannel();
+        channelFilename = filename;
+        return true;
+    }
+
+    @GuardedBy("this")
+    private void closeChannel() {
+        DbUtils.closeSilently(channel, channelFilename);
+        channel = null;
+        channelFilename = null;
+    }
+
+    @GuardedBy("this")
+    private void rotate() {
+        closeChannel();
+        MyLog.setNextLogFileName();
+        File dir = MyLog.getLogDir(false);
+        String[] filenames = dir == null ? null : dir.list();
+        if (filenames == null) {
+            return;
+        }
+        // Names start with the date and time, so the oldest files are the first
+        Arrays.sort(filenames);
+        int toDelete = 0;
+        for (String filename : filenames) {
+            if (filename.endsWith(LOG_FILE_SUFFIX)) {
+                toDelete++;
+            }
+        }
+        // The new file is not created yet
+        toDelete -= MAX_FILES - 1;
+        for (int i = 0; i < filenames.length && toDelete > 0; i++) {
+            if (filenames[i].endsWith(LOG_FILE_SUFFIX)) {
+                if (!new File(dir, filenames[i]).delete()) {
+                    Log.w(TAG, "Couldn't delete " + filenames[i]);
+                }
+                toDelete--;
+            }
+        }
+    }
+
+    String getInfo() {
+        return "Log file: written " + written.get() + " lines, queued " + queued.get()
+                + ", dropped " + dropped.get();
+    }
+}
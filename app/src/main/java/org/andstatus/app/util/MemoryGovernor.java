@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Passes memory pressure signals of the system to all registered in-memory caches,
+ * so that they shrink instead of causing OutOfMemoryError
+ * @author yvolk@yurivolkov.com
+ */
+@ThreadSafe
+public class MemoryGovernor {
+    private static final String TAG = MemoryGovernor.class.getSimpleName();
+    private static final Map<String, Consumer> consumers = new ConcurrentHashMap<>();
+
+    public interface Consumer {
+        /**
+         * @param fraction Part of the memory held now, which the cache may keep:
+         *                 from 0 (release everything possible) to 1 (nothing to release)
+         */
+        void trimMemory(float fraction);
+
+        /** @return estimated size of the memory held now, 0 if unknown */
+        long getBytesHeld();
+    }
+
+    private MemoryGovernor() {
+        // Non instantiable
+    }
+
+    /** The consumer replaces previously registered one with the same name */
+    public static void register(@NonNull String name, @NonNull Consumer consumer) {
+        consumers.put(name, consumer);
+    }
+
+    public static void unregister(@NonNull String name) {
+        consumers.remove(name);
+    }
+
+    public static void onTrimMemory(int level) {
+        trimMemory(getFractionToKeep(level));
+        MyLog.v(TAG, "onTrimMemory level=" + level + "; " + getInfo());
+    }
+
+    public static void onLowMemory() {
+        trimMemory(0);
+        MyLog.v(TAG, "onLowMemory; " + getInfo());
+    }
+
+    private static void trimMemory(float fraction) {
+        if (fraction >= 1) {
+            return;
+        }
+        for (Map.Entry<String, Consumer> entry : consumers.entrySet()) {
+            try {
+                entry.getValue().trimMemory(fraction);
+            } catch (Exception e) {
+                MyLog.w(TAG, "Trimming " + entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * The more critical the level is, the less is kept.
+     * Caches are cleared, when the process is likely to be killed in background
+     */
+    static float getFractionToKeep(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return 0.25f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return 0.75f;
+        }
+        return 1;
+    }
+
+    /** Memory held by each registered cache now */
+    public static String getInfo() {
+        StringBuilder builder = new StringBuilder("Memory held:");
+        long total = 0;
+        for (Map.Entry<String, Consumer> entry : consumers.entrySet()) {
+            long bytes = entry.getValue().getBytesHeld();
+            total += bytes;
+            builder.append(" " + entry.getKey() + ": " + I18n.formatBytes(bytes) + ";");
+        }
+        builder.append(" total: " + I18n.formatBytes(total));
+        return builder.toString();
+    }
+}
@@ -43,6 +43,8 @@ import java.io.Writer;
 import java.text.FieldPosition;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -95,8 +97,18 @@ public class MyLog {
     @GuardedBy("logFileLock")
     private static String logFileName = null;
 
+    /** Minimum loggable level, set for a tag by the system property "log.tag.&lt;tag&gt;", by tag */
+    private static final Map<Object, Integer> tagLevels = new ConcurrentHashMap<>();
+    /** Levels of String tags, which are built at runtime, are not cached over this size */
+    static final int TAG_LEVELS_MAX_SIZE = 500;
+
     private static final String COMMA = ",";
 
+    /** Builds a message only if it is going to be logged */
+    public interface MessageSupplier {
+        String get();
+    }
+
     private MyLog() {
         // Empty
     }
@@ -175,22 +187,29 @@ public class MyLog {
      * Shortcut for debugging messages of the application
      */
     public static int d(Object objTag, String msg) {
-        String tag = objTagToString(objTag);
         int i = 0;
-        if (isLoggable(tag, DEBUG)) {
+        if (isLoggable(objTag, DEBUG)) {
+            String tag = objTagToString(objTag);
             logToFile(DEBUG, tag, msg, null);
             i = Log.d(tag, msg);
         }
         return i;
     }
 
+    public static int d(Object objTag, MessageSupplier supplier) {
+        if (isLoggable(objTag, DEBUG)) {
+            return d(objTag, supplier.get());
+        }
+        return 0;
+    }
+
     /**
      * Shortcut for debugging messages of the application
      */
     public static int d(Object objTag, String msg, Throwable tr) {
-        String tag = objTagToString(objTag);
         int i = 0;
-        if (isLoggable(tag, DEBUG)) {
+        if (isLoggable(objTag, DEBUG)) {
+            String tag = objTagToString(objTag);
             logToFile(DEBUG, tag, msg, tr);
             i = Log.d(tag, msg, tr);
         }
@@ -201,9 +220,9 @@ public class MyLog {
      * Shortcut for verbose messages of the application
      */
     public static int v(Object objTag, Throwable tr) {
-        String tag = objTagToString(objTag);
         int i = 0;
-        if (isLoggable(tag, Log.VERBOSE)) {
+        if (isLoggable(objTag, Log.VERBOSE)) {
+            String tag = objTagToString(objTag);
             logToFile(VERBOSE, tag, null, tr);
             i = Log.v(tag, "", tr);
         }
@@ -214,19 +233,26 @@ public class MyLog {
      * Shortcut for verbose messages of the application
      */
     public static int v(Object objTag, String msg) {
-        String tag = objTagToString(objTag);
         int i = 0;
-        if (isLoggable(tag, Log.VERBOSE)) {
+        if (isLoggable(objTag, Log.VERBOSE)) {
+            String tag = objTagToString(objTag);
             logToFile(VERBOSE, tag, msg, null);
             i = Log.v(tag, msg);
         }
         return i;
     }
 
+    public static int v(Object objTag, MessageSupplier supplier) {
+        if (isLoggable(objTag, Log.VERBOSE)) {
+            return v(objTag, supplier.get());
+        }
+        return 0;
+    }
+
     public static int v(Object objTag, String msg, Throwable tr) {
-        String tag = objTagToString(objTag);
         int i = 0;
-        if (isLoggable(tag, Log.VERBOSE)) {
+        if (isLoggable(objTag, Log.VERBOSE)) {
+            String tag = objTagToString(objTag);
             logToFile(VERBOSE, tag, msg, tr);
             i = Log.v(tag, msg, tr);
         }
@@ -237,10 +263,9 @@ public class MyLog {
      * This will be ignored
      */
     public static int ignored(Object objTag, Throwable tr) {
-        String tag = objTagToString(objTag);
         int i = 0;
-        if (isLoggable(tag, IGNORED)) {
-            i = Log.i(tag, "", tr);
+        if (isLoggable(objTag, IGNORED)) {
+            i = Log.i(objTagToString(objTag), "", tr);
         }
         return i;
     }
@@ -287,18 +312,61 @@ public class MyLog {
         } else if (level >= minLogLevel) {
             is = true;
         } else {
-            String tag = objTagToString(objTag);
-            if (TextUtils.isEmpty(tag)) {
-                tag = APPTAG;
-            }
-            if (tag.length() > 23) {
-                tag = tag.substring(0, 22);
-            }
-            is = Log.isLoggable(tag, level);
+            is = isTagLoggable(objTag, level);
         }
         
         return is;
     }
+
+    /** Lookups of system properties are done once for a tag, until {@link #forget()} */
+    static boolean isTagLoggable(Object objTag, int level) {
+        Object key = getTagKey(objTag);
+        Integer tagLevel = tagLevels.get(key);
+        if (tagLevel == null) {
+            String tag = toLoggableTag(objTag);
+            if (key instanceof String && tagLevels.size() >= TAG_LEVELS_MAX_SIZE) {
+                // The level won't be cached, so we look up the requested level only
+                return Log.isLoggable(tag, level);
+            }
+            tagLevel = Log.ASSERT;
+            for (int levelToCheck = VERBOSE; levelToCheck < Log.ASSERT; levelToCheck++) {
+                if (Log.isLoggable(tag, levelToCheck)) {
+                    tagLevel = levelToCheck;
+                    break;
+                }
+            }
+            tagLevels.put(key, tagLevel);
+        }
+        return level >= tagLevel;
+    }
+
+    static boolean isTagLevelCached(Object objTag) {
+        return tagLevels.containsKey(getTagKey(objTag));
+    }
+
+    /**
+     * Objects of the same class have the same tag.
+     * String tags are the keys as they are, tags are truncated on a cache miss only
+     */
+    private static Object getTagKey(Object objTag) {
+        if (objTag == null) {
+            return objTagToString(null);
+        } else if (objTag instanceof String || objTag instanceof Enum<?> || objTag instanceof Class<?>) {
+            return objTag;
+        }
+        return objTag.getClass();
+    }
+
+    private static String toLoggableTag(Object objTag) {
+        String tag = objTagToString(objTag);
+        if (TextUtils.isEmpty(tag)) {
+            tag = APPTAG;
+        }
+        if (tag.length() > 23) {
+            tag = tag.substring(0, 22);
+        }
+        return tag;
+    }
     
     /**
      * Initialize using a double-check idiom 
@@ -361,6 +429,7 @@ public class MyLog {
      */
     public static void forget() {
         initialized = false;
+        tagLevels.clear();
     }
     
     /**
@@ -471,7 +540,7 @@ public class MyLog {
     }
 
     private static void setNextLogFileName(boolean changeExisting) {
-        String filename = currentDateTimeFormatted() + "_log.txt";
+        String filename = currentDateTimeFormatted() + LogFileWriter.LOG_FILE_SUFFIX;
         synchronized (logFileLock) {
             if (logFileName == null || changeExisting) {
                 logFileName = filename; 
@@ -485,7 +554,7 @@ public class MyLog {
         }
     }
     
-    private static Object logFileWriterLock = new Object();
+    private static final LogFileWriter logFileWriter = new LogFileWriter();
     static void logToFile(int logLevel, String tag, String msg, Throwable tr) {
         if(!isLogToFileEnabled()) {
             return;
@@ -511,17 +580,44 @@ public class MyLog {
         writeRawStringToLogFile(builder);
     }
 
-    private static void writeRawStringToLogFile(StringBuilder builder)
-    {
-        synchronized (logFileWriterLock)
-        {
-            writeStringToFile(builder.toString(), getMostRecentLogFileName(),
-                              true, false);
-        }
+    /** The line is written to the log file asynchronously, see {@link #flush()} */
+    private static void writeRawStringToLogFile(StringBuilder builder) {
+        logFileWriter.add(builder.toString());
     }
-    
-    private static String getMostRecentLogFileName() {
+
+    /** Writes to the log file all lines, which were logged before the call */
+    public static void flush() {
+        logFileWriter.flush();
+    }
+
+    /** Lines, which are still queued, are written to the log file before a crash is reported */
+    public static void flushOnUncaughtException() {
+        final Thread.UncaughtExceptionHandler reporter = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable ex) {
+                try {
+                    logToFile(ERROR, TAG, "Uncaught exception in thread " + thread.getName(), ex);
+                    flush();
+                } catch (Throwable e) {
+                    Log.e(TAG, "Flushing log file", e);
+                }
+                if (reporter != null) {
+                    reporter.uncaughtException(thread, ex);
+                }
+            }
+        });
+    }
+
+    public static String getLogFileInfo() {
+        return logFileWriter.getInfo();
+    }
+
+    static String getMostRecentLogFileName() {
         String filename = getLogFilename();
+        if (TextUtils.isEmpty(filename)) {
+            return filename;
+        }
         if (!FileUtils.exists(getFileInLogDir(filename, false))) {
             setNextLogFileName(true);
             filename = getLogFilename();
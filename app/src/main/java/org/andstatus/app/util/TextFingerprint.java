@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2016 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.text.TextUtils;
+
+/**
+ * 64-bit SimHash of a normalized plain text, see https://en.wikipedia.org/wiki/SimHash
+ * Texts, which differ in a few words only, have fingerprints, which differ in a few bits only,
+ * so fingerprints allow to find near duplicates (cross-posted messages etc.) without comparing texts
+ * @author yvolk@yurivolkov.com
+ */
+public class TextFingerprint {
+    /** The fingerprint was not calculated yet (e.g. for rows, stored before the fingerprints were introduced) */
+    public static final long UNKNOWN = 0;
+    /** The text is too short to have a meaningful fingerprint */
+    public static final long NONE = 1;
+    /**
+     * Fingerprints of near duplicates differ in this number of bits at most.
+     * Insertion of one word into a tweet-sized text flips 2-5 bits, while fingerprints
+     * of unrelated texts differ in 32 bits on average
+     */
+    public static final int MAX_DISTANCE = 7;
+    /** Number of bands for the index of fingerprints. Should be greater than {@link #MAX_DISTANCE} */
+    public static final int BANDS_COUNT = MAX_DISTANCE + 1;
+    private static final int BAND_BITS = Long.SIZE / BANDS_COUNT;
+    private static final long BAND_MASK = (1L << BAND_BITS) - 1;
+    private static final int MIN_WORDS_COUNT = 4;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private TextFingerprint() {
+        // Non instantiable
+    }
+
+    /**
+     * @param htmlOrPlainText Body of a message
+     */
+    public static long fromBody(String htmlOrPlainText) {
+        return fromPlainText(MyHtml.fromHtml(htmlOrPlainText));
+    }
+
+    public static long fromPlainText(String text) {
+        if (TextUtils.isEmpty(text)) {
+            return NONE;
+        }
+        int[] weights = new int[Long.SIZE];
+        int wordsCount = 0;
+        int wordStart = -1;
+        for (int ind = 0; ind <= text.length(); ind++) {
+            boolean isWordChar = ind < text.length() && isWordChar(text.charAt(ind));
+            if (isWordChar) {
+                if (wordStart < 0) {
+                    wordStart = ind;
+                }
+            } else if (wordStart >= 0) {
+                if (!isLinkAt(text, wordStart)) {
+                    addWord(weights, hashOfWord(text, wordStart, ind));
+                    wordsCount++;
+                }
+                wordStart = -1;
+            }
+        }
+        if (wordsCount < MIN_WORDS_COUNT) {
+            return NONE;
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        if (fingerprint == UNKNOWN || fingerprint == NONE) {
+            fingerprint |= 2L;
+        }
+        return fingerprint;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '@' || c == '#' || c == ':' || c == '/' || c == '.';
+    }
+
+    /** Shortened links differ between cross-posted copies of a message */
+    private static boolean isLinkAt(String text, int wordStart) {
+        return text.startsWith("http", wordStart) && text.indexOf("://", wordStart) > 0;
+    }
+
+    /** FNV-1a hash of the lower-cased word, trimmed of trailing punctuation */
+    private static long hashOfWord(String text, int start, int end) {
+        int endTrimmed = end;
+        while (endTrimmed > start && !Character.isLetterOrDigit(text.charAt(endTrimmed - 1))) {
+            endTrimmed--;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int ind = start; ind < endTrimmed; ind++) {
+            hash ^= Character.toLowerCase(text.charAt(ind));
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static void addWord(int[] weights, long hash) {
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (((hash >>> bit) & 1L) == 1L) {
+                weights[bit]++;
+            } else {
+                weights[bit]--;
+            }
+        }
+    }
+
+    public static boolean isMeaningful(long fingerprint) {
+        return fingerprint != UNKNOWN && fingerprint != NONE;
+    }
+
+    public static int distance(long fingerprint1, long fingerprint2) {
+        return Long.bitCount(fingerprint1 ^ fingerprint2);
+    }
+
+    public static boolean areNear(long fingerprint1, long fingerprint2) {
+        return isMeaningful(fingerprint1) && isMeaningful(fingerprint2)
+                && distance(fingerprint1, fingerprint2) <= MAX_DISTANCE;
+    }
+
+    /**
+     * Key of the band of the fingerprint for a hash index.
+     * Near fingerprints (see {@link #areNear(long, long)}) have at least one equal band key
+     * @param band 0 ... {@link #BANDS_COUNT} - 1
+     */
+    public static long bandKey(long fingerprint, int band) {
+        return ((long) band << BAND_BITS) | ((fingerprint >>> (band * BAND_BITS)) & BAND_MASK);
+    }
+}